@@ -0,0 +1,135 @@
+/*
+ * Checkout load test for comparing platform-thread and virtual-thread request handling.
+ *
+ * Each virtual user registers and logs in once, then loops: browse the catalogue, add two products to the
+ * cart, place the order and create its payment intent. Only the payment provider is faked, so the run
+ * exercises Tomcat, Postgres (through the connection limiter when it is on) and the @Async executors.
+ *
+ * 1. Start the API against a Postgres with a few products in stock (give them a large stock so the
+ *    run never sells out). Use the stub gateway and switch off per-client rate limiting:
+ *
+ *      mvn spring-boot:run -Dspring-boot.run.arguments="--app.payments.gateway=stub \
+ *          --app.ratelimit.enabled=false --spring.threads.virtual.enabled=false"
+ *
+ * 2. Run the test:
+ *
+ *      k6 run -e BASE_URL=http://localhost:8080 -e VUS=400 load-tests/checkout.js
+ *
+ * 3. Restart the API with --spring.threads.virtual.enabled=true, run step 2 again and compare
+ *    http_req_duration, checkout_duration and http_req_failed between the two summaries. Keep the
+ *    Hikari pool size, stub latency (app.payments.stub.latency-ms) and VUS the same for both runs.
+ */
+import http from 'k6/http';
+import { check, fail, sleep } from 'k6';
+import { Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '200');
+const PASSWORD = 'load-test-password';
+
+const checkoutDuration = new Trend('checkout_duration', true);
+
+export const options = {
+    scenarios: {
+        checkout: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '1m', target: VUS },
+                { duration: '5m', target: VUS },
+                { duration: '30s', target: 0 },
+            ],
+            gracefulRampDown: '30s',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        checkout_duration: ['p(95)<2000'],
+    },
+};
+
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+// Per virtual user: logged in once, reused for every iteration
+let session = null;
+
+export function setup() {
+    const res = http.get(`${BASE_URL}/api/products?page=0&size=50`);
+    check(res, { 'catalogue loaded': (r) => r.status === 200 }) || fail(`GET /api/products: ${res.status}`);
+    const products = res.json('products').filter((p) => p.stockQuantity === undefined || p.stockQuantity > 0);
+    if (products.length < 2) {
+        fail('Seed at least two products with stock before running the load test');
+    }
+    return { productIds: products.map((p) => p.id) };
+}
+
+function login() {
+    const email = `load-${__VU}-${Date.now()}@example.com`;
+    const registered = http.post(`${BASE_URL}/api/auth/register`, JSON.stringify({
+        firstName: 'Load',
+        lastName: 'Test',
+        email: email,
+        password: PASSWORD,
+    }), { headers: JSON_HEADERS, tags: { name: 'register' } });
+    check(registered, { 'registered': (r) => r.status === 201 });
+
+    const loggedIn = http.post(`${BASE_URL}/api/auth/login`, JSON.stringify({ email: email, password: PASSWORD }),
+        { headers: JSON_HEADERS, tags: { name: 'login' } });
+    if (!check(loggedIn, { 'logged in': (r) => r.status === 200 })) {
+        return null;
+    }
+    return {
+        email: email,
+        headers: Object.assign({ Authorization: `Bearer ${loggedIn.json('token')}` }, JSON_HEADERS),
+    };
+}
+
+export default function (data) {
+    if (session === null) {
+        session = login();
+        if (session === null) {
+            sleep(1);
+            return;
+        }
+    }
+    const headers = session.headers;
+    const ids = data.productIds;
+    const first = ids[Math.floor(Math.random() * ids.length)];
+    const second = ids[(ids.indexOf(first) + 1) % ids.length];
+
+    http.get(`${BASE_URL}/api/products?page=0&size=20`, { tags: { name: 'browse' } });
+    http.get(`${BASE_URL}/api/products/${first}`, { tags: { name: 'product' } });
+
+    const started = Date.now();
+    http.post(`${BASE_URL}/api/cart/add`, JSON.stringify({ productId: first, quantity: 1 }),
+        { headers: headers, tags: { name: 'add-to-cart' } });
+    http.post(`${BASE_URL}/api/cart/add`, JSON.stringify({ productId: second, quantity: 2 }),
+        { headers: headers, tags: { name: 'add-to-cart' } });
+
+    const order = http.post(`${BASE_URL}/api/orders`, JSON.stringify({
+        shippingAddress: '1 Load Street',
+        shippingCity: 'Load City',
+        shippingState: 'LC',
+        shippingPostalCode: '00000',
+        shippingCountry: 'US',
+        paymentMethod: 'CARD',
+    }), {
+        headers: Object.assign({ 'Idempotency-Key': `${session.email}-${__ITER}` }, headers),
+        tags: { name: 'create-order' },
+    });
+    if (!check(order, { 'order created': (r) => r.status === 200 && r.json('success') === true })) {
+        sleep(1);
+        return;
+    }
+
+    const intent = http.post(`${BASE_URL}/api/payments/create-payment-intent`, JSON.stringify({
+        orderId: order.json('data.id'),
+        amount: order.json('data.totalAmount'),
+        currency: 'usd',
+        customerEmail: session.email,
+    }), { headers: headers, tags: { name: 'create-payment-intent' } });
+    check(intent, { 'payment intent created': (r) => r.status === 200 });
+    checkoutDuration.add(Date.now() - started);
+
+    sleep(Math.random() * 2);
+}
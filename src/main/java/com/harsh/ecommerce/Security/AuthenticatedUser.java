@@ -0,0 +1,86 @@
+package com.harsh.ecommerce.Security;
+
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal built from a verified access token's claims, so an authenticated request never has to load the
+ * user row. {@link #getUsername()} is the email, so {@code authentication.getName()} callers are unaffected.
+ */
+public final class AuthenticatedUser implements UserDetails {
+
+    private final Long userId;
+    private final String email;
+    private final String role;
+    private final long tokenVersion;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long userId, String email, String role, long tokenVersion) {
+        this.userId = userId;
+        this.email = email;
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+        this.authorities = role != null ? List.of(new SimpleGrantedAuthority(role)) : List.of();
+    }
+
+    /**
+     * The principal of the current request; throws if the request is not authenticated with a token.
+     */
+    public static AuthenticatedUser current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        throw new AuthenticationCredentialsNotFoundException("No authenticated user for this request");
+    }
+
+    public static Long currentUserId() {
+        return current().getUserId();
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Authority name as issued in the token, e.g. {@code ROLE_USER}.
+     */
+    public String getRole() {
+        return role;
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{userId=" + userId + ", role=" + role + "}";
+    }
+}
@@ -0,0 +1,213 @@
+package com.harsh.ecommerce.Security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Refresh-token families held in this node's memory, split over independently locked shards by family id.
+ * A rotation is one map lookup and a hash comparison under its shard's lock.
+ */
+class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    // Hashes a family has rotated away from, kept to recognise a stolen token being replayed
+    private static final int MAX_RETIRED_HASHES = 64;
+
+    private final Shard[] shards;
+    private final Map<Long, Set<String>> familiesByUser = new ConcurrentHashMap<>();
+
+    InMemoryRefreshTokenStore(int shardCount) {
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    @Override
+    public void create(RefreshSession session) {
+        Shard shard = shard(session.familyId());
+        shard.lock.lock();
+        try {
+            shard.families.put(session.familyId(), new Family(session));
+        } finally {
+            shard.lock.unlock();
+        }
+        familiesByUser.computeIfAbsent(session.userId(), id -> ConcurrentHashMap.newKeySet()).add(session.familyId());
+    }
+
+    @Override
+    public Rotation rotate(String familyId, String presentedHash, String nextHash, long nowMillis, long idleTtlMillis) {
+        Shard shard = shard(familyId);
+        Family family;
+        shard.lock.lock();
+        try {
+            family = shard.families.get(familyId);
+            if (family == null) {
+                return new Rotation(Outcome.NOT_FOUND, null);
+            }
+            if (family.session.isExpired(nowMillis)) {
+                shard.families.remove(familyId);
+            } else if (equal(family.session.currentHash(), presentedHash)) {
+                family.retired.addFirst(family.session.currentHash());
+                if (family.retired.size() > MAX_RETIRED_HASHES) {
+                    family.retired.removeLast();
+                }
+                RefreshSession current = family.session;
+                family.session = new RefreshSession(current.familyId(), current.userId(), current.email(), current.role(),
+                        current.tokenVersion(), nextHash,
+                        Math.min(nowMillis + idleTtlMillis, current.absoluteExpiresAtMillis()),
+                        current.absoluteExpiresAtMillis());
+                return new Rotation(Outcome.ROTATED, family.session);
+            } else if (family.wasRetired(presentedHash)) {
+                shard.families.remove(familyId);
+            } else {
+                return new Rotation(Outcome.NOT_FOUND, null);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+
+        // Expired or replayed: the family is gone either way
+        unindex(family.session.userId(), familyId);
+        return new Rotation(family.session.isExpired(nowMillis) ? Outcome.EXPIRED : Outcome.REUSED, null);
+    }
+
+    @Override
+    public void revokeFamily(String familyId) {
+        Shard shard = shard(familyId);
+        Family removed;
+        shard.lock.lock();
+        try {
+            removed = shard.families.remove(familyId);
+        } finally {
+            shard.lock.unlock();
+        }
+        if (removed != null) {
+            unindex(removed.session.userId(), familyId);
+        }
+    }
+
+    @Override
+    public boolean revokeFamily(String familyId, String presentedHash) {
+        Shard shard = shard(familyId);
+        Family removed = null;
+        shard.lock.lock();
+        try {
+            Family family = shard.families.get(familyId);
+            if (family != null && (equal(family.session.currentHash(), presentedHash) || family.wasRetired(presentedHash))) {
+                removed = shard.families.remove(familyId);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+        if (removed == null) {
+            return false;
+        }
+        unindex(removed.session.userId(), familyId);
+        return true;
+    }
+
+    @Override
+    public int revokeUser(Long userId) {
+        Set<String> familyIds = familiesByUser.remove(userId);
+        if (familyIds == null) {
+            return 0;
+        }
+        int revoked = 0;
+        for (String familyId : familyIds) {
+            Shard shard = shard(familyId);
+            shard.lock.lock();
+            try {
+                if (shard.families.remove(familyId) != null) {
+                    revoked++;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return revoked;
+    }
+
+    /**
+     * Drops expired families; returns how many.
+     */
+    int purgeExpired(long nowMillis) {
+        int purged = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                Iterator<Family> iterator = shard.families.values().iterator();
+                while (iterator.hasNext()) {
+                    RefreshSession session = iterator.next().session;
+                    if (session.isExpired(nowMillis)) {
+                        iterator.remove();
+                        unindex(session.userId(), session.familyId());
+                        purged++;
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return purged;
+    }
+
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.families.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private void unindex(Long userId, String familyId) {
+        familiesByUser.computeIfPresent(userId, (id, familyIds) -> {
+            familyIds.remove(familyId);
+            return familyIds.isEmpty() ? null : familyIds;
+        });
+    }
+
+    private Shard shard(String familyId) {
+        return shards[(familyId.hashCode() & 0x7fffffff) % shards.length];
+    }
+
+    private static boolean equal(String a, String b) {
+        // Constant time, so response timing does not leak how much of a guessed hash matched
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.US_ASCII), b.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Family> families = new HashMap<>();
+    }
+
+    private static final class Family {
+        private RefreshSession session;
+        private final Deque<String> retired = new ArrayDeque<>();
+
+        private Family(RefreshSession session) {
+            this.session = session;
+        }
+
+        private boolean wasRetired(String hash) {
+            for (String retiredHash : retired) {
+                if (equal(retiredHash, hash)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.harsh.ecommerce.Security;
 
+import com.harsh.ecommerce.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -10,20 +12,36 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    // Must match the user's current token version for the token to be accepted
+    public static final String VERSION_CLAIM = "ver";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration}")
     private int jwtExpirationMs;
 
+    private final JwtVerifier jwtVerifier;
+
+    // Built once; Keys.hmacShaKeyFor copies and validates the secret on every call
+    private SecretKey signingKey;
+
+    public JwtUtil(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    }
+
     // ✅ FIXED: Consistent method naming - this method is called by the filter
     public String getUsernameFromToken(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
     }
 
     // Keep both method names for backward compatibility
@@ -32,50 +50,26 @@ public class JwtUtil {
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return new Date(verify(token).expiresAtMillis());
     }
 
     // Added missing method for PaymentController
     public Long getUserIdFromToken(String token) {
-        Claims claims = extractAllClaims(token);
-        Object userIdClaim = claims.get("userId");
-
-        if (userIdClaim instanceof Integer) {
-            return ((Integer) userIdClaim).longValue();
-        } else if (userIdClaim instanceof Long) {
-            return (Long) userIdClaim;
-        } else if (userIdClaim instanceof String) {
-            return Long.parseLong((String) userIdClaim);
+        Long userId = verify(token).userId();
+        if (userId == null) {
+            throw new IllegalArgumentException("Invalid or missing userId claim in token");
         }
-
-        throw new IllegalArgumentException("Invalid or missing userId claim in token");
+        return userId;
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
+    private JwtVerifier.VerifiedToken verify(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-        } catch (JwtException e) {
+            return jwtVerifier.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
             throw new RuntimeException("Invalid JWT token", e);
         }
     }
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
     // Fixed method - accepts UserDetails parameter
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
@@ -94,6 +88,9 @@ public class JwtUtil {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", userDetails.getAuthorities().iterator().next().getAuthority());
         claims.put("userId", userId);
+        if (userDetails instanceof User user && user.getTokenVersion() != null) {
+            claims.put(VERSION_CLAIM, user.getTokenVersion());
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
@@ -104,6 +101,17 @@ public class JwtUtil {
         return createToken(claims, username);
     }
 
+    // Used when renewing from a refresh token, where there is no UserDetails to hand
+    public String generateToken(String username, Long userId, String role, long tokenVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        if (role != null) {
+            claims.put("role", role);
+        }
+        claims.put("userId", userId);
+        claims.put(VERSION_CLAIM, tokenVersion);
+        return createToken(claims, username);
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
@@ -113,14 +121,13 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
         try {
-            final String username = getUsernameFromToken(token);
-            return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+            return verify(token).subject().equals(userDetails.getUsername());
         } catch (Exception e) {
             return false;
         }
@@ -128,8 +135,8 @@ public class JwtUtil {
 
     public Boolean validateToken(String token) {
         try {
-            extractAllClaims(token);
-            return !isTokenExpired(token);
+            verify(token);
+            return true;
         } catch (Exception e) {
             return false;
         }
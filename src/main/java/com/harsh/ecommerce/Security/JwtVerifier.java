@@ -0,0 +1,138 @@
+package com.harsh.ecommerce.Security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Verifies access tokens. The signing key and parser are built once; each token is parsed and its signature
+ * checked once, and the result is kept in a bounded LRU cache keyed by the token's SHA-256 so a client
+ * sending the same token on every request skips the HMAC and JSON work until the token expires.
+ */
+@Component
+public class JwtVerifier {
+
+    @Value("${app.jwt.secret}")
+    private String jwtSecret;
+
+    @Value("${app.jwt.verified-cache-size:10000}")
+    private int cacheSize;
+
+    private JwtParser parser;
+    private Map<String, VerifiedToken> cache;
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
+                .build();
+        cache = new LinkedHashMap<>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the token's claims, or throws {@link JwtException} if it is malformed, forged or expired.
+     */
+    public VerifiedToken verify(String token) {
+        String key = cacheSize > 0 ? hash(token) : null;
+        long now = System.currentTimeMillis();
+        if (key != null) {
+            VerifiedToken cached;
+            cacheLock.lock();
+            try {
+                cached = cache.get(key);
+            } finally {
+                cacheLock.unlock();
+            }
+            if (cached != null) {
+                if (cached.isExpired(now)) {
+                    throw new JwtException("JWT token has expired");
+                }
+                cacheHits.increment();
+                return cached;
+            }
+            cacheMisses.increment();
+        }
+
+        // Throws ExpiredJwtException for expired tokens, so nothing expired reaches the cache
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        // Tokens issued before versions existed count as version 0
+        Long version = toLong(claims.get(JwtUtil.VERSION_CLAIM));
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                toLong(claims.get("userId")),
+                claims.get("role", String.class),
+                version != null ? version : 0L,
+                claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+
+        if (key != null) {
+            cacheLock.lock();
+            try {
+                cache.put(key, verified);
+            } finally {
+                cacheLock.unlock();
+            }
+        }
+        return verified;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    private static Long toLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String text) {
+            return Long.parseLong(text);
+        }
+        return null;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * What a verified token says about its bearer. Times are epoch milliseconds.
+     */
+    public record VerifiedToken(String subject, Long userId, String role, long tokenVersion,
+                                long issuedAtMillis, long expiresAtMillis) {
+
+        public boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.harsh.ecommerce.Security;
+
+import com.harsh.ecommerce.dto.PasswordHashingStatusDto;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a CPU-heavy {@link PasswordEncoder} (BCrypt) on its own small pool so a login storm can use at most
+ * that many cores, leaving request threads and CPU for everything else. When the pool's queue is full, or a
+ * hash waits longer than the timeout, the call fails fast with {@link CallNotPermittedException} (503 with
+ * Retry-After) instead of piling up more waiting request threads.
+ * <p>
+ * {@link #upgradeEncoding} lets Spring Security rehash a password with the current cost factor on the next
+ * successful login; it declines while the pool is busy so upgrades never compete with logins.
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder {
+
+    public static final String DEPENDENCY = "password-hashing";
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeoutMs;
+
+    private final Timer encodeTimer = new Timer();
+    private final Timer matchTimer = new Timer();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder upgradesDeclined = new LongAdder();
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long waitTimeoutMs) {
+        this.delegate = delegate;
+        this.waitTimeoutMs = waitTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (!delegate.upgradeEncoding(encodedPassword)) {
+            return false;
+        }
+        // The rehash is optional; skip it rather than push logins towards rejection
+        if (executor.getQueue().size() > 0) {
+            upgradesDeclined.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public PasswordHashingStatusDto getStatus() {
+        return PasswordHashingStatusDto.builder()
+                .threads(executor.getMaximumPoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queued(executor.getQueue().size())
+                .queueCapacity(executor.getQueue().size() + executor.getQueue().remainingCapacity())
+                .encodes(encodeTimer.count.sum())
+                .averageEncodeMs(encodeTimer.averageMillis())
+                .maxEncodeMs(encodeTimer.maxMillis())
+                .matches(matchTimer.count.sum())
+                .averageMatchMs(matchTimer.averageMillis())
+                .maxMatchMs(matchTimer.maxMillis())
+                .rejected(rejected.sum())
+                .timedOut(timedOut.sum())
+                .upgradesDeclined(upgradesDeclined.sum())
+                .build();
+    }
+
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private <T> T run(Callable<T> hash, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return hash.call();
+                } finally {
+                    timer.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new CallNotPermittedException(DEPENDENCY, "hashing queue is full", RETRY_AFTER);
+        }
+
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new CallNotPermittedException(DEPENDENCY, "hashing timed out", RETRY_AFTER);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        private double averageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / (double) n / 1_000_000;
+        }
+
+        private double maxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.harsh.ecommerce.Security;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh-token families shared by every node through Redis. Each family is a hash that expires with its
+ * idle timeout; the hashes it has rotated away from sit in a companion set, and a per-user set indexes the
+ * families for bulk revocation. Rotation runs as one Lua script, so it is atomic across nodes.
+ */
+class RedisRefreshTokenStore implements RefreshTokenStore {
+
+    private static final String FAMILY_PREFIX = "refresh:family:";
+    private static final String RETIRED_SUFFIX = ":retired";
+    private static final String USER_PREFIX = "refresh:user:";
+
+    // KEYS family, retired; ARGV presented, next, now, idle ttl.
+    // Returns {outcome[, expiresAt, userId, email, role, tokenVersion, absoluteExpiresAt]}
+    private static final RedisScript<List> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local f = redis.call('HMGET', KEYS[1], 'cur', 'exp', 'abs', 'uid', 'email', 'role', 'ver') " +
+            "if not f[1] then return {'NOT_FOUND'} end " +
+            "local now = tonumber(ARGV[3]) " +
+            "local abs = tonumber(f[3]) " +
+            "if now >= tonumber(f[2]) or now >= abs then redis.call('DEL', KEYS[1], KEYS[2]) return {'EXPIRED'} end " +
+            "if f[1] == ARGV[1] then " +
+            "  local exp = math.min(now + tonumber(ARGV[4]), abs) " +
+            "  redis.call('HSET', KEYS[1], 'cur', ARGV[2], 'exp', tostring(exp)) " +
+            "  redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "  redis.call('PEXPIREAT', KEYS[1], exp) " +
+            "  redis.call('PEXPIREAT', KEYS[2], exp) " +
+            "  return {'ROTATED', tostring(exp), f[4], f[5], f[6], f[7], f[3]} " +
+            "end " +
+            "if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 1 then redis.call('DEL', KEYS[1], KEYS[2]) return {'REUSED'} end " +
+            "return {'NOT_FOUND'}",
+            List.class);
+
+    // KEYS family, retired; ARGV presented. Returns the family's user id if it was revoked, else false
+    private static final RedisScript<String> REVOKE_SCRIPT = new DefaultRedisScript<>(
+            "local f = redis.call('HMGET', KEYS[1], 'cur', 'uid') " +
+            "if not f[1] then return false end " +
+            "if f[1] ~= ARGV[1] and redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 0 then return false end " +
+            "redis.call('DEL', KEYS[1], KEYS[2]) " +
+            "return f[2]",
+            String.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    RedisRefreshTokenStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void create(RefreshSession session) {
+        String familyKey = FAMILY_PREFIX + session.familyId();
+        String userKey = USER_PREFIX + session.userId();
+        redisTemplate.opsForHash().putAll(familyKey, Map.of(
+                "cur", session.currentHash(),
+                "exp", String.valueOf(session.expiresAtMillis()),
+                "abs", String.valueOf(session.absoluteExpiresAtMillis()),
+                "uid", String.valueOf(session.userId()),
+                "email", session.email(),
+                "role", session.role() != null ? session.role() : "",
+                "ver", String.valueOf(session.tokenVersion())));
+        redisTemplate.expire(familyKey, session.expiresAtMillis() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        redisTemplate.opsForSet().add(userKey, session.familyId());
+        // The index outlives any family it can hold; stale ids in it are harmless
+        Long ttl = redisTemplate.getExpire(userKey, TimeUnit.MILLISECONDS);
+        long absoluteTtl = session.absoluteExpiresAtMillis() - System.currentTimeMillis();
+        if (ttl == null || ttl < absoluteTtl) {
+            redisTemplate.expire(userKey, absoluteTtl, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Rotation rotate(String familyId, String presentedHash, String nextHash, long nowMillis, long idleTtlMillis) {
+        String familyKey = FAMILY_PREFIX + familyId;
+        List<Object> result = redisTemplate.execute(ROTATE_SCRIPT, List.of(familyKey, familyKey + RETIRED_SUFFIX),
+                presentedHash, nextHash, String.valueOf(nowMillis), String.valueOf(idleTtlMillis));
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Unexpected refresh rotation result: " + result);
+        }
+        Outcome outcome = Outcome.valueOf(String.valueOf(result.get(0)));
+        if (outcome != Outcome.ROTATED) {
+            return new Rotation(outcome, null);
+        }
+        String role = String.valueOf(result.get(4));
+        return new Rotation(outcome, new RefreshSession(
+                familyId,
+                Long.parseLong(String.valueOf(result.get(2))),
+                String.valueOf(result.get(3)),
+                role.isEmpty() ? null : role,
+                Long.parseLong(String.valueOf(result.get(5))),
+                nextHash,
+                Long.parseLong(String.valueOf(result.get(1))),
+                Long.parseLong(String.valueOf(result.get(6)))));
+    }
+
+    @Override
+    public void revokeFamily(String familyId) {
+        String familyKey = FAMILY_PREFIX + familyId;
+        redisTemplate.delete(List.of(familyKey, familyKey + RETIRED_SUFFIX));
+    }
+
+    @Override
+    public boolean revokeFamily(String familyId, String presentedHash) {
+        String familyKey = FAMILY_PREFIX + familyId;
+        String userId = redisTemplate.execute(REVOKE_SCRIPT, List.of(familyKey, familyKey + RETIRED_SUFFIX), presentedHash);
+        if (userId == null) {
+            return false;
+        }
+        redisTemplate.opsForSet().remove(USER_PREFIX + userId, familyId);
+        return true;
+    }
+
+    @Override
+    public int revokeUser(Long userId) {
+        String userKey = USER_PREFIX + userId;
+        Set<String> familyIds = redisTemplate.opsForSet().members(userKey);
+        redisTemplate.delete(userKey);
+        if (familyIds == null || familyIds.isEmpty()) {
+            return 0;
+        }
+        int revoked = 0;
+        for (String familyId : familyIds) {
+            String familyKey = FAMILY_PREFIX + familyId;
+            Long deleted = redisTemplate.delete(List.of(familyKey, familyKey + RETIRED_SUFFIX));
+            if (deleted != null && deleted > 0) {
+                revoked++;
+            }
+        }
+        return revoked;
+    }
+}
@@ -0,0 +1,19 @@
+package com.harsh.ecommerce.Security;
+
+/**
+ * A refresh-token family: the chain of refresh tokens that descend from one login. Only the newest token in
+ * the family ({@code currentHash}) may be exchanged; times are epoch milliseconds.
+ */
+public record RefreshSession(String familyId,
+                             Long userId,
+                             String email,
+                             String role,
+                             long tokenVersion,
+                             String currentHash,
+                             long expiresAtMillis,
+                             long absoluteExpiresAtMillis) {
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis || nowMillis >= absoluteExpiresAtMillis;
+    }
+}
@@ -0,0 +1,195 @@
+package com.harsh.ecommerce.Security;
+
+import com.harsh.ecommerce.exception.InvalidRefreshTokenException;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.function.Supplier;
+
+/**
+ * Issues and exchanges opaque refresh tokens, so renewing an access token is a store lookup rather than a
+ * BCrypt check of the password.
+ * <p>
+ * A refresh token is {@code <familyId>.<secret>}; only the SHA-256 of the secret is stored. Every exchange
+ * rotates the token and slides the family's idle expiry, up to an absolute lifetime from the original
+ * login. Presenting a token the family has already rotated away from means it was copied, so the whole
+ * family is revoked. Tokens are also refused once the user's token version moves on (password or role
+ * change, deactivation).
+ * <p>
+ * Families are kept in memory by default; {@code app.jwt.refresh.backend=redis} shares them between nodes.
+ */
+@Component
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    public static final String STORE = "refresh-tokens";
+
+    private static final Base64.Encoder TOKEN_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecureRandom random = new SecureRandom();
+    private final UserVersionRegistry userVersionRegistry;
+    private final JwtUtil jwtUtil;
+    private final RefreshTokenStore store;
+    private final InMemoryRefreshTokenStore inMemoryStore;
+    private final long idleTtlMillis;
+    private final long maxLifetimeMillis;
+
+    public RefreshTokenService(Environment environment,
+                               ObjectProvider<StringRedisTemplate> redisTemplate,
+                               UserVersionRegistry userVersionRegistry,
+                               JwtUtil jwtUtil) {
+        this.userVersionRegistry = userVersionRegistry;
+        this.jwtUtil = jwtUtil;
+        this.idleTtlMillis = environment.getProperty("app.jwt.refresh.idle-ttl-ms", Long.class, Duration.ofDays(7).toMillis());
+        this.maxLifetimeMillis = environment.getProperty("app.jwt.refresh.max-lifetime-ms", Long.class, Duration.ofDays(30).toMillis());
+
+        String backend = environment.getProperty("app.jwt.refresh.backend", "memory");
+        StringRedisTemplate template = "redis".equalsIgnoreCase(backend) ? redisTemplate.getIfAvailable() : null;
+        if ("redis".equalsIgnoreCase(backend) && template == null) {
+            logger.warn("Refresh token backend is redis but Redis is not configured; keeping refresh tokens in memory");
+        }
+        if (template != null) {
+            this.inMemoryStore = null;
+            this.store = new RedisRefreshTokenStore(template);
+        } else {
+            this.inMemoryStore = new InMemoryRefreshTokenStore(environment.getProperty("app.jwt.refresh.shards", Integer.class, 16));
+            this.store = inMemoryStore;
+        }
+    }
+
+    /**
+     * Starts a new token family for a user who just logged in.
+     */
+    public IssuedTokens issue(Long userId, String email, String role, long tokenVersion) {
+        long now = System.currentTimeMillis();
+        String familyId = randomToken(16);
+        String secret = randomToken(32);
+        access(() -> {
+            store.create(new RefreshSession(familyId, userId, email, role, tokenVersion, hash(secret),
+                    now + Math.min(idleTtlMillis, maxLifetimeMillis), now + maxLifetimeMillis));
+            return null;
+        });
+        return new IssuedTokens(null, familyId + '.' + secret, Math.min(idleTtlMillis, maxLifetimeMillis) / 1000);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     */
+    public IssuedTokens refresh(String refreshToken) {
+        ParsedToken parsed = parse(refreshToken);
+        String nextSecret = randomToken(32);
+        long now = System.currentTimeMillis();
+        RefreshTokenStore.Rotation rotation = access(() ->
+                store.rotate(parsed.familyId, hash(parsed.secret), hash(nextSecret), now, idleTtlMillis));
+
+        switch (rotation.outcome()) {
+            case REUSED -> {
+                logger.warn("Refresh token reuse detected for family {}; revoked the family", parsed.familyId);
+                throw new InvalidRefreshTokenException("Refresh token has already been used");
+            }
+            case EXPIRED -> throw new InvalidRefreshTokenException("Refresh token has expired");
+            case NOT_FOUND -> throw new InvalidRefreshTokenException("Invalid refresh token");
+            case ROTATED -> {
+            }
+        }
+
+        RefreshSession session = rotation.session();
+        if (!userVersionRegistry.isCurrent(session.userId(), session.tokenVersion())) {
+            access(() -> {
+                store.revokeFamily(session.familyId());
+                return null;
+            });
+            throw new InvalidRefreshTokenException("Refresh token has been revoked");
+        }
+
+        String accessToken = jwtUtil.generateToken(session.email(), session.userId(), session.role(), session.tokenVersion());
+        return new IssuedTokens(accessToken, session.familyId() + '.' + nextSecret,
+                (session.expiresAtMillis() - now) / 1000);
+    }
+
+    /**
+     * Ends the session the token belongs to. Unknown or malformed tokens, and tokens whose secret does not
+     * match the family, are ignored.
+     */
+    public void revoke(String refreshToken) {
+        ParsedToken parsed;
+        try {
+            parsed = parse(refreshToken);
+        } catch (InvalidRefreshTokenException e) {
+            return;
+        }
+        access(() -> store.revokeFamily(parsed.familyId, hash(parsed.secret)));
+    }
+
+    public int revokeAll(Long userId) {
+        return access(() -> store.revokeUser(userId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.refresh.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        // Redis expires families on its own
+        if (inMemoryStore != null) {
+            int purged = inMemoryStore.purgeExpired(System.currentTimeMillis());
+            if (purged > 0) {
+                logger.debug("Purged {} expired refresh token families", purged);
+            }
+        }
+    }
+
+    private ParsedToken parse(String refreshToken) {
+        int dot = refreshToken != null ? refreshToken.indexOf('.') : -1;
+        if (dot <= 0 || dot == refreshToken.length() - 1) {
+            throw new InvalidRefreshTokenException("Invalid refresh token");
+        }
+        return new ParsedToken(refreshToken.substring(0, dot), refreshToken.substring(dot + 1));
+    }
+
+    private <T> T access(Supplier<T> operation) {
+        try {
+            return operation.get();
+        } catch (InvalidRefreshTokenException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            logger.error("Refresh token store failed: {}", e.getMessage());
+            throw new CallNotPermittedException(STORE, "store unavailable", Duration.ofSeconds(1));
+        }
+    }
+
+    private String randomToken(int bytes) {
+        byte[] buffer = new byte[bytes];
+        random.nextBytes(buffer);
+        return TOKEN_ENCODER.encodeToString(buffer);
+    }
+
+    private static String hash(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record ParsedToken(String familyId, String secret) {
+    }
+
+    /**
+     * {@code accessToken} is null when only a refresh token was issued (at login the caller mints the access
+     * token itself). {@code refreshExpiresIn} is in seconds.
+     */
+    public record IssuedTokens(String accessToken, String refreshToken, long refreshExpiresIn) {
+    }
+}
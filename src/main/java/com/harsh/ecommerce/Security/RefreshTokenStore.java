@@ -0,0 +1,43 @@
+package com.harsh.ecommerce.Security;
+
+/**
+ * Where refresh-token families live. Implementations must make {@link #rotate} atomic per family, so two
+ * concurrent exchanges of the same token cannot both succeed.
+ */
+interface RefreshTokenStore {
+
+    void create(RefreshSession session);
+
+    /**
+     * Replaces the family's current token hash with {@code nextHash} if {@code presentedHash} is current,
+     * sliding the expiry to {@code nowMillis + idleTtlMillis} (capped at the absolute expiry). Presenting a
+     * hash the family has already rotated away from revokes the whole family.
+     */
+    Rotation rotate(String familyId, String presentedHash, String nextHash, long nowMillis, long idleTtlMillis);
+
+    void revokeFamily(String familyId);
+
+    /**
+     * Revokes the family only if {@code presentedHash} is its current token or one it has rotated away from,
+     * so knowing a family id alone is not enough to end someone's session. Returns whether it was revoked.
+     */
+    boolean revokeFamily(String familyId, String presentedHash);
+
+    /**
+     * Revokes every family belonging to the user; returns how many were revoked.
+     */
+    int revokeUser(Long userId);
+
+    enum Outcome {
+        ROTATED,
+        REUSED,
+        EXPIRED,
+        NOT_FOUND
+    }
+
+    /**
+     * The outcome, and for ROTATED the family as it is after rotation.
+     */
+    record Rotation(Outcome outcome, RefreshSession session) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.harsh.ecommerce.Security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers which {@link RouteAccess} a request path has, using a path-segment trie compiled once from
+ * {@link SecurityRoutes}. A lookup walks the path's segments in place, without splitting or allocating, and
+ * keeps the earliest-declared rule that matches, the same precedence Spring Security applies.
+ */
+@Component
+public class RequestClassifier {
+
+    /**
+     * Request attribute holding the {@link RouteAccess} the JWT filter resolved, for filters further down.
+     */
+    public static final String ACCESS_ATTRIBUTE = RequestClassifier.class.getName() + ".access";
+
+    private static final int NO_RULE = Integer.MAX_VALUE;
+
+    private static final String SUBTREE_SUFFIX = "/**";
+
+    private final Node root = new Node();
+    private final RouteAccess[] accessByRule;
+    private final RouteAccess defaultAccess;
+
+    public RequestClassifier() {
+        List<SecurityRoutes.Route> routes = SecurityRoutes.ROUTES;
+        this.accessByRule = new RouteAccess[routes.size()];
+        this.defaultAccess = SecurityRoutes.DEFAULT_ACCESS;
+        for (int rule = 0; rule < routes.size(); rule++) {
+            SecurityRoutes.Route route = routes.get(rule);
+            accessByRule[rule] = route.access();
+            add(route.pattern(), rule);
+        }
+    }
+
+    public RouteAccess classify(String path) {
+        Node node = root;
+        int best = root.subtreeRule;
+        int length = path.length();
+        int start = 0;
+        while (true) {
+            while (start < length && path.charAt(start) == '/') {
+                start++;
+            }
+            if (start == length) {
+                best = Math.min(best, node.exactRule);
+                break;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.child(path, start, end - start);
+            if (node == null) {
+                break;
+            }
+            best = Math.min(best, node.subtreeRule);
+            start = end;
+        }
+        return best == NO_RULE ? defaultAccess : accessByRule[best];
+    }
+
+    private void add(String pattern, int rule) {
+        boolean subtree = pattern.endsWith(SUBTREE_SUFFIX);
+        String literal = subtree ? pattern.substring(0, pattern.length() - SUBTREE_SUFFIX.length()) : pattern;
+        if (!pattern.startsWith("/") || literal.contains("*")) {
+            throw new IllegalArgumentException("Unsupported route pattern: " + pattern);
+        }
+
+        Node node = root;
+        for (String segment : literal.split("/")) {
+            if (!segment.isEmpty()) {
+                node = node.childOrCreate(segment);
+            }
+        }
+        // An earlier rule for the same pattern keeps precedence
+        if (subtree) {
+            node.subtreeRule = Math.min(node.subtreeRule, rule);
+        } else {
+            node.exactRule = Math.min(node.exactRule, rule);
+        }
+    }
+
+    private static final class Node {
+        // A handful of children per node, so a linear scan beats hashing a substring
+        private String[] names = new String[0];
+        private Node[] children = new Node[0];
+        private int exactRule = NO_RULE;
+        private int subtreeRule = NO_RULE;
+
+        private Node child(String path, int offset, int length) {
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i];
+                if (name.length() == length && path.regionMatches(offset, name, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(String name) {
+            Node existing = child(name, 0, name.length());
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            names = Arrays.copyOf(names, names.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            names[names.length - 1] = name;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.harsh.ecommerce.Security;
+
+/**
+ * Who may call a route, as declared in {@link SecurityRoutes}.
+ */
+public enum RouteAccess {
+    PUBLIC,
+    AUTHENTICATED,
+    ADMIN
+}
@@ -1,5 +1,6 @@
 package com.harsh.ecommerce.Security;
 
+import com.harsh.ecommerce.ratelimit.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,6 +24,9 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Bean
     public AuthenticationManager authenticationManager(
             AuthenticationConfiguration authenticationConfiguration) throws Exception {
@@ -36,37 +40,26 @@ public class SecurityConfig {
                         .ignoringRequestMatchers("/api/**", "/swagger-ui/**", "/v3/api-docs/**")
                         .disable()
                 )
-                .authorizeHttpRequests(authz -> authz
-                        // API Endpoints
-                        .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/api/test/**").permitAll()
-                        .requestMatchers("/api/webhooks/**").permitAll()
-                        .requestMatchers("/api/products/**").permitAll() // Public product browsing
-                        .requestMatchers("/api/categories/**").permitAll() // Public category browsing
-                        .requestMatchers("/h2-console/**").permitAll()
-
-                        // Swagger/OpenAPI
-                        .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
-
-                        // Static Resources & WebJars
-                        .requestMatchers("/css/**", "/js/**", "/images/**", "/webjars/**").permitAll()
-
-                        // Thymeleaf Frontend Pages
-                        .requestMatchers("/", "/home", "/login", "/register", "/products", "/product/**").permitAll()
-                        .requestMatchers("/cart", "/checkout", "/orders", "/profile").authenticated()
-                        .requestMatchers("/admin/**").hasRole("ADMIN")
-
-                        // API Admin & Authenticated routes
-                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
-                        .anyRequest().authenticated()
-                )
+                .authorizeHttpRequests(authz -> {
+                    // Shared with the JWT filter's RequestClassifier
+                    for (SecurityRoutes.Route route : SecurityRoutes.ROUTES) {
+                        switch (route.access()) {
+                            case PUBLIC -> authz.requestMatchers(route.pattern()).permitAll();
+                            case AUTHENTICATED -> authz.requestMatchers(route.pattern()).authenticated();
+                            case ADMIN -> authz.requestMatchers(route.pattern()).hasRole("ADMIN");
+                        }
+                    }
+                    authz.anyRequest().authenticated(); // SecurityRoutes.DEFAULT_ACCESS
+                })
                 .exceptionHandling(ex -> ex
                         .authenticationEntryPoint(jwtAuthenticationEntryPoint)
                 )
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // After the JWT filter so per-user limits can see the principal
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
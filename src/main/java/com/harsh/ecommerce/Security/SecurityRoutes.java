@@ -0,0 +1,63 @@
+package com.harsh.ecommerce.Security;
+
+import java.util.List;
+
+/**
+ * The URL access rules, declared once. {@link SecurityConfig} registers them with Spring Security in this
+ * order and {@link RequestClassifier} compiles them into a trie for the JWT filter, so the two cannot drift
+ * apart. As with Spring's matchers, the first rule that matches wins.
+ */
+public final class SecurityRoutes {
+
+    /**
+     * Access for requests no rule matches.
+     */
+    public static final RouteAccess DEFAULT_ACCESS = RouteAccess.AUTHENTICATED;
+
+    public static final List<Route> ROUTES = List.of(
+            // API Endpoints
+            new Route("/api/auth/logout-all", RouteAccess.AUTHENTICATED),
+            new Route("/api/auth/**", RouteAccess.PUBLIC),
+            new Route("/api/test/**", RouteAccess.PUBLIC),
+            new Route("/api/webhooks/**", RouteAccess.PUBLIC),
+            new Route("/api/products/**", RouteAccess.PUBLIC), // Public product browsing
+            new Route("/api/categories/**", RouteAccess.PUBLIC), // Public category browsing
+            new Route("/h2-console/**", RouteAccess.PUBLIC),
+
+            // Swagger/OpenAPI
+            new Route("/swagger-ui/**", RouteAccess.PUBLIC),
+            new Route("/v3/api-docs/**", RouteAccess.PUBLIC),
+            new Route("/swagger-ui.html", RouteAccess.PUBLIC),
+
+            // Static Resources & WebJars
+            new Route("/css/**", RouteAccess.PUBLIC),
+            new Route("/js/**", RouteAccess.PUBLIC),
+            new Route("/images/**", RouteAccess.PUBLIC),
+            new Route("/webjars/**", RouteAccess.PUBLIC),
+
+            // Thymeleaf Frontend Pages
+            new Route("/", RouteAccess.PUBLIC),
+            new Route("/home", RouteAccess.PUBLIC),
+            new Route("/login", RouteAccess.PUBLIC),
+            new Route("/register", RouteAccess.PUBLIC),
+            new Route("/products", RouteAccess.PUBLIC),
+            new Route("/product/**", RouteAccess.PUBLIC),
+            new Route("/cart", RouteAccess.AUTHENTICATED),
+            new Route("/checkout", RouteAccess.AUTHENTICATED),
+            new Route("/orders", RouteAccess.AUTHENTICATED),
+            new Route("/profile", RouteAccess.AUTHENTICATED),
+            new Route("/admin/**", RouteAccess.ADMIN),
+
+            // API Admin routes
+            new Route("/api/admin/**", RouteAccess.ADMIN)
+    );
+
+    private SecurityRoutes() {
+    }
+
+    /**
+     * A literal path, optionally ending in {@code /**} to cover everything below it as well.
+     */
+    public record Route(String pattern, RouteAccess access) {
+    }
+}
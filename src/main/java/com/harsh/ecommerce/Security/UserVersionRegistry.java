@@ -0,0 +1,131 @@
+package com.harsh.ecommerce.Security;
+
+import com.harsh.ecommerce.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory table of each user's current token version and active flag, used to reject revoked tokens
+ * without loading the user on every request.
+ * <p>
+ * Users are loaded the first time one of their tokens is seen. Changes made on this node are applied as soon
+ * as their transaction commits; changes made on other nodes are picked up by polling {@code users} for rows
+ * updated since the last poll, so a revoked token stops working everywhere within one refresh interval.
+ */
+@Component
+public class UserVersionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserVersionRegistry.class);
+
+    private static final String LOAD_SQL = "SELECT token_version, is_active FROM users WHERE id = ?";
+
+    private static final String CHANGED_SQL =
+            "SELECT id, token_version, is_active FROM users WHERE updated_at >= ?";
+
+    // Deleted or unknown users stay rejected until they are evicted
+    private static final UserState MISSING = new UserState(-1L, false);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, UserState> states = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+
+    @Value("${app.jwt.user-versions.max-entries:100000}")
+    private int maxEntries;
+
+    // Covers clock skew between the nodes stamping updated_at and this one
+    @Value("${app.jwt.user-versions.refresh-overlap-ms:5000}")
+    private long refreshOverlapMs;
+
+    private volatile LocalDateTime lastRefresh = LocalDateTime.now();
+
+    public UserVersionRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Whether a token carrying this version is still valid for the user.
+     */
+    public boolean isCurrent(long userId, long tokenVersion) {
+        UserState state = states.get(userId);
+        // A newer version than ours means the user changed on another node since our last refresh
+        if (state == null || tokenVersion > state.version) {
+            state = load(userId);
+        }
+        return state.active && state.version == tokenVersion;
+    }
+
+    /**
+     * Applies a change to the user's tokens once the caller's transaction commits.
+     */
+    public void userChanged(User user) {
+        Long userId = user.getId();
+        UserState state = new UserState(user.getTokenVersion() != null ? user.getTokenVersion() : 0L,
+                Boolean.TRUE.equals(user.getIsActive()));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            states.put(userId, state);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                states.put(userId, state);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.user-versions.refresh-interval-ms:15000}")
+    public void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = lastRefresh.minusNanos(refreshOverlapMs * 1_000_000L);
+        try {
+            jdbcTemplate.query(CHANGED_SQL, (RowCallbackHandler) rs -> {
+                long id = rs.getLong("id");
+                UserState state = new UserState(rs.getLong("token_version"), rs.getBoolean("is_active"));
+                // Users nobody has presented a token for are loaded lazily instead
+                states.computeIfPresent(id, (key, previous) -> state);
+            }, Timestamp.valueOf(since));
+            lastRefresh = startedAt;
+        } catch (Exception e) {
+            logger.error("Refreshing user token versions failed: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    private UserState load(long userId) {
+        loads.increment();
+        List<UserState> rows = jdbcTemplate.query(LOAD_SQL,
+                (rs, rowNum) -> new UserState(rs.getLong("token_version"), rs.getBoolean("is_active")), userId);
+        UserState state = rows.isEmpty() ? MISSING : rows.get(0);
+        if (states.size() >= maxEntries) {
+            // Everything evicted is reloaded on its next request; cheaper than tracking recency on every hit
+            logger.info("User version table reached {} entries, clearing", maxEntries);
+            states.clear();
+        }
+        states.put(userId, state);
+        return state;
+    }
+
+    private record UserState(long version, boolean active) {
+    }
+}
@@ -1,24 +1,82 @@
 package com.harsh.ecommerce.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
+/**
+ * One executor per workload; route work with {@code @Async(AsyncConfig.NOTIFICATIONS)} and the like, or inject
+ * the executor by name. {@code taskExecutor} is the default for unqualified {@code @Async}.
+ */
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
+    public static final String PAYMENTS = "paymentsExecutor";
+    public static final String NOTIFICATIONS = "notificationsExecutor";
+    public static final String MEDIA = "mediaExecutor";
+    public static final String REPORTING = "reportingExecutor";
+
+    // Same switch Spring Boot uses to move Tomcat and the scheduler onto virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Only applies to virtual threads; -1 means no limit (database work is already capped by the connection limit)
+    @Value("${app.async.virtual.concurrency-limit:-1}")
+    private int virtualConcurrencyLimit;
+
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
+        if (virtualThreads) {
+            // A virtual thread per task; the blocking I/O these tasks do no longer ties up a pool thread
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("async-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(virtualConcurrencyLimit);
+            return executor;
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(5);
         executor.setMaxPoolSize(10);
         executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("payment-async-");
+        executor.setThreadNamePrefix("async-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    // Retried payment confirmations (RetryWorker); never dropped, so a full queue pushes back on the caller
+    @Bean(name = PAYMENTS)
+    public WorkloadExecutor paymentsExecutor(Environment environment) {
+        return new WorkloadExecutor("payments", environment, 4, 8, 200, WorkloadExecutor.Rejection.CALLER_RUNS);
+    }
+
+    // Outbox deliveries (email); slow SMTP only backs up this queue
+    @Bean(name = NOTIFICATIONS)
+    public WorkloadExecutor notificationsExecutor(Environment environment) {
+        WorkloadExecutor executor = new WorkloadExecutor("notifications", environment, 4, 4, 500, WorkloadExecutor.Rejection.CALLER_RUNS);
+        // The outbox relay waits on every task it submits; a silently dropped task would never complete
+        if (executor.getRejection() == WorkloadExecutor.Rejection.DISCARD) {
+            throw new IllegalStateException("app.executors.notifications.rejection cannot be discard; use abort or caller-runs");
+        }
+        return executor;
+    }
+
+    // Cloudinary uploads and deletes; a full queue fails fast with a 503
+    @Bean(name = MEDIA)
+    public WorkloadExecutor mediaExecutor(Environment environment) {
+        return new WorkloadExecutor("media", environment, 2, 4, 50, WorkloadExecutor.Rejection.ABORT);
+    }
+
+    // Long-running admin jobs; a second request while the pool is busy is turned away
+    @Bean(name = REPORTING)
+    public WorkloadExecutor reportingExecutor(Environment environment) {
+        return new WorkloadExecutor("reporting", environment, 1, 2, 0, WorkloadExecutor.Rejection.ABORT);
+    }
+}
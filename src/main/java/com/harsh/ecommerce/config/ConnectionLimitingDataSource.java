@@ -0,0 +1,100 @@
+package com.harsh.ecommerce.config;
+
+import com.harsh.ecommerce.resilience.Bulkhead;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets at most as many threads hold a connection as the pool has connections.
+ * <p>
+ * With virtual threads there is no request-thread limit in front of the pool any more, so thousands of
+ * requests can end up contending inside Hikari for ten connections. Here they queue fairly on a semaphore
+ * instead, and give up with the same exception Hikari throws once the wait exceeds the timeout. The permit
+ * is returned when the connection is closed.
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final Bulkhead bulkhead;
+
+    public ConnectionLimitingDataSource(DataSource target, int maxConnections, long acquireTimeoutMillis) {
+        super(target);
+        this.bulkhead = new Bulkhead(maxConnections, acquireTimeoutMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return limited(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return limited(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    // Keeps the pool's shutdown working now that this wrapper is the registered bean
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    public int getMaxConnections() {
+        return bulkhead.getMaxConcurrentCalls();
+    }
+
+    public int getAvailablePermits() {
+        return bulkhead.getAvailablePermits();
+    }
+
+    private void acquire() throws SQLTransientConnectionException {
+        if (!bulkhead.tryAcquire()) {
+            throw new SQLTransientConnectionException("Timed out waiting for a database connection permit ("
+                    + bulkhead.getMaxConcurrentCalls() + " in use)");
+        }
+    }
+
+    private Connection limited(ConnectionSource source) throws SQLException {
+        Connection connection;
+        try {
+            connection = source.get();
+        } catch (SQLException | RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            // close() may be called more than once; release only the first time
+                            if (released.compareAndSet(false, true)) {
+                                bulkhead.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+}
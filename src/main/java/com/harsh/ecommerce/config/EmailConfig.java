@@ -3,7 +3,6 @@ package com.harsh.ecommerce.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 import java.util.Properties;
@@ -23,8 +22,17 @@ public class EmailConfig {
     @Value("${spring.mail.password}")
     private String password;
 
+    @Value("${spring.mail.properties.mail.smtp.starttls.enable:true}")
+    private boolean startTls;
+
+    @Value("${app.resilience.smtp.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.resilience.smtp.timeout-ms:10000}")
+    private int timeoutMs;
+
     @Bean
-    public JavaMailSender getJavaMailSender() {
+    public JavaMailSenderImpl getJavaMailSender() {
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
         mailSender.setHost(host);
         mailSender.setPort(port);
@@ -33,9 +41,14 @@ public class EmailConfig {
 
         Properties props = mailSender.getJavaMailProperties();
         props.put("mail.transport.protocol", "smtp");
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
+        // No username (a local test server) means no AUTH
+        props.put("mail.smtp.auth", String.valueOf(username != null && !username.isBlank()));
+        props.put("mail.smtp.starttls.enable", String.valueOf(startTls));
         props.put("mail.debug", "true");
+        // Without these JavaMail waits forever on a hung server and pins the sending thread
+        props.put("mail.smtp.connectiontimeout", String.valueOf(connectTimeoutMs));
+        props.put("mail.smtp.timeout", String.valueOf(timeoutMs));
+        props.put("mail.smtp.writetimeout", String.valueOf(timeoutMs));
 
         return mailSender;
     }
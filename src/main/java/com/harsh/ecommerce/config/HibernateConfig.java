@@ -0,0 +1,17 @@
+package com.harsh.ecommerce.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateConfig {
+
+    // SequenceIdAllocator reads each nextval as the start of its block (pooled-lo). Hibernate's default
+    // "pooled" reads it as the end, so the two would hand out overlapping ids; pin it here, not in properties.
+    @Bean
+    public HibernatePropertiesCustomizer pooledLoSequenceOptimizer() {
+        return properties -> properties.put(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo");
+    }
+}
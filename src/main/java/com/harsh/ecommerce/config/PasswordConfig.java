@@ -1,16 +1,31 @@
 package com.harsh.ecommerce.config;
 
+import com.harsh.ecommerce.Security.OffloadingPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordConfig {
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        // BCrypt with strength 12 for enhanced security
-        return new BCryptPasswordEncoder(12);
+    // Raising this rehashes each user's password on their next login
+    @Value("${app.password.bcrypt-strength:12}")
+    private int bcryptStrength;
+
+    // 0 means one per available core
+    @Value("${app.password.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${app.password.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.password.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    @Bean(destroyMethod = "shutdown")
+    public OffloadingPasswordEncoder passwordEncoder() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        return new OffloadingPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), threads, queueCapacity, waitTimeoutMs);
     }
-}
\ No newline at end of file
+}
@@ -1,19 +0,0 @@
-package com.harsh.ecommerce.config;
-
-import com.stripe.Stripe;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Configuration;
-
-import jakarta.annotation.PostConstruct;
-
-@Configuration
-public class StripeConfig {
-
-    @Value("${stripe.secret.key}")
-    private String secretKey;
-
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = secretKey;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.harsh.ecommerce.config;
+
+import com.harsh.ecommerce.dto.ExecutorStatusDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread pool reserved for one kind of work, so a slow dependency in one workload (SMTP, say) cannot
+ * starve another (payment handling). Each pool is sized, queued and drained independently and counts the
+ * tasks it had to reject.
+ * <p>
+ * Configured under {@code app.executors.<name>.*}: {@code core-size}, {@code max-size},
+ * {@code queue-capacity}, {@code rejection} ({@code abort}, {@code caller-runs} or {@code discard}) and
+ * {@code await-termination-seconds}, the time allowed on shutdown for queued and running tasks to finish.
+ */
+public class WorkloadExecutor extends ThreadPoolTaskExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadExecutor.class);
+
+    public enum Rejection {
+        /** Fail the submit with {@code TaskRejectedException}. */
+        ABORT,
+        /** Run the task on the submitting thread, slowing the producer down. */
+        CALLER_RUNS,
+        /** Drop the task and log it. */
+        DISCARD
+    }
+
+    private final String workload;
+    private final Rejection rejection;
+    private final int queueCapacity;
+    private final boolean virtualThreads;
+    private final LongAdder rejected = new LongAdder();
+
+    public WorkloadExecutor(String workload, Environment environment, int defaultCoreSize, int defaultMaxSize,
+                            int defaultQueueCapacity, Rejection defaultRejection) {
+        this.workload = workload;
+        String prefix = "app.executors." + workload + ".";
+        int coreSize = environment.getProperty(prefix + "core-size", Integer.class, defaultCoreSize);
+        this.queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class, defaultQueueCapacity);
+        this.rejection = Rejection.valueOf(environment.getProperty(prefix + "rejection", defaultRejection.name())
+                .trim().toUpperCase().replace('-', '_'));
+        this.virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+
+        setCorePoolSize(coreSize);
+        setMaxPoolSize(Math.max(coreSize, environment.getProperty(prefix + "max-size", Integer.class, defaultMaxSize)));
+        setQueueCapacity(queueCapacity);
+        setAllowCoreThreadTimeOut(true);
+        setThreadNamePrefix(workload + "-");
+        // Same bounds either way; with virtual threads the pool's threads just stop pinning carrier threads
+        setVirtualThreads(virtualThreads);
+        setRejectedExecutionHandler(new CountingRejectionHandler());
+        setWaitForTasksToCompleteOnShutdown(true);
+        setAwaitTerminationSeconds(environment.getProperty(prefix + "await-termination-seconds", Integer.class, 30));
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public Rejection getRejection() {
+        return rejection;
+    }
+
+    public ExecutorStatusDto getStatus() {
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        return ExecutorStatusDto.builder()
+                .name(workload)
+                .coreSize(getCorePoolSize())
+                .maxSize(getMaxPoolSize())
+                .poolSize(executor.getPoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queued(executor.getQueue().size())
+                .queueCapacity(queueCapacity)
+                .completedTasks(executor.getCompletedTaskCount())
+                .rejectionPolicy(rejection.name())
+                .rejected(rejected.sum())
+                .virtualThreads(virtualThreads)
+                .build();
+    }
+
+    private final class CountingRejectionHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejected.increment();
+            // Once draining, every policy rejects: running on the caller or dropping silently would hide
+            // that the task was submitted too late
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException(workload + " executor is shutting down");
+            }
+            switch (rejection) {
+                case CALLER_RUNS -> task.run();
+                case DISCARD -> logger.warn("{} executor is saturated; discarded a task", workload);
+                case ABORT -> throw new RejectedExecutionException(workload + " executor is saturated ("
+                        + executor.getActiveCount() + " active, " + executor.getQueue().size() + " queued)");
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.harsh.ecommerce.controller;
+
+import com.harsh.ecommerce.dto.AnalyticsGranularity;
+import com.harsh.ecommerce.dto.SalesRollupDto;
+import com.harsh.ecommerce.dto.SalesRollupStatusDto;
+import com.harsh.ecommerce.entity.SalesRollupDimension;
+import com.harsh.ecommerce.service.SalesRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/analytics")
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = "*")
+@Tag(name = "👨‍💼 Admin - Analytics", description = "Sales time series from the rollup tables (admin only)")
+public class AdminAnalyticsController {
+
+    private final SalesRollupService salesRollupService;
+
+    public AdminAnalyticsController(SalesRollupService salesRollupService) {
+        this.salesRollupService = salesRollupService;
+    }
+
+    @GetMapping("/sales/products")
+    @Operation(summary = "Get sales by product", description = "Units, revenue and order count per product and time bucket. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Product sales retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<List<SalesRollupDto>>> getProductSales(
+            @Parameter(description = "Bucket size (HOUR, DAY, WEEK, MONTH)", example = "DAY")
+            @RequestParam(defaultValue = "DAY") AnalyticsGranularity granularity,
+            @Parameter(description = "Start date (ISO 8601 format)", example = "2023-01-01T00:00:00")
+            @RequestParam(required = false) String startDate,
+            @Parameter(description = "End date, exclusive (ISO 8601 format)", example = "2023-02-01T00:00:00")
+            @RequestParam(required = false) String endDate,
+            @Parameter(description = "Restrict to one product", example = "1")
+            @RequestParam(required = false) Long productId) {
+        return getSales(SalesRollupDimension.PRODUCT, granularity, startDate, endDate, productId, "Product");
+    }
+
+    @GetMapping("/sales/categories")
+    @Operation(summary = "Get sales by category", description = "Units, revenue and order count per category and time bucket. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Category sales retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<List<SalesRollupDto>>> getCategorySales(
+            @Parameter(description = "Bucket size (HOUR, DAY, WEEK, MONTH)", example = "DAY")
+            @RequestParam(defaultValue = "DAY") AnalyticsGranularity granularity,
+            @Parameter(description = "Start date (ISO 8601 format)", example = "2023-01-01T00:00:00")
+            @RequestParam(required = false) String startDate,
+            @Parameter(description = "End date, exclusive (ISO 8601 format)", example = "2023-02-01T00:00:00")
+            @RequestParam(required = false) String endDate,
+            @Parameter(description = "Restrict to one category", example = "1")
+            @RequestParam(required = false) Long categoryId) {
+        return getSales(SalesRollupDimension.CATEGORY, granularity, startDate, endDate, categoryId, "Category");
+    }
+
+    @GetMapping("/sales/status")
+    @Operation(summary = "Get rollup status", description = "Watermark and last run of the sales rollup job. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Rollup status retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<SalesRollupStatusDto>> getStatus() {
+        try {
+            SalesRollupStatusDto status = salesRollupService.getStatus();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Rollup status retrieved successfully", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve rollup status: " + e.getMessage(), null));
+        }
+    }
+
+    @PostMapping("/sales/refresh")
+    @Operation(summary = "Refresh sales rollups", description = "Applies order changes since the last run now instead of waiting for the schedule. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Rollups refreshed")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Long>> refresh() {
+        try {
+            long orders = salesRollupService.refresh();
+            if (orders < 0) {
+                return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "A refresh is already running", null));
+            }
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Rollups refreshed", orders));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to refresh rollups: " + e.getMessage(), null));
+        }
+    }
+
+    @PostMapping("/sales/rebuild")
+    @Operation(summary = "Rebuild sales rollups", description = "Discards the rollups and recomputes them from all orders. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Rollups rebuilt")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<String>> rebuild() {
+        try {
+            salesRollupService.rebuild();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Rollups rebuilt", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to rebuild rollups: " + e.getMessage(), null));
+        }
+    }
+
+    private ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<List<SalesRollupDto>>> getSales(
+            SalesRollupDimension dimension, AnalyticsGranularity granularity, String startDate, String endDate,
+            Long id, String label) {
+        try {
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : LocalDateTime.now().minusDays(30);
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : LocalDateTime.now();
+
+            List<SalesRollupDto> sales = salesRollupService.getSales(dimension, granularity, start, end, id);
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, label + " sales retrieved successfully", sales));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve " + label.toLowerCase() + " sales: " + e.getMessage(), null));
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.harsh.ecommerce.controller;
 
+import com.harsh.ecommerce.dto.AnalyticsGranularity;
+import com.harsh.ecommerce.dto.CursorPageDto;
 import com.harsh.ecommerce.dto.PaymentAnalyticsDto;
+import com.harsh.ecommerce.dto.PaymentAuditLogDto;
 import com.harsh.ecommerce.dto.PaymentDto;
+import com.harsh.ecommerce.dto.ReconciliationStatusDto;
 import com.harsh.ecommerce.dto.UpdatePaymentTransactionStatusDto;
-import com.harsh.ecommerce.entity.PaymentAuditLog;
 import com.harsh.ecommerce.entity.PaymentTransactionStatus;
+import com.harsh.ecommerce.service.PaymentReconciliationJob;
 import com.harsh.ecommerce.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -30,24 +34,28 @@ import java.time.LocalDateTime;
 public class AdminPaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentReconciliationJob reconciliationJob;
 
-    public AdminPaymentController(PaymentService paymentService) {
+    public AdminPaymentController(PaymentService paymentService, PaymentReconciliationJob reconciliationJob) {
         this.paymentService = paymentService;
+        this.reconciliationJob = reconciliationJob;
     }
 
     @GetMapping("/analytics")
-    @Operation(summary = "Get payment analytics", description = "Retrieves payment statistics within a given date range. Admin only.")
+    @Operation(summary = "Get payment analytics", description = "Retrieves payment statistics within a given date range, optionally bucketed by hour, day, week or month. Admin only.")
     @ApiResponse(responseCode = "200", description = "Analytics retrieved successfully")
     public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentAnalyticsDto>> getPaymentAnalytics(
             @Parameter(description = "Start date for analytics (ISO 8601 format)", example = "2023-01-01T00:00:00")
             @RequestParam(required = false) String startDate,
             @Parameter(description = "End date for analytics (ISO 8601 format)", example = "2023-01-31T23:59:59")
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @Parameter(description = "Time series bucket size (HOUR, DAY, WEEK, MONTH); omit for totals only", example = "DAY")
+            @RequestParam(required = false) AnalyticsGranularity granularity) {
         try {
             LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : LocalDateTime.now().minusDays(30);
             LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : LocalDateTime.now();
 
-            PaymentAnalyticsDto analytics = paymentService.getPaymentAnalytics(start, end);
+            PaymentAnalyticsDto analytics = paymentService.getPaymentAnalytics(start, end, granularity);
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Payment analytics retrieved successfully", analytics));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve payment analytics: " + e.getMessage(), null));
@@ -101,19 +109,55 @@ public class AdminPaymentController {
     }
 
     @GetMapping("/audit-log")
-    @Operation(summary = "Get payment audit log", description = "Retrieves a paginated list of all payment audit logs. Admin only.")
+    @Operation(summary = "Get payment audit log", description = "Retrieves payment audit entries newest first, with optional filters. Pass nextCursor from a response as cursor to get the next page. Admin only.")
     @ApiResponse(responseCode = "200", description = "Audit log retrieved successfully")
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Page<PaymentAuditLog>>> getPaymentAuditLog(
-            @Parameter(description = "Page number (0-based)", example = "0")
-            @RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<CursorPageDto<PaymentAuditLogDto>>> getPaymentAuditLog(
+            @Parameter(description = "Only entries for this payment", example = "1")
+            @RequestParam(required = false) Long paymentId,
+            @Parameter(description = "Only entries with this action", example = "REFUND_INITIATED")
+            @RequestParam(required = false) String action,
+            @Parameter(description = "Start date (ISO 8601 format)", example = "2023-01-01T00:00:00")
+            @RequestParam(required = false) String startDate,
+            @Parameter(description = "End date, exclusive (ISO 8601 format)", example = "2023-02-01T00:00:00")
+            @RequestParam(required = false) String endDate,
+            @Parameter(description = "Cursor from the previous page", example = "1050")
+            @RequestParam(required = false) Long cursor,
             @Parameter(description = "Number of items per page", example = "10")
             @RequestParam(defaultValue = "10") int size) {
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<PaymentAuditLog> auditLogs = paymentService.getPaymentAuditLog(pageable);
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
+            int pageSize = Math.max(1, Math.min(size, 500));
+
+            CursorPageDto<PaymentAuditLogDto> auditLogs = paymentService.getPaymentAuditLog(paymentId, action, start, end, cursor, pageSize);
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Audit log retrieved successfully", auditLogs));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve audit log: " + e.getMessage(), null));
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/reconciliation/run")
+    @Operation(summary = "Run payment reconciliation", description = "Starts a reconciliation run against the payment provider in the background. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Reconciliation started")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Void>> runReconciliation() {
+        try {
+            if (!reconciliationJob.triggerAsync()) {
+                return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Reconciliation is already running", null));
+            }
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Reconciliation started", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to start reconciliation: " + e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/reconciliation/status")
+    @Operation(summary = "Get payment reconciliation status", description = "Returns progress and counters of the current or last reconciliation run. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Reconciliation status retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<ReconciliationStatusDto>> getReconciliationStatus() {
+        try {
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Reconciliation status retrieved successfully", reconciliationJob.getStatus()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve reconciliation status: " + e.getMessage(), null));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.harsh.ecommerce.controller;
+
+import com.harsh.ecommerce.dto.RetryQueueStatusDto;
+import com.harsh.ecommerce.dto.ScheduledRetryDto;
+import com.harsh.ecommerce.entity.RetryTaskStatus;
+import com.harsh.ecommerce.service.RetryScheduler;
+import com.harsh.ecommerce.service.RetryWorker;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/retries")
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = "*")
+@Tag(name = "👨‍💼 Admin - Retries", description = "Retry scheduler and dead-letter administration (admin only)")
+public class AdminRetryController {
+
+    private final RetryScheduler retryScheduler;
+    private final RetryWorker retryWorker;
+
+    public AdminRetryController(RetryScheduler retryScheduler, RetryWorker retryWorker) {
+        this.retryScheduler = retryScheduler;
+        this.retryWorker = retryWorker;
+    }
+
+    @GetMapping("/status")
+    @Operation(summary = "Get retry queue status", description = "Task counts by status and what this node holds in memory. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Retry queue status retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<RetryQueueStatusDto>> getStatus() {
+        try {
+            RetryQueueStatusDto status = retryScheduler.getStatus(retryWorker.getInFlight());
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Retry queue status retrieved successfully", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve retry queue status: " + e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("")
+    @Operation(summary = "Get retry tasks by status", description = "Retrieves a paginated list of retry tasks with the given status, newest first. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Retry tasks retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Page<ScheduledRetryDto>>> getTasks(
+            @Parameter(description = "Task status", example = "DEAD")
+            @RequestParam(defaultValue = "DEAD") RetryTaskStatus status,
+            @Parameter(description = "Page number (0-based)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of items per page", example = "20")
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Page<ScheduledRetryDto> tasks = retryScheduler.getTasksByStatus(status, PageRequest.of(page, size));
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Retry tasks retrieved successfully", tasks));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve retry tasks: " + e.getMessage(), null));
+        }
+    }
+
+    @PostMapping("/{id}/requeue")
+    @Operation(summary = "Requeue a retry task", description = "Resets the task's attempts and runs it again now. Admin only.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Task requeued"),
+            @ApiResponse(responseCode = "404", description = "Task not found or currently running")
+    })
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Long>> requeueTask(
+            @Parameter(description = "Retry task ID", example = "1")
+            @PathVariable Long id) {
+        try {
+            if (!retryScheduler.requeue(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Task requeued", id));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to requeue task: " + e.getMessage(), null));
+        }
+    }
+
+    @PostMapping("/requeue-dead")
+    @Operation(summary = "Requeue dead retry tasks", description = "Resets every dead-lettered task so it runs again. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Dead tasks requeued")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Integer>> requeueDeadTasks() {
+        try {
+            int requeued = retryScheduler.requeueDead();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Dead tasks requeued", requeued));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to requeue dead tasks: " + e.getMessage(), null));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.harsh.ecommerce.controller;
+
+import com.harsh.ecommerce.Security.OffloadingPasswordEncoder;
+import com.harsh.ecommerce.config.WorkloadExecutor;
+import com.harsh.ecommerce.dto.ExecutorStatusDto;
+import com.harsh.ecommerce.dto.MailDispatchStatusDto;
+import com.harsh.ecommerce.dto.PasswordHashingStatusDto;
+import com.harsh.ecommerce.dto.ResilienceStatusDto;
+import com.harsh.ecommerce.resilience.ResilienceRegistry;
+import com.harsh.ecommerce.service.MailDispatcher;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/system")
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = "*")
+@Tag(name = "👨‍💼 Admin - System", description = "Runtime health of external dependencies (admin only)")
+public class AdminSystemController {
+
+    private final ResilienceRegistry resilienceRegistry;
+    private final OffloadingPasswordEncoder passwordEncoder;
+    private final List<WorkloadExecutor> workloadExecutors;
+    private final MailDispatcher mailDispatcher;
+
+    public AdminSystemController(ResilienceRegistry resilienceRegistry,
+                                 OffloadingPasswordEncoder passwordEncoder,
+                                 List<WorkloadExecutor> workloadExecutors,
+                                 MailDispatcher mailDispatcher) {
+        this.resilienceRegistry = resilienceRegistry;
+        this.passwordEncoder = passwordEncoder;
+        this.workloadExecutors = workloadExecutors;
+        this.mailDispatcher = mailDispatcher;
+    }
+
+    @GetMapping("/resilience")
+    @Operation(summary = "Get circuit breaker and bulkhead state", description = "Circuit state, failure and slow-call rates, bulkhead usage and call counters per external dependency. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Resilience state retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<List<ResilienceStatusDto>>> getResilienceStatus() {
+        try {
+            List<ResilienceStatusDto> status = resilienceRegistry.getStatus();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Resilience state retrieved successfully", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve resilience state: " + e.getMessage(), null));
+        }
+    }
+
+    @PostMapping("/resilience/{name}/reset")
+    @Operation(summary = "Close a circuit breaker", description = "Forces the named dependency's circuit closed and clears its window. Admin only.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Circuit breaker reset"),
+            @ApiResponse(responseCode = "404", description = "Unknown dependency")
+    })
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<String>> resetCircuit(
+            @Parameter(description = "Dependency name", example = "stripe")
+            @PathVariable String name) {
+        try {
+            if (!resilienceRegistry.reset(name)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Circuit breaker reset", name));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to reset circuit breaker: " + e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/password-hashing")
+    @Operation(summary = "Get password hashing pool state", description = "Hashing pool usage, hash and verify latency, and requests turned away with 503. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Password hashing state retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PasswordHashingStatusDto>> getPasswordHashingStatus() {
+        try {
+            PasswordHashingStatusDto status = passwordEncoder.getStatus();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Password hashing state retrieved successfully", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve password hashing state: " + e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/executors")
+    @Operation(summary = "Get workload executor state", description = "Pool size, active threads, queue depth, completed and rejected tasks per workload executor. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Executor state retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<List<ExecutorStatusDto>>> getExecutorStatus() {
+        try {
+            List<ExecutorStatusDto> status = workloadExecutors.stream().map(WorkloadExecutor::getStatus).toList();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Executor state retrieved successfully", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve executor state: " + e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/mail")
+    @Operation(summary = "Get mail dispatcher state", description = "Queue depth, sent, failed, retried and throttled messages, and SMTP connections opened. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Mail dispatcher state retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<MailDispatchStatusDto>> getMailDispatchStatus() {
+        try {
+            MailDispatchStatusDto status = mailDispatcher.getStatus();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Mail dispatcher state retrieved successfully", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve mail dispatcher state: " + e.getMessage(), null));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.harsh.ecommerce.controller;
+
+import com.harsh.ecommerce.dto.WebhookBacklogDto;
+import com.harsh.ecommerce.dto.WebhookEventDto;
+import com.harsh.ecommerce.entity.WebhookEventStatus;
+import com.harsh.ecommerce.service.WebhookInboxService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/webhooks")
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = "*")
+@Tag(name = "👨‍💼 Admin - Webhooks", description = "Webhook inbox administration (admin only)")
+public class AdminWebhookController {
+
+    private final WebhookInboxService webhookInboxService;
+
+    public AdminWebhookController(WebhookInboxService webhookInboxService) {
+        this.webhookInboxService = webhookInboxService;
+    }
+
+    @GetMapping("/backlog")
+    @Operation(summary = "Get webhook backlog", description = "Event counts by status, backlog depth and age of the oldest unprocessed event. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Backlog retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<WebhookBacklogDto>> getBacklog() {
+        try {
+            WebhookBacklogDto backlog = webhookInboxService.getBacklog();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Webhook backlog retrieved successfully", backlog));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve webhook backlog: " + e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("")
+    @Operation(summary = "Get webhook events by status", description = "Retrieves a paginated list of webhook events with the given status, newest first. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Webhook events retrieved successfully")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Page<WebhookEventDto>>> getEvents(
+            @Parameter(description = "Event status", example = "DEAD")
+            @RequestParam(defaultValue = "DEAD") WebhookEventStatus status,
+            @Parameter(description = "Page number (0-based)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of items per page", example = "20")
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Page<WebhookEventDto> events = webhookInboxService.getEventsByStatus(status, PageRequest.of(page, size));
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Webhook events retrieved successfully", events));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve webhook events: " + e.getMessage(), null));
+        }
+    }
+
+    @PostMapping("/{eventId}/replay")
+    @Operation(summary = "Replay a webhook event", description = "Queues a stored Stripe event to be applied again. Admin only.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event queued for replay"),
+            @ApiResponse(responseCode = "400", description = "Event is being processed right now"),
+            @ApiResponse(responseCode = "404", description = "Event not found")
+    })
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<String>> replayEvent(
+            @Parameter(description = "Stripe event ID", example = "evt_1Gk4bS...")
+            @PathVariable String eventId) {
+        try {
+            if (!webhookInboxService.replay(eventId)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Event queued for replay", eventId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to replay event: " + e.getMessage(), null));
+        }
+    }
+
+    @PostMapping("/replay-dead")
+    @Operation(summary = "Replay dead webhook events", description = "Queues every dead-lettered event to be applied again. Admin only.")
+    @ApiResponse(responseCode = "200", description = "Dead events queued for replay")
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<Integer>> replayDeadEvents() {
+        try {
+            int requeued = webhookInboxService.replayDead();
+            return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Dead events queued for replay", requeued));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to replay dead events: " + e.getMessage(), null));
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.harsh.ecommerce.controller;
 
+import com.harsh.ecommerce.Security.AuthenticatedUser;
 import com.harsh.ecommerce.dto.LoginRequest;
 import com.harsh.ecommerce.dto.LoginResponseDto;
 import com.harsh.ecommerce.dto.PasswordChangeDto;
+import com.harsh.ecommerce.dto.RefreshTokenRequest;
 import com.harsh.ecommerce.dto.UserRegistrationDto;
 import com.harsh.ecommerce.dto.UserResponseDto;
 import com.harsh.ecommerce.entity.Role;
+import com.harsh.ecommerce.entity.User;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
 import com.harsh.ecommerce.service.UserService;
 import com.harsh.ecommerce.Security.JwtUtil;
+import com.harsh.ecommerce.Security.RefreshTokenService;
+import com.harsh.ecommerce.exception.InvalidRefreshTokenException;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,8 +22,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -39,6 +43,9 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody UserRegistrationDto registrationDto) {
         try {
@@ -50,6 +57,8 @@ public class AuthController {
             response.put("success", true);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("message", e.getMessage());
@@ -65,25 +74,36 @@ public class AuthController {
                     new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword())
             );
 
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-
-            // Get user details to extract userId
-            UserResponseDto user = userService.getUserByEmail(loginRequest.getEmail());
+            // The user entity loaded during authentication; no second lookup by email
+            User authenticatedUser = (User) authentication.getPrincipal();
+            UserResponseDto user = new UserResponseDto(authenticatedUser);
 
             // Generate token with userId - THIS IS THE FIX
-            String jwt = jwtUtil.generateToken(userDetails, user.getId());
+            String jwt = jwtUtil.generateToken(authenticatedUser, authenticatedUser.getId());
+
+            // Later renewals go through /refresh and never touch the password hash again
+            RefreshTokenService.IssuedTokens refresh = refreshTokenService.issue(
+                    authenticatedUser.getId(),
+                    authenticatedUser.getEmail(),
+                    authenticatedUser.getAuthorities().iterator().next().getAuthority(),
+                    authenticatedUser.getTokenVersion() != null ? authenticatedUser.getTokenVersion() : 0L);
 
             // Update last login
-            userService.updateLastLogin(loginRequest.getEmail());
+            userService.updateLastLogin(authenticatedUser.getId());
 
             LoginResponseDto response = new LoginResponseDto();
             response.setToken(jwt);
             response.setUser(user);
             response.setMessage("Login successful");
             response.setSuccess(true);
-            response.setExpiresIn(86400); // 24 hours in seconds
+            response.setExpiresIn(jwtUtil.getJwtExpirationMs() / 1000);
+            response.setRefreshToken(refresh.refreshToken());
+            response.setRefreshExpiresIn(refresh.refreshExpiresIn());
 
             return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            // Password hashing is saturated: 503 with Retry-After, not a bad-credentials answer
+            throw e;
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("message", "Invalid email or password");
@@ -92,6 +112,72 @@ public class AuthController {
         }
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        try {
+            RefreshTokenService.IssuedTokens tokens = refreshTokenService.refresh(refreshRequest.getRefreshToken());
+
+            LoginResponseDto response = new LoginResponseDto();
+            response.setToken(tokens.accessToken());
+            response.setMessage("Token refreshed successfully");
+            response.setSuccess(true);
+            response.setExpiresIn(jwtUtil.getJwtExpirationMs() / 1000);
+            response.setRefreshToken(tokens.refreshToken());
+            response.setRefreshExpiresIn(tokens.refreshExpiresIn());
+
+            return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException | InvalidRefreshTokenException e) {
+            // 503 when the session store is down, 401 when the token is no good
+            throw e;
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("success", false);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        try {
+            refreshTokenService.revoke(refreshRequest.getRefreshToken());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Logged out successfully");
+            response.put("success", true);
+
+            return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("success", false);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll() {
+        try {
+            int sessions = refreshTokenService.revokeAll(AuthenticatedUser.currentUserId());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Logged out of all sessions");
+            response.put("sessionsRevoked", sessions);
+            response.put("success", true);
+
+            return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("success", false);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     @PostMapping("/create-admin")
     public ResponseEntity<?> createAdmin(@Valid @RequestBody UserRegistrationDto registrationDto) {
         try {
@@ -104,6 +190,8 @@ public class AuthController {
             response.put("success", true);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("message", e.getMessage());
@@ -115,17 +203,15 @@ public class AuthController {
     @PostMapping("/change-password")
     public ResponseEntity<?> changePassword(@Valid @RequestBody PasswordChangeDto passwordChangeDto) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String email = authentication.getName();
-            UserResponseDto user = userService.getUserByEmail(email);
-
-            userService.changePassword(user.getId(), passwordChangeDto);
+            userService.changePassword(AuthenticatedUser.currentUserId(), passwordChangeDto);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Password changed successfully");
             response.put("success", true);
 
             return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("message", e.getMessage());
@@ -137,9 +223,7 @@ public class AuthController {
     @GetMapping("/profile")
     public ResponseEntity<?> getUserProfile() {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String email = authentication.getName();
-            UserResponseDto user = userService.getUserByEmail(email);
+            UserResponseDto user = userService.getUserById(AuthenticatedUser.currentUserId());
 
             Map<String, Object> response = new HashMap<>();
             response.put("user", user);
@@ -157,11 +241,7 @@ public class AuthController {
     @PutMapping("/profile")
     public ResponseEntity<?> updateProfile(@Valid @RequestBody UserRegistrationDto updateDto) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String email = authentication.getName();
-            UserResponseDto currentUser = userService.getUserByEmail(email);
-
-            UserResponseDto updatedUser = userService.updateUser(currentUser.getId(), updateDto);
+            UserResponseDto updatedUser = userService.updateUser(AuthenticatedUser.currentUserId(), updateDto);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Profile updated successfully");
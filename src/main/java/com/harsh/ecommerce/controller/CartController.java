@@ -1,18 +1,16 @@
 package com.harsh.ecommerce.controller;
 
+import com.harsh.ecommerce.Security.AuthenticatedUser;
 import com.harsh.ecommerce.dto.AddToCartDto;
 import com.harsh.ecommerce.dto.ApiResponse;
 import com.harsh.ecommerce.dto.CartDto;
 import com.harsh.ecommerce.dto.UpdateCartItemDto;
 import com.harsh.ecommerce.service.CartService;
-import com.harsh.ecommerce.service.UserService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -24,7 +22,6 @@ import org.springframework.web.bind.annotation.*;
 public class CartController {
 
     private final CartService cartService;
-    private final UserService userService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<CartDto>> getCart() {
@@ -115,14 +112,8 @@ public class CartController {
         );
     }
 
-    // FIXED METHOD - This was the problem!
     private Long getCurrentUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        // Get email from JWT token
-        String email = authentication.getName();
-
-        // Use UserService to get the actual User entity and extract ID
-        return userService.getUserByEmail(email).getId();
+        // Straight from the token's claims, no user lookup
+        return AuthenticatedUser.currentUserId();
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.harsh.ecommerce.controller;
 
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
 import com.harsh.ecommerce.service.CloudinaryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -53,6 +54,8 @@ public class FileUploadController {
             response.put("imageUrl", imageUrl);
 
             return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(createErrorResponse("Failed to upload image: " + e.getMessage()));
         }
@@ -85,6 +88,8 @@ public class FileUploadController {
             response.put("imageUrl", imageUrl);
 
             return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(createErrorResponse("Failed to upload image: " + e.getMessage()));
         }
@@ -111,6 +116,8 @@ public class FileUploadController {
             response.put("message", "Image deleted successfully");
 
             return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(createErrorResponse("Failed to delete image: " + e.getMessage()));
         }
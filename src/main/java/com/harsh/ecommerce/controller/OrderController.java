@@ -1,7 +1,10 @@
 package com.harsh.ecommerce.controller;
 
 import com.harsh.ecommerce.dto.*;
+import com.harsh.ecommerce.exception.IdempotencyConflictException;
+import com.harsh.ecommerce.service.IdempotencyService;
 import com.harsh.ecommerce.service.OrderService;
+import com.harsh.ecommerce.service.OrderWritePipeline;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -23,6 +26,8 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -33,6 +38,8 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderWritePipeline orderWritePipeline;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     @Operation(summary = "Create a new order from the cart", description = "Creates a new order for the authenticated user from their current cart.")
@@ -40,12 +47,18 @@ public class OrderController {
             @ApiResponse(responseCode = "200", description = "Order created successfully",
                     content = @Content(schema = @Schema(implementation = OrderDto.class))),
             @ApiResponse(responseCode = "400", description = "Invalid request or empty cart",
+                    content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Idempotency-Key reused with a different request or still in progress",
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<OrderDto>> createOrder(@Valid @RequestBody CreateOrderDto createOrderDto) {
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<OrderDto>> createOrder(
+            @Valid @RequestBody CreateOrderDto createOrderDto,
+            @Parameter(description = "Client-generated key that makes retries of this request safe")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String userEmail = getCurrentUserEmail();
-            OrderDto order = orderService.createOrderFromCart(userEmail, createOrderDto);
+            OrderDto order = idempotencyService.execute("orders:create:" + userEmail, idempotencyKey, createOrderDto,
+                    OrderDto.class, () -> awaitOrder(orderWritePipeline.submit(userEmail, createOrderDto)));
             return ResponseEntity.ok(
                     com.harsh.ecommerce.dto.ApiResponse.<OrderDto>builder()
                             .success(true)
@@ -53,6 +66,8 @@ public class OrderController {
                             .data(order)
                             .build()
             );
+        } catch (IdempotencyConflictException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(
                     com.harsh.ecommerce.dto.ApiResponse.<OrderDto>builder()
@@ -94,6 +109,37 @@ public class OrderController {
         }
     }
 
+    @GetMapping("/number/{orderNumber}")
+    @Operation(summary = "Get a specific order by order number", description = "Retrieves a single order for the authenticated user by its order number.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = OrderDto.class))),
+            @ApiResponse(responseCode = "404", description = "Order not found or not accessible by user",
+                    content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
+    })
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<OrderDto>> getOrderByNumber(
+            @Parameter(description = "Order number of the order to retrieve", example = "ORD-01HV4Z8K2M3QR", required = true)
+            @PathVariable String orderNumber) {
+        try {
+            String userEmail = getCurrentUserEmail();
+            OrderDto order = orderService.getOrderByNumber(orderNumber, userEmail);
+            return ResponseEntity.ok(
+                    com.harsh.ecommerce.dto.ApiResponse.<OrderDto>builder()
+                            .success(true)
+                            .message("Order retrieved successfully")
+                            .data(order)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(
+                    com.harsh.ecommerce.dto.ApiResponse.<OrderDto>builder()
+                            .success(false)
+                            .message(e.getMessage())
+                            .build()
+            );
+        }
+    }
+
     @GetMapping
     @Operation(summary = "Get user's order history", description = "Retrieves a paginated list of all orders for the authenticated user.")
     @ApiResponses(value = {
@@ -167,6 +213,17 @@ public class OrderController {
         }
     }
 
+    private OrderDto awaitOrder(CompletableFuture<OrderDto> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     private String getCurrentUserEmail() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication.getName();
@@ -1,7 +1,10 @@
 package com.harsh.ecommerce.controller;
 
-import com.harsh.ecommerce.Security.JwtUtil;
+import com.harsh.ecommerce.Security.AuthenticatedUser;
 import com.harsh.ecommerce.dto.*;
+import com.harsh.ecommerce.exception.IdempotencyConflictException;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import com.harsh.ecommerce.service.IdempotencyService;
 import com.harsh.ecommerce.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,7 +13,6 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,11 +27,11 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
-    private final JwtUtil jwtUtil;
+    private final IdempotencyService idempotencyService;
 
-    public PaymentController(PaymentService paymentService, JwtUtil jwtUtil) {
+    public PaymentController(PaymentService paymentService, IdempotencyService idempotencyService) {
         this.paymentService = paymentService;
-        this.jwtUtil = jwtUtil;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/create-payment-intent")
@@ -38,15 +40,22 @@ public class PaymentController {
             @ApiResponse(responseCode = "200", description = "Payment intent created successfully",
                     content = @Content(schema = @Schema(implementation = PaymentIntentResponse.class))),
             @ApiResponse(responseCode = "400", description = "Failed to create payment intent",
+                    content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Idempotency-Key reused with a different request or still in progress",
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentIntentResponse>> createPaymentIntent(@Valid @RequestBody PaymentIntentRequest request, HttpServletRequest httpRequest) {
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentIntentResponse>> createPaymentIntent(
+            @Valid @RequestBody PaymentIntentRequest request,
+            @Parameter(description = "Client-generated key that makes retries of this request safe")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            String token = extractTokenFromRequest(httpRequest);
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = AuthenticatedUser.currentUserId();
 
-            PaymentIntentResponse response = paymentService.createPaymentIntent(request, userId);
+            PaymentIntentResponse response = idempotencyService.execute("payments:create-intent:" + userId, idempotencyKey,
+                    request, PaymentIntentResponse.class, () -> paymentService.createPaymentIntent(request, userId));
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Payment intent created successfully", response));
+        } catch (IdempotencyConflictException | CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to create payment intent: " + e.getMessage(), null));
         }
@@ -60,13 +69,14 @@ public class PaymentController {
             @ApiResponse(responseCode = "400", description = "Failed to confirm payment",
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentDto>> confirmPayment(@Valid @RequestBody PaymentConfirmRequest request, HttpServletRequest httpRequest) {
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentDto>> confirmPayment(@Valid @RequestBody PaymentConfirmRequest request) {
         try {
-            String token = extractTokenFromRequest(httpRequest);
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = AuthenticatedUser.currentUserId();
 
             PaymentDto payment = paymentService.confirmPayment(request);
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Payment confirmed successfully", payment));
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to confirm payment: " + e.getMessage(), null));
         }
@@ -80,10 +90,9 @@ public class PaymentController {
             @ApiResponse(responseCode = "400", description = "Failed to retrieve payment history",
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<List<PaymentDto>>> getPaymentHistory(HttpServletRequest request) {
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<List<PaymentDto>>> getPaymentHistory() {
         try {
-            String token = extractTokenFromRequest(request);
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = AuthenticatedUser.currentUserId();
 
             List<PaymentDto> payments = paymentService.getUserPaymentHistory(userId);
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Payment history retrieved successfully", payments));
@@ -101,10 +110,9 @@ public class PaymentController {
             @ApiResponse(responseCode = "404", description = "Payment not found",
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentDto>> getPaymentByOrder(@PathVariable Long orderId, HttpServletRequest request) {
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentDto>> getPaymentByOrder(@PathVariable Long orderId) {
         try {
-            String token = extractTokenFromRequest(request);
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = AuthenticatedUser.currentUserId();
 
             return paymentService.getPaymentByOrderId(orderId)
                     .map(payment -> ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Payment retrieved successfully", payment)))
@@ -127,6 +135,8 @@ public class PaymentController {
         try {
             RefundResponse refundResponse = paymentService.processRefund(request);
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Refund processed successfully", refundResponse));
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to process refund: " + e.getMessage(), null));
         }
@@ -159,10 +169,9 @@ public class PaymentController {
             @ApiResponse(responseCode = "400", description = "Failed to retry payment",
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<String>> retryFailedPayment(@PathVariable String paymentIntentId, HttpServletRequest request) {
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<String>> retryFailedPayment(@PathVariable String paymentIntentId) {
         try {
-            String token = extractTokenFromRequest(request);
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = AuthenticatedUser.currentUserId();
 
             paymentService.retryFailedPayment(paymentIntentId);
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Payment retry initiated successfully", "Payment retry initiated"));
@@ -199,10 +208,9 @@ public class PaymentController {
             @ApiResponse(responseCode = "404", description = "Payment not found",
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
-    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentDto>> getPaymentDetails(@PathVariable String paymentIntentId, HttpServletRequest request) {
+    public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<PaymentDto>> getPaymentDetails(@PathVariable String paymentIntentId) {
         try {
-            String token = extractTokenFromRequest(request);
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = AuthenticatedUser.currentUserId();
 
             PaymentDto payment = paymentService.getPaymentByStripePaymentIntentId(paymentIntentId);
             return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Payment details retrieved successfully", payment));
@@ -210,12 +218,4 @@ public class PaymentController {
             return ResponseEntity.badRequest().body(new com.harsh.ecommerce.dto.ApiResponse<>(false, "Failed to retrieve payment details: " + e.getMessage(), null));
         }
     }
-
-    private String extractTokenFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
@@ -1,11 +1,10 @@
 package com.harsh.ecommerce.controller;
 
+import com.harsh.ecommerce.Security.AuthenticatedUser;
 import com.harsh.ecommerce.dto.CreateReviewDto;
 import com.harsh.ecommerce.dto.ProductReviewDto;
 import com.harsh.ecommerce.dto.ReviewStatsDto;
-import com.harsh.ecommerce.entity.User;
 import com.harsh.ecommerce.service.ProductReviewService;
-import com.harsh.ecommerce.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,8 +15,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -31,9 +28,6 @@ public class ProductReviewController {
     @Autowired
     private ProductReviewService productReviewService;
 
-    @Autowired
-    private UserService userService;
-
     @GetMapping("/{productId}/reviews")
     @Operation(summary = "Get reviews for a product", description = "Retrieves all approved reviews for a specific product.")
     @ApiResponses(value = {
@@ -75,10 +69,7 @@ public class ProductReviewController {
             @Parameter(description = "Product ID", example = "1", required = true)
             @PathVariable Long productId,
             @RequestBody CreateReviewDto createReviewDto) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName(); // Get email from authentication
-        User user = userService.findByEmail(userEmail); // Get user by email
-        Long userId = user.getId(); // Extract userId
+        Long userId = AuthenticatedUser.currentUserId();
 
         ProductReviewDto review = productReviewService.createReview(productId, userId, createReviewDto);
         return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Review created successfully", review));
@@ -100,10 +91,7 @@ public class ProductReviewController {
             @Parameter(description = "Review ID", example = "1", required = true)
             @PathVariable Long reviewId,
             @RequestBody CreateReviewDto updateReviewDto) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName(); // Get email from authentication
-        User user = userService.findByEmail(userEmail); // Get user by email
-        Long userId = user.getId(); // Extract userId
+        Long userId = AuthenticatedUser.currentUserId();
 
         ProductReviewDto review = productReviewService.updateReview(reviewId, userId, updateReviewDto);
         return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Review updated successfully", review));
@@ -122,10 +110,7 @@ public class ProductReviewController {
             @PathVariable Long productId,
             @Parameter(description = "Review ID", example = "1", required = true)
             @PathVariable Long reviewId) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName(); // Get email from authentication
-        User user = userService.findByEmail(userEmail); // Get user by email
-        Long userId = user.getId(); // Extract userId
+        Long userId = AuthenticatedUser.currentUserId();
 
         productReviewService.deleteReview(reviewId, userId);
         return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Review deleted successfully", null));
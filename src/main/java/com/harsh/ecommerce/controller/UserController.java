@@ -1,10 +1,12 @@
 package com.harsh.ecommerce.controller;
 
+import com.harsh.ecommerce.Security.AuthenticatedUser;
 import com.harsh.ecommerce.dto.PasswordChangeDto;
 import com.harsh.ecommerce.dto.UserProfileUpdateDto;
 import com.harsh.ecommerce.dto.UserRegistrationDto;
 import com.harsh.ecommerce.dto.UserResponseDto;
 import com.harsh.ecommerce.entity.Role;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
 import com.harsh.ecommerce.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,7 +22,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -44,10 +45,9 @@ public class UserController {
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<?> getCurrentUserProfile(Authentication authentication) {
+    public ResponseEntity<?> getCurrentUserProfile() {
         try {
-            String email = authentication.getName();
-            UserResponseDto user = userService.getUserByEmail(email);
+            UserResponseDto user = userService.getUserById(AuthenticatedUser.currentUserId());
 
             Map<String, Object> response = new HashMap<>();
             response.put("user", user);
@@ -70,12 +70,9 @@ public class UserController {
     })
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> updateCurrentUserProfile(
-            @RequestBody UserProfileUpdateDto updateDto,
-            Authentication authentication) {
+            @RequestBody UserProfileUpdateDto updateDto) {
         try {
-            String email = authentication.getName();
-            UserResponseDto user = userService.getUserByEmail(email);
-            UserResponseDto updatedUser = userService.updateUserProfile(user.getId(), updateDto);
+            UserResponseDto updatedUser = userService.updateUserProfile(AuthenticatedUser.currentUserId(), updateDto);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Profile updated successfully");
@@ -99,18 +96,17 @@ public class UserController {
     })
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> changePassword(
-            @RequestBody PasswordChangeDto passwordChangeDto,
-            Authentication authentication) {
+            @RequestBody PasswordChangeDto passwordChangeDto) {
         try {
-            String email = authentication.getName();
-            UserResponseDto user = userService.getUserByEmail(email);
-            userService.changePassword(user.getId(), passwordChangeDto);
+            userService.changePassword(AuthenticatedUser.currentUserId(), passwordChangeDto);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Password changed successfully");
             response.put("success", true);
 
             return ResponseEntity.ok(response);
+        } catch (CallNotPermittedException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("message", e.getMessage());
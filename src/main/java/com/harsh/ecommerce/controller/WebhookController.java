@@ -1,6 +1,6 @@
 package com.harsh.ecommerce.controller;
 
-import com.harsh.ecommerce.service.PaymentService;
+import com.harsh.ecommerce.service.WebhookInboxService;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
 import com.stripe.net.Webhook;
@@ -12,6 +12,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -25,7 +27,9 @@ import java.util.Map;
 @Hidden // Hides the entire controller from Swagger documentation, as per your request
 public class WebhookController {
 
-    private final PaymentService paymentService;
+    private static final Logger logger = LoggerFactory.getLogger(WebhookController.class);
+
+    private final WebhookInboxService webhookInboxService;
 
     @Value("${stripe.webhook.secret}")
     private String endpointSecret;
@@ -33,19 +37,19 @@ public class WebhookController {
     @Value("${app.environment:development}")
     private String environment;
 
-    public WebhookController(PaymentService paymentService) {
-        this.paymentService = paymentService;
+    public WebhookController(WebhookInboxService webhookInboxService) {
+        this.webhookInboxService = webhookInboxService;
     }
 
     /**
-     * Handles Stripe webhook events.
+     * Handles Stripe webhook events by storing them in the webhook inbox.
      * In development mode, signature verification is skipped.
      * In production mode, Stripe's signature is verified for security.
      */
     @PostMapping("/stripe")
     @Operation(summary = "Stripe webhook endpoint", description = "Endpoint for receiving and processing Stripe webhook events. This is for internal use and should not be directly called by clients.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Event processed successfully",
+            @ApiResponse(responseCode = "200", description = "Event received (or already received)",
                     content = @Content(schema = @Schema(implementation = Map.class))),
             @ApiResponse(responseCode = "400", description = "Invalid signature or payload",
                     content = @Content(schema = @Schema(implementation = Map.class))),
@@ -76,32 +80,20 @@ public class WebhookController {
             }
 
             // Validate parsed event
-            if (event == null || event.getType() == null) {
+            if (event == null || event.getType() == null || event.getId() == null) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("success", false, "message", "Invalid or empty event"));
             }
 
-            // Log event type
-            System.out.println("📨 Received webhook event: " + event.getType());
-
-            // Handle supported event types
-            switch (event.getType()) {
-                case "payment_intent.succeeded":
-                    System.out.println("💰 Processing payment success...");
-                    paymentService.handlePaymentSucceeded(event);
-                    break;
-
-                case "payment_intent.payment_failed":
-                    System.out.println("❌ Processing payment failure...");
-                    paymentService.handlePaymentFailed(event);
-                    break;
-
-                default:
-                    System.out.println("ℹ️  Ignoring unsupported event type: " + event.getType());
-                    break;
+            // Persist only; the inbox workers apply the event in order per payment intent
+            boolean recorded = webhookInboxService.record(event, payload);
+            if (recorded) {
+                logger.info("Received webhook event {} ({})", event.getId(), event.getType());
+            } else {
+                logger.debug("Ignored duplicate webhook event {} ({})", event.getId(), event.getType());
             }
 
-            return ResponseEntity.ok(Map.of("success", true, "message", "Event processed successfully"));
+            return ResponseEntity.ok(Map.of("success", true, "message", "Event received"));
 
         } catch (Exception e) {
             System.err.println("Error processing webhook: " + e.getMessage());
@@ -1,10 +1,9 @@
 package com.harsh.ecommerce.controller;
 
+import com.harsh.ecommerce.Security.AuthenticatedUser;
 import com.harsh.ecommerce.dto.AddToWishlistDto;
 import com.harsh.ecommerce.dto.WishlistDto;
-import com.harsh.ecommerce.entity.User;
 import com.harsh.ecommerce.service.WishlistService;
-import com.harsh.ecommerce.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,8 +14,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -31,18 +28,12 @@ public class WishlistController {
     @Autowired
     private WishlistService wishlistService;
 
-    @Autowired
-    private UserService userService;
-
     @GetMapping
     @Operation(summary = "Get user's wishlist", description = "Retrieves the entire wishlist for the authenticated user.")
     @ApiResponse(responseCode = "200", description = "Wishlist retrieved successfully",
             content = @Content(schema = @Schema(implementation = WishlistDto.class)))
     public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<WishlistDto>> getWishlist() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName(); // This is the email
-        User user = userService.findByEmail(userEmail);
-        Long userId = user.getId();
+        Long userId = AuthenticatedUser.currentUserId();
 
         WishlistDto wishlist = wishlistService.getWishlistByUserId(userId);
         return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Wishlist retrieved successfully", wishlist));
@@ -57,10 +48,7 @@ public class WishlistController {
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
     public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<WishlistDto>> addToWishlist(@RequestBody AddToWishlistDto addToWishlistDto) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName(); // This is the email
-        User user = userService.findByEmail(userEmail);
-        Long userId = user.getId();
+        Long userId = AuthenticatedUser.currentUserId();
 
         WishlistDto wishlist = wishlistService.addToWishlist(userId, addToWishlistDto);
         return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Product added to wishlist successfully", wishlist));
@@ -75,10 +63,7 @@ public class WishlistController {
                     content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     })
     public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<String>> removeFromWishlist(@PathVariable Long productId) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName(); // This is the email
-        User user = userService.findByEmail(userEmail);
-        Long userId = user.getId();
+        Long userId = AuthenticatedUser.currentUserId();
 
         wishlistService.removeFromWishlist(userId, productId);
         return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Product removed from wishlist successfully", null));
@@ -89,10 +74,7 @@ public class WishlistController {
     @ApiResponse(responseCode = "200", description = "Wishlist cleared successfully",
             content = @Content(schema = @Schema(implementation = com.harsh.ecommerce.dto.ApiResponse.class)))
     public ResponseEntity<com.harsh.ecommerce.dto.ApiResponse<String>> clearWishlist() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName(); // This is the email
-        User user = userService.findByEmail(userEmail);
-        Long userId = user.getId();
+        Long userId = AuthenticatedUser.currentUserId();
 
         wishlistService.clearWishlist(userId);
         return ResponseEntity.ok(new com.harsh.ecommerce.dto.ApiResponse<>(true, "Wishlist cleared successfully", null));
@@ -112,10 +94,7 @@ public class WishlistController {
             @PathVariable Long productId,
             @RequestBody Map<String, Integer> request) {
 
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName();
-        User user = userService.findByEmail(userEmail);
-        Long userId = user.getId();
+        Long userId = AuthenticatedUser.currentUserId();
 
         Integer quantity = request.get("quantity");
         if (quantity == null || quantity <= 0) {
@@ -0,0 +1,21 @@
+package com.harsh.ecommerce.dto;
+
+/**
+ * Time bucket size for analytics series. {@link #getField()} is the Postgres date_trunc field.
+ */
+public enum AnalyticsGranularity {
+    HOUR("hour"),
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month");
+
+    private final String field;
+
+    AnalyticsGranularity(String field) {
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
@@ -0,0 +1,25 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExecutorStatusDto {
+    private String name;
+    private Integer coreSize;
+    private Integer maxSize;
+    private Integer poolSize;
+    private Integer activeThreads;
+    private Integer queued;
+    private Integer queueCapacity;
+    private Long completedTasks;
+    private String rejectionPolicy;
+    // Tasks the queue could not take, whatever the policy then did with them
+    private Long rejected;
+    private Boolean virtualThreads;
+}
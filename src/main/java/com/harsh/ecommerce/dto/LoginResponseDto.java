@@ -6,6 +6,8 @@ public class LoginResponseDto {
     private String message;
     private boolean success;
     private long expiresIn = 86400; // 24 hours in seconds
+    private String refreshToken;
+    private long refreshExpiresIn;
 
     // Constructors
     public LoginResponseDto() {}
@@ -32,4 +34,10 @@ public class LoginResponseDto {
 
     public long getExpiresIn() { return expiresIn; }
     public void setExpiresIn(long expiresIn) { this.expiresIn = expiresIn; }
+
+    public String getRefreshToken() { return refreshToken; }
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+
+    public long getRefreshExpiresIn() { return refreshExpiresIn; }
+    public void setRefreshExpiresIn(long refreshExpiresIn) { this.refreshExpiresIn = refreshExpiresIn; }
 }
@@ -0,0 +1,26 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MailDispatchStatusDto {
+    private Boolean enabled;
+    private Integer workers;
+    // Waiting to be sent, including messages held back by backoff or a domain's rate
+    private Integer queued;
+    private Integer queueCapacity;
+    private Long sent;
+    private Long failed;
+    private Long retried;
+    // Times a message was put back because its recipient domain was over its rate
+    private Long throttled;
+    private Long connectionsOpened;
+    private Integer openConnections;
+    private Integer trackedDomains;
+}
@@ -0,0 +1,28 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PasswordHashingStatusDto {
+    private Integer threads;
+    private Integer activeThreads;
+    private Integer queued;
+    private Integer queueCapacity;
+    private Long encodes;
+    private Double averageEncodeMs;
+    private Double maxEncodeMs;
+    private Long matches;
+    private Double averageMatchMs;
+    private Double maxMatchMs;
+    // Turned away with a 503 because the queue was full or the wait timed out
+    private Long rejected;
+    private Long timedOut;
+    // Rehash-on-login skipped because the pool was busy
+    private Long upgradesDeclined;
+}
@@ -0,0 +1,23 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentAnalyticsBucketDto {
+    private LocalDateTime bucketStart;
+    private BigDecimal revenue;
+    private Long totalTransactions;
+    private Long successfulTransactions;
+    private Long failedTransactions;
+    private Map<String, BigDecimal> revenueByCurrency;
+}
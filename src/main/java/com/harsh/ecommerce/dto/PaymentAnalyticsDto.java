@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -20,4 +22,9 @@ public class PaymentAnalyticsDto {
     private Double successRate;
     private LocalDateTime periodStart;
     private LocalDateTime periodEnd;
+    private Map<String, Long> transactionsByStatus;
+    private Map<String, BigDecimal> revenueByCurrency;
+    // Only set when a granularity was requested
+    private AnalyticsGranularity granularity;
+    private List<PaymentAnalyticsBucketDto> buckets;
 }
\ No newline at end of file
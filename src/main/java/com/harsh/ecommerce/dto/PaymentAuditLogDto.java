@@ -0,0 +1,22 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentAuditLogDto {
+    private Long id;
+    private Long paymentId;
+    private String stripePaymentIntentId;
+    private String action;
+    private String oldValue;
+    private String newValue;
+    private LocalDateTime timestamp;
+}
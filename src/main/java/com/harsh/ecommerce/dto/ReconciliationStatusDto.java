@@ -0,0 +1,24 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationStatusDto {
+    private Boolean running;
+    private LocalDateTime lastStartedAt;
+    private LocalDateTime lastFinishedAt;
+    // Last payment id checked; the next run resumes after it
+    private Long cursor;
+    private Long checked;
+    private Long corrected;
+    private Long errors;
+    private String lastError;
+}
@@ -0,0 +1,28 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResilienceStatusDto {
+    private String name;
+    private String state;
+    // -1 until the window holds the minimum number of calls
+    private Float failureRate;
+    private Float slowCallRate;
+    private Integer bufferedCalls;
+    private Long openRemainingMs;
+    private Integer maxConcurrentCalls;
+    private Integer availableConcurrentCalls;
+    private Long successfulCalls;
+    private Long failedCalls;
+    private Long ignoredFailures;
+    private Long slowCalls;
+    private Long rejectedByCircuit;
+    private Long rejectedByBulkhead;
+}
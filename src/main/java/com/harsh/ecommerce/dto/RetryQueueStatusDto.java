@@ -0,0 +1,19 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RetryQueueStatusDto {
+    private Map<String, Long> tasksByStatus;
+    // Tasks due soon that this node holds in memory
+    private Integer queuedOnThisNode;
+    private Integer inFlightOnThisNode;
+}
@@ -0,0 +1,23 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesRollupDto {
+    private LocalDateTime bucketStart;
+    // Product or category id, depending on the endpoint
+    private Long id;
+    private String name;
+    private Long units;
+    private BigDecimal revenue;
+    private Long orderCount;
+}
@@ -0,0 +1,20 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesRollupStatusDto {
+    private LocalDateTime watermark;
+    private LocalDateTime lastRunAt;
+    // Orders whose contribution changed in the last run
+    private Long lastRunOrders;
+    private Long lagSeconds;
+}
@@ -0,0 +1,27 @@
+package com.harsh.ecommerce.dto;
+
+import com.harsh.ecommerce.entity.RetryTaskStatus;
+import com.harsh.ecommerce.entity.RetryTaskType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduledRetryDto {
+    private Long id;
+    private RetryTaskType taskType;
+    private String taskKey;
+    private RetryTaskStatus status;
+    private Integer attempts;
+    private Integer maxAttempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,19 @@
+package com.harsh.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookBacklogDto {
+    private Map<String, Long> eventsByStatus;
+    private Long backlogDepth;
+    private Long oldestUnprocessedAgeSeconds;
+    private Integer inFlightOnThisNode;
+}
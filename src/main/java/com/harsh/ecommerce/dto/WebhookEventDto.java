@@ -0,0 +1,24 @@
+package com.harsh.ecommerce.dto;
+
+import com.harsh.ecommerce.entity.WebhookEventStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookEventDto {
+    private String eventId;
+    private String eventType;
+    private String paymentIntentId;
+    private WebhookEventStatus status;
+    private Integer attempts;
+    private String lastError;
+    private LocalDateTime receivedAt;
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,6 @@
+package com.harsh.ecommerce.entity;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,37 @@
+package com.harsh.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an incremental or resumable background job, keyed by job name.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobCheckpoint {
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    @Column(nullable = false)
+    private LocalDateTime watermark;
+
+    // Last processed id, for jobs that scan by id; null when the job is not mid-scan
+    @Column(name = "cursor_id")
+    private Long cursorId;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+
+    @Column(name = "last_run_rows")
+    private Long lastRunRows;
+}
@@ -0,0 +1,31 @@
+package com.harsh.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Whether an order's items are currently included in sales_rollups. Comparing this with the order's
+ * status is what turns a late status change into a +1/-1 delta; orders without a row are not counted.
+ */
+@Entity
+@Table(name = "order_rollup_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderRollupState {
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Boolean counted;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,12 @@
+package com.harsh.ecommerce.entity;
+
+public enum OutboxEventType {
+    ORDER_CONFIRMED,
+    ORDER_SHIPPED,
+    ORDER_DELIVERED,
+    ORDER_CANCELLED,
+    PAYMENT_SUCCEEDED,
+    PAYMENT_FAILED,
+    REFUND_PROCESSED,
+    USER_REGISTERED
+}
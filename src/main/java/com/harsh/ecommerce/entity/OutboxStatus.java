@@ -0,0 +1,8 @@
+package com.harsh.ecommerce.entity;
+
+public enum OutboxStatus {
+    PENDING,
+    PROCESSING,
+    PUBLISHED,
+    DEAD
+}
@@ -5,7 +5,8 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments",
+        indexes = @Index(name = "idx_payments_created_at", columnList = "created_at, status, currency, amount"))
 public class Payment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -9,14 +9,20 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payment_audit_logs")
+@Table(name = "payment_audit_logs",
+        indexes = {
+                @Index(name = "idx_payment_audit_payment", columnList = "payment_id, id"),
+                @Index(name = "idx_payment_audit_action", columnList = "action, id"),
+                @Index(name = "idx_payment_audit_timestamp", columnList = "timestamp")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class PaymentAuditLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_audit_logs_seq")
+    @SequenceGenerator(name = "payment_audit_logs_seq", sequenceName = "payment_audit_logs_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
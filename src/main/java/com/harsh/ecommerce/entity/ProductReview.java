@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 public class ProductReview {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_reviews_seq")
+    @SequenceGenerator(name = "product_reviews_seq", sequenceName = "product_reviews_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,8 @@
+package com.harsh.ecommerce.entity;
+
+public enum RetryTaskStatus {
+    PENDING,
+    PROCESSING,
+    SUCCEEDED,
+    DEAD
+}
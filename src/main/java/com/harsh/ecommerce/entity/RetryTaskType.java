@@ -0,0 +1,5 @@
+package com.harsh.ecommerce.entity;
+
+public enum RetryTaskType {
+    PAYMENT_CONFIRMATION
+}
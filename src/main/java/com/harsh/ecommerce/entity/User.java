@@ -15,7 +15,8 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+        indexes = @Index(name = "idx_users_updated_at", columnList = "updated_at"))
 public class User implements UserDetails {
 
     @Id
@@ -53,6 +54,10 @@ public class User implements UserDetails {
     @Column(name = "is_active")
     private Boolean isActive = true;
 
+    // Bumped whenever tokens issued so far must stop working (password or role change, deactivation)
+    @Column(name = "token_version", nullable = false, columnDefinition = "bigint default 0")
+    private Long tokenVersion = 0L;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -139,6 +144,10 @@ public class User implements UserDetails {
         this.lastLogin = LocalDateTime.now();
     }
 
+    public void revokeTokens() {
+        this.tokenVersion = (tokenVersion == null ? 0L : tokenVersion) + 1;
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -164,6 +173,9 @@ public class User implements UserDetails {
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
 
+    public Long getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(Long tokenVersion) { this.tokenVersion = tokenVersion; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
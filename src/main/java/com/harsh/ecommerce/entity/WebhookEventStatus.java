@@ -0,0 +1,8 @@
+package com.harsh.ecommerce.entity;
+
+public enum WebhookEventStatus {
+    PENDING,
+    PROCESSING,
+    PROCESSED,
+    DEAD
+}
@@ -0,0 +1,7 @@
+package com.harsh.ecommerce.exception;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+package com.harsh.ecommerce.exception;
+
+/**
+ * Failure talking to the payment provider. {@code retryable} is true for network errors, timeouts,
+ * rate limiting and 5xx responses; card declines and invalid requests are not retryable.
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    private final String code;
+    private final String requestId;
+    private final boolean retryable;
+
+    public PaymentGatewayException(String message, String code, String requestId, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+        this.requestId = requestId;
+        this.retryable = retryable;
+    }
+
+    public PaymentGatewayException(String message, boolean retryable) {
+        this(message, null, null, retryable, null);
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
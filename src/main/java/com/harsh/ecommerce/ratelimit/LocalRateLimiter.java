@@ -0,0 +1,75 @@
+package com.harsh.ecommerce.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process buckets, one per policy and key. The key space is split over independently locked stripes,
+ * each a bounded LRU map, so concurrent requests for different keys rarely contend and a flood of distinct
+ * keys (spoofed IPs, say) can only evict the least recently seen buckets rather than grow memory.
+ */
+class LocalRateLimiter {
+
+    private final Stripe[] stripes;
+
+    LocalRateLimiter(int stripeCount, int maxKeys) {
+        int perStripe = Math.max(1, maxKeys / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    RateLimitDecision tryAcquire(RateLimitPolicy policy, String key) {
+        String bucketKey = policy.name() + ':' + key;
+        TokenBucket bucket = stripes[(bucketKey.hashCode() & 0x7fffffff) % stripes.length].bucket(bucketKey, policy);
+        if (bucket.tryAcquire()) {
+            return new RateLimitDecision(true, policy.capacity(), bucket.getAvailableTokens(), 0);
+        }
+        long retryAfterMillis = TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilAvailable(1)) + 1;
+        return new RateLimitDecision(false, policy.capacity(), 0, retryAfterMillis);
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, TokenBucket> buckets;
+
+        private Stripe(int maxKeys) {
+            this.buckets = new LinkedHashMap<>(Math.min(maxKeys, 256), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+
+        private TokenBucket bucket(String key, RateLimitPolicy policy) {
+            // Only the lookup is under the stripe lock; taking a token locks just the bucket
+            lock.lock();
+            try {
+                return buckets.computeIfAbsent(key, k -> new TokenBucket(policy.capacity(), policy.refillPerSecond()));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return buckets.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
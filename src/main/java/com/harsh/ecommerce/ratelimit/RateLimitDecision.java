@@ -0,0 +1,7 @@
+package com.harsh.ecommerce.ratelimit;
+
+/**
+ * Outcome of taking a token. {@code retryAfterMillis} is zero when the request was allowed.
+ */
+public record RateLimitDecision(boolean allowed, long limit, long remaining, long retryAfterMillis) {
+}
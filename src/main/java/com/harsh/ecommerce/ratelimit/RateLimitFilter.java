@@ -0,0 +1,118 @@
+package com.harsh.ecommerce.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.Security.AuthenticatedUser;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Applies {@link RateLimitService} policies. Runs after the JWT filter so USER-keyed policies can use the
+ * authenticated user id. Rejected requests get a 429 with {@code Retry-After}; every limited response carries
+ * {@code X-RateLimit-Limit} and {@code X-RateLimit-Remaining}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
+
+    // Only behind a proxy that overwrites the header; otherwise clients could pick their own bucket
+    @Value("${app.ratelimit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    public RateLimitFilter(RateLimitService rateLimitService, ObjectMapper objectMapper) {
+        this.rateLimitService = rateLimitService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimitPolicy policy = rateLimitService.policyFor(request.getMethod(), request.getServletPath());
+        if (policy == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitDecision decision = rateLimitService.tryAcquire(policy, resolveKey(policy.keyType(), request));
+        response.setHeader(LIMIT_HEADER, String.valueOf(decision.limit()));
+        response.setHeader(REMAINING_HEADER, String.valueOf(decision.remaining()));
+        if (decision.allowed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (decision.retryAfterMillis() + 999) / 1000);
+        logger.debug("Rate limit {} exceeded for {} {}", policy.name(), request.getMethod(), request.getServletPath());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        Map<String, Object> errorResponse = new LinkedHashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now().toString());
+        errorResponse.put("status", 429);
+        errorResponse.put("error", "TOO_MANY_REQUESTS");
+        errorResponse.put("message", "Too many requests. Please retry after " + retryAfterSeconds + " seconds.");
+        errorResponse.put("success", false);
+        errorResponse.put("path", request.getRequestURI());
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private String resolveKey(RateLimitKeyType keyType, HttpServletRequest request) {
+        switch (keyType) {
+            case USER -> {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                    return "user:" + user.getUserId();
+                }
+            }
+            case API_KEY -> {
+                String apiKey = request.getHeader(API_KEY_HEADER);
+                if (StringUtils.hasText(apiKey)) {
+                    return "key:" + apiKey;
+                }
+            }
+            case IP -> {
+            }
+        }
+        return "ip:" + clientIp(request);
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (StringUtils.hasText(forwardedFor)) {
+                int comma = forwardedFor.indexOf(',');
+                return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
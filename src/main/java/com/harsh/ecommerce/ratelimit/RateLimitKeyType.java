@@ -0,0 +1,11 @@
+package com.harsh.ecommerce.ratelimit;
+
+/**
+ * What a rate-limit bucket is keyed by. USER and API_KEY fall back to the client IP when the request has
+ * no authenticated user or no API key.
+ */
+public enum RateLimitKeyType {
+    IP,
+    USER,
+    API_KEY
+}
@@ -0,0 +1,30 @@
+package com.harsh.ecommerce.ratelimit;
+
+import java.util.Set;
+
+/**
+ * A named limit on one route: bursts of up to {@code capacity} requests per key, refilled at
+ * {@code refillPerSecond}. Patterns follow {@code SecurityRoutes}: a literal path, optionally ending in
+ * {@code /**} to cover everything below it.
+ */
+public record RateLimitPolicy(String name,
+                              String pattern,
+                              Set<String> methods,
+                              long capacity,
+                              double refillPerSecond,
+                              RateLimitKeyType keyType) {
+
+    private static final String SUBTREE_SUFFIX = "/**";
+
+    public boolean matches(String method, String path) {
+        if (!methods.isEmpty() && !methods.contains(method)) {
+            return false;
+        }
+        if (!pattern.endsWith(SUBTREE_SUFFIX)) {
+            return pattern.equals(path);
+        }
+        int prefixLength = pattern.length() - SUBTREE_SUFFIX.length();
+        return path.regionMatches(0, pattern, 0, prefixLength)
+                && (path.length() == prefixLength || path.charAt(prefixLength) == '/');
+    }
+}
@@ -0,0 +1,132 @@
+package com.harsh.ecommerce.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Per-route request limits, configured as {@code app.ratelimit.policies=<name>,...} with each policy under
+ * {@code app.ratelimit.<name>.*}. Policies are tried in the listed order and the first match applies.
+ * <p>
+ * Buckets are kept in memory per node by default. With {@code app.ratelimit.backend=redis} they are shared
+ * through Redis instead, falling back to the local buckets while Redis is unreachable so an outage neither
+ * blocks nor unthrottles traffic.
+ */
+@Component
+public class RateLimitService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
+
+    private static final long FAILURE_LOG_INTERVAL_MS = 60_000;
+
+    private final Environment environment;
+    private final boolean enabled;
+    private final List<RateLimitPolicy> policies;
+    private final LocalRateLimiter localLimiter;
+    private final RedisRateLimiter redisLimiter;
+    private final AtomicLong lastFailureLoggedAt = new AtomicLong();
+
+    public RateLimitService(Environment environment, ObjectProvider<StringRedisTemplate> redisTemplate) {
+        this.environment = environment;
+        this.enabled = property("app.ratelimit.enabled", Boolean.class, true);
+        this.policies = loadPolicies();
+        this.localLimiter = new LocalRateLimiter(
+                property("app.ratelimit.stripes", Integer.class, 16),
+                property("app.ratelimit.max-keys", Integer.class, 100_000));
+
+        String backend = property("app.ratelimit.backend", String.class, "local");
+        StringRedisTemplate template = "redis".equalsIgnoreCase(backend) ? redisTemplate.getIfAvailable() : null;
+        if ("redis".equalsIgnoreCase(backend) && template == null) {
+            logger.warn("Rate limiting backend is redis but Redis is not configured; using local buckets");
+        }
+        this.redisLimiter = template != null ? new RedisRateLimiter(template) : null;
+    }
+
+    /**
+     * The policy covering this request, or null if it is not limited.
+     */
+    public RateLimitPolicy policyFor(String method, String path) {
+        if (!enabled) {
+            return null;
+        }
+        for (RateLimitPolicy policy : policies) {
+            if (policy.matches(method, path)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    public RateLimitDecision tryAcquire(RateLimitPolicy policy, String key) {
+        if (redisLimiter != null) {
+            try {
+                return redisLimiter.tryAcquire(policy, key);
+            } catch (Exception e) {
+                logFailure(e);
+            }
+        }
+        return localLimiter.tryAcquire(policy, key);
+    }
+
+    public List<RateLimitPolicy> getPolicies() {
+        return policies;
+    }
+
+    public int getLocalKeyCount() {
+        return localLimiter.size();
+    }
+
+    private List<RateLimitPolicy> loadPolicies() {
+        List<RateLimitPolicy> loaded = new ArrayList<>();
+        for (String name : property("app.ratelimit.policies", String.class, "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            String prefix = "app.ratelimit." + name + ".";
+            String pattern = environment.getProperty(prefix + "pattern");
+            if (pattern == null) {
+                throw new IllegalStateException("Rate limit policy " + name + " has no pattern");
+            }
+            Set<String> methods = Arrays.stream(property(prefix + "methods", String.class, "").split(","))
+                    .map(method -> method.trim().toUpperCase(Locale.ROOT))
+                    .filter(method -> !method.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+            RateLimitPolicy policy = new RateLimitPolicy(name, pattern, methods,
+                    property(prefix + "capacity", Long.class, 60L),
+                    property(prefix + "refill-per-second", Double.class, 1.0),
+                    RateLimitKeyType.valueOf(property(prefix + "key", String.class, "IP").trim().toUpperCase(Locale.ROOT)));
+            if (policy.capacity() < 1 || policy.refillPerSecond() <= 0) {
+                throw new IllegalStateException("Rate limit policy " + name + " needs a positive capacity and refill rate");
+            }
+            loaded.add(policy);
+        }
+        logger.info("Rate limiting {} with policies {}", enabled ? "enabled" : "disabled",
+                loaded.stream().map(RateLimitPolicy::name).toList());
+        return List.copyOf(loaded);
+    }
+
+    private void logFailure(Exception e) {
+        // Once a minute at most; during an outage this runs on every limited request
+        long now = System.currentTimeMillis();
+        long last = lastFailureLoggedAt.get();
+        if (now - last >= FAILURE_LOG_INTERVAL_MS && lastFailureLoggedAt.compareAndSet(last, now)) {
+            logger.warn("Redis rate limiting failed, using local buckets: {}", e.getMessage());
+        }
+    }
+
+    private <T> T property(String key, Class<T> type, T defaultValue) {
+        return environment.getProperty(key, type, defaultValue);
+    }
+}
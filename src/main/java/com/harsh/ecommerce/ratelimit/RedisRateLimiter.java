@@ -0,0 +1,52 @@
+package com.harsh.ecommerce.ratelimit;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Buckets shared by every node, kept in Redis. Refill and take happen in one Lua script against the Redis
+ * clock, so nodes with skewed clocks still agree, and idle buckets expire once they would be full again.
+ */
+class RedisRateLimiter {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    // KEYS[1] bucket; ARGV capacity, tokens per millisecond. Returns {allowed, remaining, retryAfterMillis}
+    private static final RedisScript<List> TAKE_SCRIPT = new DefaultRedisScript<>(
+            "local capacity = tonumber(ARGV[1]) " +
+            "local rate = tonumber(ARGV[2]) " +
+            "local time = redis.call('TIME') " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+            "local state = redis.call('HMGET', KEYS[1], 't', 'ts') " +
+            "local tokens = tonumber(state[1]) " +
+            "local ts = tonumber(state[2]) " +
+            "if tokens == nil then tokens = capacity ts = now end " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate) " +
+            "local allowed = 0 " +
+            "local retry = 0 " +
+            "if tokens >= 1 then tokens = tokens - 1 allowed = 1 else retry = math.ceil((1 - tokens) / rate) end " +
+            "redis.call('HSET', KEYS[1], 't', tostring(tokens), 'ts', now) " +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000) " +
+            "return {allowed, math.floor(tokens), retry}",
+            List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    RedisRateLimiter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @SuppressWarnings("unchecked")
+    RateLimitDecision tryAcquire(RateLimitPolicy policy, String key) {
+        double tokensPerMilli = policy.refillPerSecond() / 1000.0;
+        List<Long> result = redisTemplate.execute(TAKE_SCRIPT, List.of(KEY_PREFIX + policy.name() + ':' + key),
+                String.valueOf(policy.capacity()), String.valueOf(tokensPerMilli));
+        if (result == null || result.size() < 3) {
+            throw new IllegalStateException("Unexpected rate limit script result: " + result);
+        }
+        return new RateLimitDecision(result.get(0) == 1L, policy.capacity(), result.get(1), result.get(2));
+    }
+}
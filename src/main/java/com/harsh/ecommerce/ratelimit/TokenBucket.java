@@ -0,0 +1,97 @@
+package com.harsh.ecommerce.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket refilled continuously at {@code ratePerSecond} up to {@code capacity} (the allowed burst).
+ * Tokens are computed lazily from elapsed time, so an idle bucket costs nothing.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(long capacity, double ratePerSecond) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    public boolean tryAcquire(int permits) {
+        lock.lock();
+        try {
+            refill();
+            if (tokens >= permits) {
+                tokens -= permits;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a token is available.
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            lock.lock();
+            try {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            } finally {
+                lock.unlock();
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Nanoseconds until {@code permits} tokens will be available; zero if they are available now.
+     */
+    public long nanosUntilAvailable(int permits) {
+        lock.lock();
+        try {
+            refill();
+            return tokens >= permits ? 0 : (long) Math.ceil((permits - tokens) / tokensPerNano);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAvailableTokens() {
+        lock.lock();
+        try {
+            refill();
+            return (long) tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
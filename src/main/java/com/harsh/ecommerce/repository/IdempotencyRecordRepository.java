@@ -0,0 +1,48 @@
+package com.harsh.ecommerce.repository;
+
+import com.harsh.ecommerce.entity.IdempotencyRecord;
+import com.harsh.ecommerce.entity.IdempotencyStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.responseBody = :responseBody, r.expiresAt = :expiresAt " +
+           "WHERE r.scope = :scope AND r.idempotencyKey = :idempotencyKey")
+    int complete(@Param("scope") String scope,
+                 @Param("idempotencyKey") String idempotencyKey,
+                 @Param("status") IdempotencyStatus status,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Claims an IN_PROGRESS key whose lease ran out; only one of several competing callers gets 1.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.fingerprint = :fingerprint, r.createdAt = :now, r.expiresAt = :expiresAt " +
+           "WHERE r.scope = :scope AND r.idempotencyKey = :idempotencyKey " +
+           "AND r.status = com.harsh.ecommerce.entity.IdempotencyStatus.IN_PROGRESS AND r.expiresAt < :now")
+    int takeOverExpired(@Param("scope") String scope,
+                        @Param("idempotencyKey") String idempotencyKey,
+                        @Param("fingerprint") String fingerprint,
+                        @Param("now") LocalDateTime now,
+                        @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.scope = :scope AND r.idempotencyKey = :idempotencyKey")
+    int deleteByScopeAndKey(@Param("scope") String scope, @Param("idempotencyKey") String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,9 +2,11 @@ package com.harsh.ecommerce.repository;
 
 import com.harsh.ecommerce.entity.Order;
 import com.harsh.ecommerce.entity.OrderStatus;
+import com.harsh.ecommerce.entity.PaymentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,6 +21,8 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Optional<Order> findByOrderNumber(String orderNumber);
 
+    Optional<Order> findByOrderNumberAndCreatedAtBetween(String orderNumber, LocalDateTime from, LocalDateTime to);
+
     Page<Order> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
     List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
@@ -42,19 +46,54 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     boolean existsByOrderNumber(String orderNumber);
 
-    // NEW ANALYTICS METHODS
-    @Query("SELECT COUNT(o) FROM Order o")
-    Long countTotalOrders();
-
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
-    Long countOrdersByStatus(@Param("status") OrderStatus status);
-
-    @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o WHERE o.status IN ('DELIVERED', 'SHIPPED', 'PROCESSING')")
-    BigDecimal getTotalRevenue();
-
-    @Query("SELECT COALESCE(AVG(o.totalAmount), 0) FROM Order o WHERE o.status IN ('DELIVERED', 'SHIPPED', 'PROCESSING')")
-    BigDecimal getAverageOrderValue();
-
-    @Query("SELECT COUNT(DISTINCT o.user.id) FROM Order o")
-    Long countUniqueCustomers();
-}
\ No newline at end of file
+    // What a status transition needs to know about an order, without loading the entity and its items
+    @Query("SELECT o.id AS id, o.status AS status, o.paymentStatus AS paymentStatus, o.orderNumber AS orderNumber, " +
+           "o.totalAmount AS totalAmount, u.email AS email FROM Order o JOIN o.user u WHERE o.id = :orderId")
+    Optional<OrderStatusSnapshot> findStatusSnapshot(@Param("orderId") Long orderId);
+
+    // Compare-and-set: returns 0 if the status is no longer :from
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now, " +
+           "o.shippedAt = COALESCE(:shippedAt, o.shippedAt), o.deliveredAt = COALESCE(:deliveredAt, o.deliveredAt), " +
+           "o.notes = COALESCE(:notes, o.notes) " +
+           "WHERE o.id = :orderId AND o.status = :from")
+    int compareAndSetStatus(@Param("orderId") Long orderId,
+                            @Param("from") OrderStatus from,
+                            @Param("to") OrderStatus to,
+                            @Param("now") LocalDateTime now,
+                            @Param("shippedAt") LocalDateTime shippedAt,
+                            @Param("deliveredAt") LocalDateTime deliveredAt,
+                            @Param("notes") String notes);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.paymentStatus = :to, o.updatedAt = :now, o.notes = COALESCE(:notes, o.notes) " +
+           "WHERE o.id = :orderId AND o.paymentStatus = :from")
+    int compareAndSetPaymentStatus(@Param("orderId") Long orderId,
+                                   @Param("from") PaymentStatus from,
+                                   @Param("to") PaymentStatus to,
+                                   @Param("now") LocalDateTime now,
+                                   @Param("notes") String notes);
+
+    // Analytics in one scan: a row per status plus a grand-total row (status NULL) carrying the distinct customer count
+    @Query(value = "SELECT status, COUNT(*) AS orderCount, COALESCE(SUM(total_amount), 0) AS totalAmount, " +
+                   "COUNT(DISTINCT user_id) AS customerCount " +
+                   "FROM orders GROUP BY GROUPING SETS ((status), ())",
+           nativeQuery = true)
+    List<OrderStatusAggregate> aggregateByStatus();
+
+    interface OrderStatusAggregate {
+        String getStatus();
+        Long getOrderCount();
+        BigDecimal getTotalAmount();
+        Long getCustomerCount();
+    }
+
+    interface OrderStatusSnapshot {
+        Long getId();
+        OrderStatus getStatus();
+        PaymentStatus getPaymentStatus();
+        String getOrderNumber();
+        BigDecimal getTotalAmount();
+        String getEmail();
+    }
+}
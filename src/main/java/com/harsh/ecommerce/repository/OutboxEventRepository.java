@@ -0,0 +1,18 @@
+package com.harsh.ecommerce.repository;
+
+import com.harsh.ecommerce.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = com.harsh.ecommerce.entity.OutboxStatus.PUBLISHED AND e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,69 @@
+package com.harsh.ecommerce.repository;
+
+import com.harsh.ecommerce.dto.PaymentAuditLogDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keyset-paginated reads of payment_audit_logs, newest first. Only the filters that are set end up in the
+ * WHERE clause so each combination gets a plan that can use the (payment_id, id) or (action, id) index.
+ */
+@Repository
+public class PaymentAuditLogQueryRepository {
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public PaymentAuditLogQueryRepository(JdbcTemplate jdbcTemplate) {
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * @param beforeId only entries with a smaller id (the previous page's cursor); null for the first page
+     */
+    public List<PaymentAuditLogDto> findPage(Long paymentId, String action, LocalDateTime start, LocalDateTime end,
+                                             Long beforeId, int limit) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT a.id, a.payment_id, p.stripe_payment_intent_id, a.action, a.old_value, a.new_value, a.timestamp " +
+                "FROM payment_audit_logs a JOIN payments p ON p.id = a.payment_id WHERE 1 = 1");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        if (beforeId != null) {
+            sql.append(" AND a.id < :beforeId");
+            params.addValue("beforeId", beforeId);
+        }
+        if (paymentId != null) {
+            sql.append(" AND a.payment_id = :paymentId");
+            params.addValue("paymentId", paymentId);
+        }
+        if (action != null) {
+            sql.append(" AND a.action = :action");
+            params.addValue("action", action);
+        }
+        if (start != null) {
+            sql.append(" AND a.timestamp >= :start");
+            params.addValue("start", Timestamp.valueOf(start));
+        }
+        if (end != null) {
+            sql.append(" AND a.timestamp < :end");
+            params.addValue("end", Timestamp.valueOf(end));
+        }
+        sql.append(" ORDER BY a.id DESC LIMIT :limit");
+        params.addValue("limit", limit);
+
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> PaymentAuditLogDto.builder()
+                .id(rs.getLong("id"))
+                .paymentId(rs.getLong("payment_id"))
+                .stripePaymentIntentId(rs.getString("stripe_payment_intent_id"))
+                .action(rs.getString("action"))
+                .oldValue(rs.getString("old_value"))
+                .newValue(rs.getString("new_value"))
+                .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                .build());
+    }
+}
@@ -5,8 +5,12 @@ import com.harsh.ecommerce.entity.PaymentTransactionStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -14,11 +18,53 @@ import java.util.Optional;
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByStripePaymentIntentId(String stripePaymentIntentId);
+
+    @Query("SELECT p.id AS id, p.status AS status, o.id AS orderId FROM Payment p LEFT JOIN p.order o " +
+           "WHERE p.stripePaymentIntentId = :stripePaymentIntentId")
+    Optional<PaymentStatusSnapshot> findStatusSnapshot(@Param("stripePaymentIntentId") String stripePaymentIntentId);
+
+    // Compare-and-set: returns 0 if the status is no longer :from
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :to, p.updatedAt = :now WHERE p.id = :paymentId AND p.status = :from")
+    int compareAndSetStatus(@Param("paymentId") Long paymentId,
+                            @Param("from") PaymentTransactionStatus from,
+                            @Param("to") PaymentTransactionStatus to,
+                            @Param("now") LocalDateTime now);
     Optional<Payment> findByOrder_Id(Long orderId);
     List<Payment> findByOrderUserIdOrderByCreatedAtDesc(Long userId);
     Page<Payment> findByOrderUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     List<Payment> findByStatus(PaymentTransactionStatus status);
     Page<Payment> findByStatus(PaymentTransactionStatus status, Pageable pageable);
-    List<Payment> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
 
-}
\ No newline at end of file
+    @Query("SELECT p.currency AS currency, p.status AS status, COUNT(p) AS transactionCount, COALESCE(SUM(p.amount), 0) AS totalAmount " +
+           "FROM Payment p WHERE p.createdAt BETWEEN :startDate AND :endDate GROUP BY p.currency, p.status")
+    List<PaymentAggregate> aggregateByCurrencyAndStatus(@Param("startDate") LocalDateTime startDate,
+                                                        @Param("endDate") LocalDateTime endDate);
+
+    // granularity must be a date_trunc field name; callers pass AnalyticsGranularity values only
+    @Query(value = "SELECT date_trunc(CAST(:granularity AS text), created_at) AS bucket, currency, status, " +
+                   "COUNT(*) AS transactionCount, COALESCE(SUM(amount), 0) AS totalAmount " +
+                   "FROM payments WHERE created_at BETWEEN :startDate AND :endDate " +
+                   "GROUP BY 1, 2, 3 ORDER BY 1",
+           nativeQuery = true)
+    List<PaymentBucketAggregate> aggregateByBucketCurrencyAndStatus(@Param("granularity") String granularity,
+                                                                    @Param("startDate") LocalDateTime startDate,
+                                                                    @Param("endDate") LocalDateTime endDate);
+
+    interface PaymentAggregate {
+        String getCurrency();
+        String getStatus();
+        Long getTransactionCount();
+        BigDecimal getTotalAmount();
+    }
+
+    interface PaymentBucketAggregate extends PaymentAggregate {
+        LocalDateTime getBucket();
+    }
+
+    interface PaymentStatusSnapshot {
+        Long getId();
+        PaymentTransactionStatus getStatus();
+        Long getOrderId();
+    }
+}
@@ -6,11 +6,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -98,4 +100,12 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
 
     @Query("SELECT p FROM Product p WHERE p.isActive = true ORDER BY p.sortOrder ASC, p.name ASC")
     Page<Product> findAllActiveProductsSorted(Pageable pageable);
-}
\ No newline at end of file
+
+    // Returns an order's items to stock in one statement, one row per product
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products p SET stock_quantity = p.stock_quantity + i.quantity, updated_at = :now " +
+                   "FROM (SELECT product_id, SUM(quantity) AS quantity FROM order_items WHERE order_id = :orderId GROUP BY product_id) i " +
+                   "WHERE p.id = i.product_id",
+           nativeQuery = true)
+    int restockOrderItems(@Param("orderId") Long orderId, @Param("now") LocalDateTime now);
+}
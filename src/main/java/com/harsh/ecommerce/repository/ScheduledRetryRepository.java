@@ -0,0 +1,39 @@
+package com.harsh.ecommerce.repository;
+
+import com.harsh.ecommerce.entity.RetryTaskStatus;
+import com.harsh.ecommerce.entity.ScheduledRetry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ScheduledRetryRepository extends JpaRepository<ScheduledRetry, Long> {
+
+    Page<ScheduledRetry> findByStatusOrderByIdDesc(RetryTaskStatus status, Pageable pageable);
+
+    @Query("SELECT r.status, COUNT(r) FROM ScheduledRetry r GROUP BY r.status")
+    List<Object[]> countByStatus();
+
+    @Modifying
+    @Query("UPDATE ScheduledRetry r SET r.status = com.harsh.ecommerce.entity.RetryTaskStatus.PENDING, " +
+           "r.attempts = 0, r.nextAttemptAt = :now, r.lockedUntil = null, r.lastError = null, r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.status <> com.harsh.ecommerce.entity.RetryTaskStatus.PROCESSING")
+    int requeue(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ScheduledRetry r SET r.status = com.harsh.ecommerce.entity.RetryTaskStatus.PENDING, " +
+           "r.attempts = 0, r.nextAttemptAt = :now, r.lockedUntil = null, r.lastError = null, r.updatedAt = :now " +
+           "WHERE r.status = com.harsh.ecommerce.entity.RetryTaskStatus.DEAD")
+    int requeueDead(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM ScheduledRetry r WHERE r.status = com.harsh.ecommerce.entity.RetryTaskStatus.SUCCEEDED AND r.updatedAt < :before")
+    int deleteSucceededBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,43 @@
+package com.harsh.ecommerce.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out ids for JDBC batch inserts from the same pooled-lo sequences Hibernate uses,
+ * so rows written outside JPA never collide with entity ids.
+ * Each nextval() reserves a block of {@link #ALLOCATION_SIZE} ids starting at the returned value;
+ * {@link com.harsh.ecommerce.config.HibernateConfig} pins Hibernate to the same interpretation.
+ */
+@Repository
+public class SequenceIdAllocator {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> allocate(String sequenceName, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        if (count <= 0) {
+            return ids;
+        }
+
+        int blocks = (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        List<Long> blockStarts = jdbcTemplate.queryForList(
+                "SELECT nextval(?::regclass) FROM generate_series(1, ?)", Long.class, sequenceName, blocks);
+
+        for (Long start : blockStarts) {
+            for (int i = 0; i < ALLOCATION_SIZE && ids.size() < count; i++) {
+                ids.add(start + i);
+            }
+        }
+        return ids;
+    }
+}
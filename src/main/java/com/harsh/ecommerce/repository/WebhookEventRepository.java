@@ -0,0 +1,45 @@
+package com.harsh.ecommerce.repository;
+
+import com.harsh.ecommerce.entity.WebhookEvent;
+import com.harsh.ecommerce.entity.WebhookEventStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    Page<WebhookEvent> findByStatusOrderByIdDesc(WebhookEventStatus status, Pageable pageable);
+
+    @Query("SELECT e.status, COUNT(e) FROM WebhookEvent e GROUP BY e.status")
+    List<Object[]> countByStatus();
+
+    @Query("SELECT MIN(e.receivedAt) FROM WebhookEvent e " +
+           "WHERE e.status IN (com.harsh.ecommerce.entity.WebhookEventStatus.PENDING, com.harsh.ecommerce.entity.WebhookEventStatus.PROCESSING)")
+    LocalDateTime findOldestUnprocessedReceivedAt();
+
+    boolean existsByEventId(String eventId);
+
+    /**
+     * Resets an event for another run, unless a worker holds it under a live lease.
+     */
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.harsh.ecommerce.entity.WebhookEventStatus.PENDING, " +
+           "e.attempts = 0, e.nextAttemptAt = :now, e.lockedUntil = null, e.lastError = null " +
+           "WHERE e.eventId = :eventId " +
+           "AND (e.status <> com.harsh.ecommerce.entity.WebhookEventStatus.PROCESSING OR e.lockedUntil < :now)")
+    int requeue(@Param("eventId") String eventId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.harsh.ecommerce.entity.WebhookEventStatus.PENDING, " +
+           "e.attempts = 0, e.nextAttemptAt = :now, e.lockedUntil = null, e.lastError = null " +
+           "WHERE e.status = com.harsh.ecommerce.entity.WebhookEventStatus.DEAD")
+    int requeueDead(@Param("now") LocalDateTime now);
+}
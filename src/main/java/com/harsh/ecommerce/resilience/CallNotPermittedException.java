@@ -0,0 +1,26 @@
+package com.harsh.ecommerce.resilience;
+
+import java.time.Duration;
+
+/**
+ * Thrown without calling the dependency when its circuit is open or its bulkhead is full.
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    private final String dependency;
+    private final Duration retryAfter;
+
+    public CallNotPermittedException(String dependency, String reason, Duration retryAfter) {
+        super(dependency + " is temporarily unavailable (" + reason + ")");
+        this.dependency = dependency;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
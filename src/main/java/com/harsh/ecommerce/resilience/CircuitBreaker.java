@@ -0,0 +1,224 @@
+package com.harsh.ecommerce.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Count-based sliding-window circuit breaker.
+ * CLOSED: calls flow; once the window has {@code minimumCalls} outcomes and the failure or slow-call rate
+ * reaches its threshold the breaker opens. OPEN: calls are rejected until {@code openDuration} has passed.
+ * HALF_OPEN: {@code halfOpenCalls} trial calls are let through; if they are healthy the breaker closes,
+ * otherwise it opens again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Ring buffer of the last windowSize outcomes
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+    private int position;
+    private int recorded;
+    private int failureCount;
+    private int slowCount;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermitted;
+    private int halfOpenCompleted;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, float failureRateThreshold,
+                          float slowCallRateThreshold, Duration openDuration, int halfOpenCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.failures = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /**
+     * Returns true if a call may proceed. Every permitted call must be followed by {@link #onResult}.
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                        return false;
+                    }
+                    transitionTo(State.HALF_OPEN);
+                    // fall through to admit the first trial call
+                case HALF_OPEN:
+                    if (halfOpenPermitted < halfOpenCalls) {
+                        halfOpenPermitted++;
+                        return true;
+                    }
+                    return false;
+                default:
+                    return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onResult(boolean failed, boolean slow) {
+        lock.lock();
+        try {
+            record(failed, slow);
+            if (state == State.HALF_OPEN) {
+                halfOpenCompleted++;
+                if (failed || slow) {
+                    transitionTo(State.OPEN);
+                } else if (halfOpenCompleted >= halfOpenCalls) {
+                    transitionTo(State.CLOSED);
+                }
+            } else if (state == State.CLOSED && recorded >= minimumCalls
+                    && (failureRate() >= failureRateThreshold || slowCallRate() >= slowCallRateThreshold)) {
+                transitionTo(State.OPEN);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a half-open permit for a call that was permitted but never executed (e.g. the bulkhead was full).
+     */
+    public void releasePermission() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+                halfOpenPermitted--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void reset() {
+        lock.lock();
+        try {
+            transitionTo(State.CLOSED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Time until an open breaker admits a trial call, or zero.
+     */
+    public Duration getRemainingOpenDuration() {
+        lock.lock();
+        try {
+            if (state != State.OPEN) {
+                return Duration.ZERO;
+            }
+            return Duration.ofNanos(Math.max(0, openDurationNanos - (System.nanoTime() - openedAtNanos)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public float getFailureRate() {
+        lock.lock();
+        try {
+            return recorded < minimumCalls ? -1f : failureRate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public float getSlowCallRate() {
+        lock.lock();
+        try {
+            return recorded < minimumCalls ? -1f : slowCallRate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBufferedCalls() {
+        lock.lock();
+        try {
+            return recorded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (recorded == windowSize) {
+            if (failures[position]) {
+                failureCount--;
+            }
+            if (slowCalls[position]) {
+                slowCount--;
+            }
+        } else {
+            recorded++;
+        }
+        failures[position] = failed;
+        slowCalls[position] = slow;
+        if (failed) {
+            failureCount++;
+        }
+        if (slow) {
+            slowCount++;
+        }
+        position = (position + 1) % windowSize;
+    }
+
+    private float failureRate() {
+        return recorded == 0 ? 0f : failureCount * 100f / recorded;
+    }
+
+    private float slowCallRate() {
+        return recorded == 0 ? 0f : slowCount * 100f / recorded;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        halfOpenPermitted = 0;
+        halfOpenCompleted = 0;
+        if (newState == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        } else if (newState == State.CLOSED) {
+            position = 0;
+            recorded = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.harsh.ecommerce.resilience;
+
+import com.harsh.ecommerce.dto.ResilienceStatusDto;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs calls to one external dependency through its circuit breaker and bulkhead.
+ * Calls slower than {@code slowCallThreshold} count against the breaker even when they succeed, so a
+ * dependency that degrades to near-timeout latency is cut off before it ties up every caller thread.
+ */
+public class ResilienceGuard {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final long slowCallThresholdNanos;
+    private final Predicate<Throwable> recordFailure;
+
+    private final LongAdder successfulCalls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder ignoredFailures = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder rejectedByCircuit = new LongAdder();
+    private final LongAdder rejectedByBulkhead = new LongAdder();
+
+    public ResilienceGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead,
+                           Duration slowCallThreshold, Predicate<Throwable> recordFailure) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+        this.recordFailure = recordFailure;
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            rejectedByCircuit.increment();
+            throw new CallNotPermittedException(name, "circuit open", circuitBreaker.getRemainingOpenDuration());
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.releasePermission();
+            rejectedByBulkhead.increment();
+            throw new CallNotPermittedException(name, "too many concurrent calls", Duration.ofSeconds(1));
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            boolean slow = System.nanoTime() - start >= slowCallThresholdNanos;
+            if (slow) {
+                slowCalls.increment();
+            }
+            successfulCalls.increment();
+            circuitBreaker.onResult(false, slow);
+            return result;
+        } catch (RuntimeException | Error e) {
+            boolean slow = System.nanoTime() - start >= slowCallThresholdNanos;
+            if (slow) {
+                slowCalls.increment();
+            }
+            if (recordFailure.test(e)) {
+                failedCalls.increment();
+                circuitBreaker.onResult(true, slow);
+            } else {
+                // The dependency answered; the request itself was rejected (e.g. a card decline)
+                ignoredFailures.increment();
+                circuitBreaker.onResult(false, slow);
+            }
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public void run(Runnable call) {
+        execute(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    Predicate<Throwable> getRecordFailure() {
+        return recordFailure;
+    }
+
+    public ResilienceStatusDto snapshot() {
+        return ResilienceStatusDto.builder()
+                .name(name)
+                .state(circuitBreaker.getState().name())
+                .failureRate(circuitBreaker.getFailureRate())
+                .slowCallRate(circuitBreaker.getSlowCallRate())
+                .bufferedCalls(circuitBreaker.getBufferedCalls())
+                .openRemainingMs(circuitBreaker.getRemainingOpenDuration().toMillis())
+                .maxConcurrentCalls(bulkhead.getMaxConcurrentCalls())
+                .availableConcurrentCalls(bulkhead.getAvailablePermits())
+                .successfulCalls(successfulCalls.sum())
+                .failedCalls(failedCalls.sum())
+                .ignoredFailures(ignoredFailures.sum())
+                .slowCalls(slowCalls.sum())
+                .rejectedByCircuit(rejectedByCircuit.sum())
+                .rejectedByBulkhead(rejectedByBulkhead.sum())
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.harsh.ecommerce.resilience;
+
+import com.harsh.ecommerce.dto.ResilienceStatusDto;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * One {@link ResilienceGuard} per external dependency, configured from {@code app.resilience.<name>.*}.
+ */
+@Component
+public class ResilienceRegistry {
+
+    public static final String STRIPE = "stripe";
+    public static final String CLOUDINARY = "cloudinary";
+    public static final String SMTP = "smtp";
+
+    private static final Predicate<Throwable> RECORD_ALL = e -> true;
+
+    private final Environment environment;
+    private final Map<String, ResilienceGuard> guards = new ConcurrentHashMap<>();
+
+    public ResilienceRegistry(Environment environment) {
+        this.environment = environment;
+    }
+
+    public ResilienceGuard guard(String name) {
+        return guard(name, RECORD_ALL);
+    }
+
+    /**
+     * Callers sharing a guard must pass the same predicate instance, so keep it in a constant.
+     *
+     * @param recordFailure which exceptions count as the dependency failing
+     * @throws IllegalStateException if the guard was already created with a different predicate
+     */
+    public ResilienceGuard guard(String name, Predicate<Throwable> recordFailure) {
+        ResilienceGuard guard = guards.computeIfAbsent(name, n -> create(n, recordFailure));
+        if (guard.getRecordFailure() != recordFailure) {
+            throw new IllegalStateException("Resilience guard '" + name
+                    + "' is already registered with a different failure predicate");
+        }
+        return guard;
+    }
+
+    public List<ResilienceStatusDto> getStatus() {
+        List<ResilienceStatusDto> status = new ArrayList<>();
+        guards.values().forEach(guard -> status.add(guard.snapshot()));
+        status.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return status;
+    }
+
+    public boolean reset(String name) {
+        ResilienceGuard guard = guards.get(name);
+        if (guard == null) {
+            return false;
+        }
+        guard.getCircuitBreaker().reset();
+        return true;
+    }
+
+    private ResilienceGuard create(String name, Predicate<Throwable> recordFailure) {
+        String prefix = "app.resilience." + name + ".";
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                property(prefix + "window-size", Integer.class, 50),
+                property(prefix + "minimum-calls", Integer.class, 20),
+                property(prefix + "failure-rate-threshold", Float.class, 50f),
+                property(prefix + "slow-call-rate-threshold", Float.class, 80f),
+                Duration.ofMillis(property(prefix + "open-duration-ms", Long.class, 30000L)),
+                property(prefix + "half-open-calls", Integer.class, 5));
+        Bulkhead bulkhead = new Bulkhead(
+                property(prefix + "max-concurrent-calls", Integer.class, 20),
+                property(prefix + "max-wait-ms", Long.class, 100L));
+        Duration slowCallThreshold = Duration.ofMillis(property(prefix + "slow-call-threshold-ms", Long.class, 5000L));
+        return new ResilienceGuard(name, circuitBreaker, bulkhead, slowCallThreshold, recordFailure);
+    }
+
+    private <T> T property(String key, Class<T> type, T defaultValue) {
+        return environment.getProperty(key, type, defaultValue);
+    }
+}
@@ -2,14 +2,30 @@ package com.harsh.ecommerce.service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.harsh.ecommerce.config.AsyncConfig;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import com.harsh.ecommerce.resilience.ResilienceGuard;
+import com.harsh.ecommerce.resilience.ResilienceRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Image storage on Cloudinary. Calls run on the media executor, so slow uploads queue up there instead of
+ * piling up on request threads, and a full queue is answered with a 503 straight away.
+ */
 @Service
 public class CloudinaryService {
 
@@ -22,7 +38,22 @@ public class CloudinaryService {
     @Value("${cloudinary.api-secret}")
     private String apiSecret;
 
+    @Value("${app.resilience.cloudinary.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    // Socket timeout per call; uploads of large images need more than API calls
+    @Value("${app.resilience.cloudinary.timeout-ms:20000}")
+    private int timeoutMs;
+
+    @Autowired
+    private ResilienceRegistry resilienceRegistry;
+
+    @Autowired
+    @Qualifier(AsyncConfig.MEDIA)
+    private AsyncTaskExecutor mediaExecutor;
+
     private Cloudinary cloudinary;
+    private ResilienceGuard guard;
 
     @PostConstruct
     public void init() {
@@ -43,6 +74,7 @@ public class CloudinaryService {
                 "api_key", apiKey,
                 "api_secret", apiSecret
         ));
+        this.guard = resilienceRegistry.guard(ResilienceRegistry.CLOUDINARY);
     }
 
     public String uploadImage(MultipartFile file, String folder) {
@@ -54,18 +86,27 @@ public class CloudinaryService {
             throw new RuntimeException("Cloudinary is not initialized");
         }
 
+        byte[] bytes;
         try {
-            Map<String, Object> uploadParams = ObjectUtils.asMap(
-                    "folder", folder,
-                    "resource_type", "image",
-                    "quality", "auto"
-            );
-
-            Map uploadResult = cloudinary.uploader().upload(file.getBytes(), uploadParams);
-            return uploadResult.get("secure_url").toString();
+            bytes = file.getBytes();
         } catch (IOException e) {
-            throw new RuntimeException("Failed to upload image to Cloudinary", e);
+            throw new RuntimeException("Failed to read uploaded file", e);
         }
+
+        Map<String, Object> uploadParams = withTimeouts(ObjectUtils.asMap(
+                "folder", folder,
+                "resource_type", "image",
+                "quality", "auto"
+        ));
+
+        return onMediaExecutor(() -> guard.execute(() -> {
+            try {
+                Map uploadResult = cloudinary.uploader().upload(bytes, uploadParams);
+                return uploadResult.get("secure_url").toString();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to upload image to Cloudinary", e);
+            }
+        }));
     }
 
     public String uploadProductImage(MultipartFile file) {
@@ -81,11 +122,44 @@ public class CloudinaryService {
             throw new RuntimeException("Cloudinary is not initialized");
         }
 
+        onMediaExecutor(() -> {
+            guard.run(() -> {
+                try {
+                    cloudinary.uploader().destroy(publicId, withTimeouts(ObjectUtils.asMap()));
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to delete image from Cloudinary", e);
+                }
+            });
+            return null;
+        });
+    }
+
+    private <T> T onMediaExecutor(Callable<T> call) {
+        Future<T> future;
         try {
-            cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete image from Cloudinary", e);
+            future = mediaExecutor.submit(call);
+        } catch (TaskRejectedException e) {
+            throw new CallNotPermittedException(ResilienceRegistry.CLOUDINARY, "media queue is full", Duration.ofSeconds(1));
         }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for Cloudinary", e);
+        }
+    }
+
+    private Map<String, Object> withTimeouts(Map<String, Object> options) {
+        options.put("connect_timeout", connectTimeoutMs);
+        options.put("connection_request_timeout", connectTimeoutMs);
+        options.put("timeout", timeoutMs);
+        return options;
     }
 
     public String extractPublicId(String imageUrl) {
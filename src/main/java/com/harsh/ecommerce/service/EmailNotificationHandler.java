@@ -0,0 +1,48 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.harsh.ecommerce.entity.OutboxEventType;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Turns order, payment and account events into customer emails.
+ */
+@Component
+public class EmailNotificationHandler implements OutboxEventHandler {
+
+    private final EmailService emailService;
+
+    public EmailNotificationHandler(EmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    @Override
+    public Set<OutboxEventType> supportedTypes() {
+        return EnumSet.allOf(OutboxEventType.class);
+    }
+
+    @Override
+    public void handle(OutboxEventType eventType, JsonNode payload) {
+        emailService.send(buildMessage(eventType, payload));
+    }
+
+    private SimpleMailMessage buildMessage(OutboxEventType eventType, JsonNode payload) {
+        String to = payload.path("email").asText();
+        String orderNumber = payload.path("orderNumber").asText();
+
+        return switch (eventType) {
+            case ORDER_CONFIRMED -> emailService.orderConfirmationMessage(to, orderNumber, payload.path("amount").asDouble());
+            case ORDER_SHIPPED -> emailService.shippingNotificationMessage(to, orderNumber, payload.path("trackingNumber").asText());
+            case ORDER_DELIVERED -> emailService.deliveryConfirmationMessage(to, orderNumber);
+            case ORDER_CANCELLED -> emailService.orderCancellationMessage(to, orderNumber);
+            case PAYMENT_SUCCEEDED -> emailService.paymentSuccessMessage(to, orderNumber, payload.path("amount").asDouble());
+            case PAYMENT_FAILED -> emailService.paymentFailedMessage(to, orderNumber);
+            case REFUND_PROCESSED -> emailService.refundConfirmationMessage(to, orderNumber, payload.path("amount").asDouble());
+            case USER_REGISTERED -> emailService.welcomeMessage(to, payload.path("name").asText());
+        };
+    }
+}
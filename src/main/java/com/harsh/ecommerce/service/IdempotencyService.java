@@ -0,0 +1,327 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.entity.IdempotencyRecord;
+import com.harsh.ecommerce.entity.IdempotencyStatus;
+import com.harsh.ecommerce.exception.IdempotencyConflictException;
+import com.harsh.ecommerce.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Makes POST endpoints safe to retry with an Idempotency-Key header.
+ * The first request for a key claims it (in memory for this node, and with an IN_PROGRESS row for
+ * the cluster), runs the action and stores the serialized response. Replays with the same request
+ * fingerprint get the stored response; concurrent duplicates wait for the first request to finish.
+ * A failed action releases the key so the client can retry.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final long REMOTE_POLL_INTERVAL_MS = 100;
+
+    // Column lengths of idempotency_keys
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_SCOPE_LENGTH = 150;
+
+    // Attempts to insert the row after finding the key released in between
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<String, LocalEntry> localEntries = new ConcurrentHashMap<>();
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${app.idempotency.cache-ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
+    @Value("${app.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    // How long an IN_PROGRESS claim holds the key; after that another node may take it over
+    @Value("${app.idempotency.in-progress-lease-seconds:120}")
+    private long inProgressLeaseSeconds;
+
+    public IdempotencyService(IdempotencyRecordRepository recordRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.recordRepository = recordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Runs {@code action} at most once per (scope, key). A null or blank key runs the action directly.
+     *
+     * @param scope   operation and caller, e.g. "orders:create:user@example.com"
+     * @param request request body used to fingerprint the call; reusing a key with a different body is rejected
+     */
+    public <T> T execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String recordScope = storedScope(scope);
+
+        String fingerprint = fingerprint(request);
+        String cacheKey = recordScope + "\n" + key;
+        LocalEntry entry = new LocalEntry(fingerprint, cacheTtlSeconds);
+
+        while (true) {
+            LocalEntry existing = localEntries.putIfAbsent(cacheKey, entry);
+            if (existing == null) {
+                break;
+            }
+            if (existing.isExpired()) {
+                localEntries.remove(cacheKey, existing);
+                continue;
+            }
+            checkFingerprint(existing.fingerprint, fingerprint, key);
+            return deserialize(await(existing.response, key), responseType);
+        }
+
+        try {
+            Optional<String> stored = claim(recordScope, key, fingerprint);
+            if (stored.isPresent()) {
+                entry.response.complete(stored.get());
+                return deserialize(stored.get(), responseType);
+            }
+        } catch (RuntimeException e) {
+            localEntries.remove(cacheKey, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            release(recordScope, key);
+            localEntries.remove(cacheKey, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+
+        String json = serialize(result);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    recordRepository.complete(recordScope, key, IdempotencyStatus.COMPLETED, json,
+                            LocalDateTime.now().plusHours(ttlHours)));
+        } catch (RuntimeException e) {
+            // The action already ran; replays on this node are still served from memory
+            logger.error("Failed to store idempotent response for key {}: {}", key, e.getMessage());
+        }
+        entry.response.complete(json);
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        localEntries.values().removeIf(LocalEntry::isExpired);
+        Integer removed = transactionTemplate.execute(status -> recordRepository.deleteExpired(LocalDateTime.now()));
+        if (removed != null && removed > 0) {
+            logger.debug("Purged {} expired idempotency keys", removed);
+        }
+    }
+
+    /**
+     * Inserts the IN_PROGRESS row. Returns the stored response when another request already completed
+     * under this key; waits while it is still running on another node, and takes the key over once that
+     * node's lease has run out (it most likely died mid-request).
+     */
+    private Optional<String> claim(String scope, String key, String fingerprint) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        for (int attempt = 1; ; attempt++) {
+            if (insertClaim(scope, key, fingerprint)) {
+                return Optional.empty();
+            }
+
+            while (true) {
+                Optional<IdempotencyRecord> existing = recordRepository.findByScopeAndIdempotencyKey(scope, key);
+                if (existing.isEmpty()) {
+                    // The other attempt failed and released the key
+                    break;
+                }
+
+                IdempotencyRecord record = existing.get();
+                checkFingerprint(record.getFingerprint(), fingerprint, key);
+                if (record.getStatus() == IdempotencyStatus.COMPLETED) {
+                    return Optional.of(record.getResponseBody());
+                }
+                if (record.getExpiresAt().isBefore(LocalDateTime.now()) && takeOver(scope, key, fingerprint)) {
+                    logger.warn("Took over idempotency key {} whose IN_PROGRESS lease had expired", key);
+                    return Optional.empty();
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+                }
+                try {
+                    Thread.sleep(REMOTE_POLL_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IdempotencyConflictException("Interrupted while waiting for Idempotency-Key " + key);
+                }
+            }
+
+            if (attempt >= MAX_CLAIM_ATTEMPTS) {
+                throw new IdempotencyConflictException("Idempotency-Key " + key + " is being claimed and released repeatedly; retry later");
+            }
+        }
+    }
+
+    /**
+     * @return false when the key is already claimed; other constraint failures propagate
+     */
+    private boolean insertClaim(String scope, String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> recordRepository.saveAndFlush(IdempotencyRecord.builder()
+                    .scope(scope)
+                    .idempotencyKey(key)
+                    .fingerprint(fingerprint)
+                    .status(IdempotencyStatus.IN_PROGRESS)
+                    .createdAt(now)
+                    .expiresAt(now.plusSeconds(inProgressLeaseSeconds))
+                    .build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (isUniqueViolation(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private boolean takeOver(String scope, String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status -> recordRepository.takeOverExpired(
+                scope, key, fingerprint, now, now.plusSeconds(inProgressLeaseSeconds)));
+        return updated != null && updated == 1;
+    }
+
+    private static boolean isUniqueViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scopes embed caller identity (an email) and can outgrow the column; long ones keep a readable prefix
+     * and end in a hash of the whole scope.
+     */
+    private static String storedScope(String scope) {
+        if (scope.length() <= MAX_SCOPE_LENGTH) {
+            return scope;
+        }
+        try {
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(scope.getBytes(StandardCharsets.UTF_8)));
+            return scope.substring(0, MAX_SCOPE_LENGTH - hash.length() - 1) + "#" + hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void release(String scope, String key) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> recordRepository.deleteByScopeAndKey(scope, key));
+        } catch (RuntimeException e) {
+            logger.error("Failed to release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private String await(CompletableFuture<String> response, String key) {
+        try {
+            return response.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted while waiting for Idempotency-Key " + key);
+        }
+    }
+
+    private void checkFingerprint(String expected, String actual, String key) {
+        if (!expected.equals(actual)) {
+            throw new IdempotencyConflictException("Idempotency-Key " + key + " was already used with a different request");
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] body = request == null ? new byte[0] : objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize idempotent response", e);
+        }
+    }
+
+    private <T> T deserialize(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored idempotent response", e);
+        }
+    }
+
+    private static final class LocalEntry {
+        private final String fingerprint;
+        private final CompletableFuture<String> response = new CompletableFuture<>();
+        private final long expiresAtNanos;
+
+        private LocalEntry(String fingerprint, long ttlSeconds) {
+            this.fingerprint = fingerprint;
+            this.expiresAtNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
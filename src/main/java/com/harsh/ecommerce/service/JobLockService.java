@@ -0,0 +1,53 @@
+package com.harsh.ecommerce.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cluster-wide mutual exclusion for scheduled jobs, backed by leases in job_locks.
+ */
+@Service
+public class JobLockService {
+
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO job_locks (job_name, owner, locked_until) VALUES (?, ?, ?) " +
+            "ON CONFLICT (job_name) DO UPDATE SET owner = EXCLUDED.owner, locked_until = EXCLUDED.locked_until " +
+            "WHERE job_locks.locked_until < ? OR job_locks.owner = EXCLUDED.owner";
+
+    private static final String RENEW_SQL =
+            "UPDATE job_locks SET locked_until = ? WHERE job_name = ? AND owner = ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE job_locks SET locked_until = ? WHERE job_name = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Unique per JVM, so two instances on one host do not share leases
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public JobLockService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean tryAcquire(String jobName, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(ACQUIRE_SQL, jobName, owner, Timestamp.valueOf(now.plus(lease)), Timestamp.valueOf(now)) > 0;
+    }
+
+    /**
+     * Extends the lease. Returns false if it was lost (expired and taken by another node).
+     */
+    public boolean renew(String jobName, Duration lease) {
+        return jdbcTemplate.update(RENEW_SQL, Timestamp.valueOf(LocalDateTime.now().plus(lease)), jobName, owner) > 0;
+    }
+
+    public void release(String jobName) {
+        jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(LocalDateTime.now()), jobName, owner);
+    }
+}
@@ -0,0 +1,392 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.dto.MailDispatchStatusDto;
+import com.harsh.ecommerce.ratelimit.TokenBucket;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import com.harsh.ecommerce.resilience.ResilienceGuard;
+import com.harsh.ecommerce.resilience.ResilienceRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends mail through a few long-lived SMTP connections instead of one connection (and TLS handshake) per
+ * message.
+ * <p>
+ * Messages go on a queue drained by worker threads. Each worker keeps its own authenticated
+ * {@link Transport} open and sends everything it takes off the queue over it, reconnecting after
+ * {@code messages-per-connection} messages or when idle for {@code idle-timeout-ms}. A message whose
+ * recipient domain is over its rate waits on the queue until the domain has capacity, without holding up
+ * other domains. Transient failures drop the connection and retry the message with jittered backoff;
+ * rejected recipients and exhausted retries fail the message's future, and the caller (the outbox) decides
+ * what happens next.
+ * <p>
+ * Everything is read from the {@link JavaMailSenderImpl}, so pointing {@code spring.mail.host}/{@code port}
+ * at a local SMTP server (with no username, auth is off) is all a test needs.
+ */
+@Component
+public class MailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailDispatcher.class);
+
+    public static final String DEPENDENCY = "mail-dispatch";
+
+    // Domains seen so far; past this the throttles are reset rather than grown without bound
+    private static final int MAX_TRACKED_DOMAINS = 10_000;
+
+    private final JavaMailSenderImpl mailSender;
+    private final ResilienceRegistry resilienceRegistry;
+    private final DelayQueue<PendingMail> queue = new DelayQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<String, TokenBucket> domainThrottles = new ConcurrentHashMap<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    @Value("${app.mail.dispatch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.dispatch.workers:2}")
+    private int workerCount;
+
+    @Value("${app.mail.dispatch.queue-capacity:5000}")
+    private int queueCapacity;
+
+    @Value("${app.mail.dispatch.batch-size:50}")
+    private int batchSize;
+
+    // Many servers cap messages per session; reconnect before hitting the cap
+    @Value("${app.mail.dispatch.messages-per-connection:100}")
+    private int messagesPerConnection;
+
+    @Value("${app.mail.dispatch.idle-timeout-ms:30000}")
+    private long idleTimeoutMs;
+
+    @Value("${app.mail.dispatch.send-timeout-ms:60000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.mail.dispatch.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.mail.dispatch.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${app.mail.dispatch.backoff-max-ms:30000}")
+    private long backoffMaxMs;
+
+    @Value("${app.mail.dispatch.per-domain-rate-per-second:5}")
+    private double perDomainRatePerSecond;
+
+    @Value("${app.mail.dispatch.per-domain-burst:20}")
+    private int perDomainBurst;
+
+    private RetryBackoff backoff;
+    private ResilienceGuard guard;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public MailDispatcher(JavaMailSenderImpl mailSender, ResilienceRegistry resilienceRegistry) {
+        this.mailSender = mailSender;
+        this.resilienceRegistry = resilienceRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        backoff = new RetryBackoff(backoffInitialMs, backoffMaxMs, 0.5);
+        guard = resilienceRegistry.guard(ResilienceRegistry.SMTP);
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            Thread thread = new Thread(new Worker(), "mail-dispatch-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(thread);
+        }
+        logger.info("Mail dispatcher started (workers={}, batchSize={})", workerCount, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Whatever is left (including messages waiting out a delay) goes back to the callers;
+        // outbox events are retried after restart
+        List<PendingMail> remaining = new ArrayList<>(queue);
+        queue.clear();
+        remaining.forEach(mail -> mail.future.completeExceptionally(new MailSendException("Mail dispatcher is shutting down")));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a message and returns at once. The future completes when the message has been accepted by the
+     * SMTP server, or exceptionally when it could not be sent.
+     *
+     * @throws CallNotPermittedException when the queue is full
+     */
+    public CompletableFuture<Void> submit(SimpleMailMessage message) {
+        if (!running) {
+            throw new MailSendException("Mail dispatcher is not running");
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            throw new CallNotPermittedException(DEPENDENCY, "mail queue is full", Duration.ofSeconds(5));
+        }
+        PendingMail mail = new PendingMail(message);
+        mail.future.whenComplete((result, error) -> queued.decrementAndGet());
+        queue.offer(mail);
+        return mail.future;
+    }
+
+    /**
+     * Queues a message and waits until it has been sent. Exceptions are those of {@link #submit} and of the
+     * send itself ({@code MailException}, or {@code CallNotPermittedException} while the SMTP circuit is open).
+     */
+    public void send(SimpleMailMessage message) {
+        CompletableFuture<Void> future = submit(message);
+        try {
+            future.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A worker skips a message whose future is already done, so this one will not go out later
+            future.cancel(false);
+            throw new MailSendException("Timed out waiting for the mail to be sent");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for the mail to be sent");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new MailSendException("Mail could not be sent", e.getCause());
+        }
+    }
+
+    public MailDispatchStatusDto getStatus() {
+        return MailDispatchStatusDto.builder()
+                .enabled(enabled)
+                .workers(workers.size())
+                .queued(queued.get())
+                .queueCapacity(queueCapacity)
+                .sent(sent.sum())
+                .failed(failed.sum())
+                .retried(retried.sum())
+                .throttled(throttled.sum())
+                .connectionsOpened(connectionsOpened.sum())
+                .openConnections(openConnections.get())
+                .trackedDomains(domainThrottles.size())
+                .build();
+    }
+
+    private void requeue(PendingMail mail, long delayNanos) {
+        mail.notBeforeNanos = System.nanoTime() + delayNanos;
+        queue.offer(mail);
+    }
+
+    private TokenBucket throttle(String domain) {
+        if (domainThrottles.size() >= MAX_TRACKED_DOMAINS && !domainThrottles.containsKey(domain)) {
+            domainThrottles.clear();
+        }
+        return domainThrottles.computeIfAbsent(domain, d -> new TokenBucket(perDomainBurst, perDomainRatePerSecond));
+    }
+
+    private static String domainOf(SimpleMailMessage message) {
+        String[] to = message.getTo();
+        if (to == null || to.length == 0 || to[0] == null) {
+            return "";
+        }
+        int at = to[0].lastIndexOf('@');
+        return at >= 0 ? to[0].substring(at + 1).trim().toLowerCase() : "";
+    }
+
+    private static boolean isPermanent(MessagingException e) {
+        // Rejected recipients will be rejected again; bad credentials need an operator, not a retry
+        return e instanceof SendFailedException || e instanceof AuthenticationFailedException;
+    }
+
+    /**
+     * One SMTP connection, used only by the thread that owns it.
+     */
+    private final class Worker implements Runnable {
+
+        private final Session session = mailSender.getSession();
+        private Transport transport;
+        private int messagesOnConnection;
+
+        @Override
+        public void run() {
+            List<PendingMail> batch = new ArrayList<>(batchSize);
+            try {
+                while (running) {
+                    PendingMail first = queue.poll(idleTimeoutMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        close();
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    for (PendingMail mail : batch) {
+                        deliver(mail);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Taken but not delivered when interrupted
+                batch.forEach(mail -> mail.future.completeExceptionally(new MailSendException("Mail dispatcher is shutting down")));
+                close();
+            }
+        }
+
+        private void deliver(PendingMail mail) {
+            if (mail.future.isDone()) {
+                // The caller gave up waiting
+                return;
+            }
+            TokenBucket domainThrottle = throttle(mail.domain);
+            if (!domainThrottle.tryAcquire()) {
+                throttled.increment();
+                requeue(mail, domainThrottle.nanosUntilAvailable(1));
+                return;
+            }
+
+            mail.attempts++;
+            try {
+                guard.run(() -> sendOnConnection(mail.message));
+                sent.increment();
+                mail.future.complete(null);
+            } catch (CallNotPermittedException e) {
+                // SMTP circuit is open; the caller defers without this counting as an attempt
+                mail.future.completeExceptionally(e);
+            } catch (MailSendException e) {
+                close();
+                boolean permanent = e.getCause() instanceof MessagingException cause && isPermanent(cause);
+                if (!permanent && mail.attempts < maxAttempts && running) {
+                    retried.increment();
+                    logger.debug("Mail to {} failed on attempt {}, retrying: {}", mail.domain, mail.attempts, e.getMessage());
+                    requeue(mail, TimeUnit.MILLISECONDS.toNanos(backoff.delayMillis(mail.attempts)));
+                } else {
+                    failed.increment();
+                    logger.warn("Mail to {} failed after {} attempt(s): {}", mail.domain, mail.attempts, e.getMessage());
+                    mail.future.completeExceptionally(e);
+                }
+            } catch (RuntimeException e) {
+                failed.increment();
+                mail.future.completeExceptionally(e);
+            }
+        }
+
+        private void sendOnConnection(SimpleMailMessage message) {
+            try {
+                if (transport == null || !transport.isConnected() || messagesOnConnection >= messagesPerConnection) {
+                    close();
+                    connect();
+                }
+                MimeMessage mimeMessage = new MimeMessage(session);
+                message.copyTo(new MimeMailMessage(mimeMessage));
+                if (mimeMessage.getSentDate() == null) {
+                    mimeMessage.setSentDate(new Date());
+                }
+                mimeMessage.saveChanges();
+                messagesOnConnection++;
+                transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+            } catch (MessagingException e) {
+                throw new MailSendException("Failed to send mail: " + e.getMessage(), e);
+            }
+        }
+
+        private void connect() throws MessagingException {
+            String username = mailSender.getUsername();
+            boolean authenticated = username != null && !username.isBlank();
+            Transport connection = session.getTransport(mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp");
+            connection.connect(mailSender.getHost(), mailSender.getPort(),
+                    authenticated ? username : null, authenticated ? mailSender.getPassword() : null);
+            transport = connection;
+            messagesOnConnection = 0;
+            connectionsOpened.increment();
+            openConnections.incrementAndGet();
+        }
+
+        private void close() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                if (transport.isConnected()) {
+                    transport.close();
+                }
+            } catch (MessagingException e) {
+                logger.debug("Closing SMTP connection failed: {}", e.getMessage());
+            } finally {
+                transport = null;
+                openConnections.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class PendingMail implements Delayed {
+
+        private final SimpleMailMessage message;
+        private final String domain;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile long notBeforeNanos = System.nanoTime();
+        private int attempts;
+
+        private PendingMail(SimpleMailMessage message) {
+            this.message = message;
+            this.domain = domainOf(message);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(notBeforeNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(notBeforeNanos, ((PendingMail) other).notBeforeNanos);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.dto.OrderAnalyticsDto;
+import com.harsh.ecommerce.entity.OrderStatus;
+import com.harsh.ecommerce.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Order analytics in one grouped query, or, with {@code app.orders.analytics.incremental=true}, from
+ * in-memory per-status counters that OrderService and the order write pipeline adjust after every
+ * committed creation or status change. Counters only see this node's writes, so they are reconciled
+ * against the database on a fixed schedule; until the first reconciliation reads fall back to the query.
+ */
+@Component
+public class OrderAnalyticsCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderAnalyticsCounters.class);
+
+    static final Set<OrderStatus> REVENUE_STATUSES = EnumSet.of(OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+
+    private final OrderRepository orderRepository;
+
+    // Amounts are kept in cents (orders.total_amount has scale 2) so they fit a LongAdder
+    private final Map<OrderStatus, LongAdder> orderCounts = new EnumMap<>(OrderStatus.class);
+    private final Map<OrderStatus, LongAdder> amountCents = new EnumMap<>(OrderStatus.class);
+    private volatile long customerCount;
+    private volatile boolean reconciled;
+
+    @Value("${app.orders.analytics.incremental:false}")
+    private boolean incremental;
+
+    public OrderAnalyticsCounters(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+        for (OrderStatus status : OrderStatus.values()) {
+            orderCounts.put(status, new LongAdder());
+            amountCents.put(status, new LongAdder());
+        }
+    }
+
+    public OrderAnalyticsDto getAnalytics() {
+        if (incremental && reconciled) {
+            return fromCounters();
+        }
+        return fromAggregates(orderRepository.aggregateByStatus());
+    }
+
+    public void recordCreated(OrderStatus status, BigDecimal amount) {
+        if (incremental) {
+            afterCommit(() -> apply(status, 1, cents(amount)));
+        }
+    }
+
+    public void recordTransition(OrderStatus from, OrderStatus to, BigDecimal amount) {
+        if (incremental && from != to) {
+            long cents = cents(amount);
+            afterCommit(() -> {
+                apply(from, -1, -cents);
+                apply(to, 1, cents);
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.analytics.reconcile-interval-ms:300000}", initialDelay = 10000)
+    public void reconcile() {
+        if (!incremental) {
+            return;
+        }
+        // Updates committed between these two reads are counted twice until the next reconciliation
+        Map<OrderStatus, long[]> before = snapshot();
+        List<OrderRepository.OrderStatusAggregate> rows = orderRepository.aggregateByStatus();
+
+        Map<OrderStatus, long[]> actual = new EnumMap<>(OrderStatus.class);
+        long customers = 0;
+        for (OrderRepository.OrderStatusAggregate row : rows) {
+            if (row.getStatus() == null) {
+                customers = row.getCustomerCount();
+            } else {
+                actual.put(OrderStatus.valueOf(row.getStatus()), new long[]{row.getOrderCount(), cents(row.getTotalAmount())});
+            }
+        }
+
+        long drift = 0;
+        for (OrderStatus status : OrderStatus.values()) {
+            long[] expected = actual.getOrDefault(status, new long[2]);
+            long[] counted = before.get(status);
+            orderCounts.get(status).add(expected[0] - counted[0]);
+            amountCents.get(status).add(expected[1] - counted[1]);
+            drift += Math.abs(expected[0] - counted[0]);
+        }
+        customerCount = customers;
+        if (reconciled && drift > 0) {
+            logger.info("Order analytics counters corrected by {} orders", drift);
+        }
+        reconciled = true;
+    }
+
+    private void apply(OrderStatus status, long count, long cents) {
+        orderCounts.get(status).add(count);
+        amountCents.get(status).add(cents);
+    }
+
+    private Map<OrderStatus, long[]> snapshot() {
+        Map<OrderStatus, long[]> snapshot = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            snapshot.put(status, new long[]{orderCounts.get(status).sum(), amountCents.get(status).sum()});
+        }
+        return snapshot;
+    }
+
+    private OrderAnalyticsDto fromCounters() {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        long totalOrders = 0;
+        long revenueOrders = 0;
+        long revenueCents = 0;
+        for (OrderStatus status : OrderStatus.values()) {
+            long count = orderCounts.get(status).sum();
+            counts.put(status, count);
+            totalOrders += count;
+            if (REVENUE_STATUSES.contains(status)) {
+                revenueOrders += count;
+                revenueCents += amountCents.get(status).sum();
+            }
+        }
+        return build(counts, totalOrders, BigDecimal.valueOf(revenueCents, 2), revenueOrders, customerCount);
+    }
+
+    private OrderAnalyticsDto fromAggregates(List<OrderRepository.OrderStatusAggregate> rows) {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        long totalOrders = 0;
+        long revenueOrders = 0;
+        long customers = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (OrderRepository.OrderStatusAggregate row : rows) {
+            if (row.getStatus() == null) {
+                totalOrders = row.getOrderCount();
+                customers = row.getCustomerCount();
+                continue;
+            }
+            OrderStatus status = OrderStatus.valueOf(row.getStatus());
+            counts.put(status, row.getOrderCount());
+            if (REVENUE_STATUSES.contains(status)) {
+                revenueOrders += row.getOrderCount();
+                revenue = revenue.add(row.getTotalAmount());
+            }
+        }
+        return build(counts, totalOrders, revenue, revenueOrders, customers);
+    }
+
+    private OrderAnalyticsDto build(Map<OrderStatus, Long> counts, long totalOrders, BigDecimal revenue,
+                                    long revenueOrders, long customers) {
+        BigDecimal averageOrderValue = revenueOrders > 0
+                ? revenue.divide(BigDecimal.valueOf(revenueOrders), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+        return new OrderAnalyticsDto(
+                totalOrders,
+                counts.getOrDefault(OrderStatus.PENDING, 0L),
+                counts.getOrDefault(OrderStatus.PROCESSING, 0L),
+                counts.getOrDefault(OrderStatus.SHIPPED, 0L),
+                counts.getOrDefault(OrderStatus.DELIVERED, 0L),
+                counts.getOrDefault(OrderStatus.CANCELLED, 0L),
+                revenue,
+                averageOrderValue,
+                customers
+        );
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package com.harsh.ecommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style order numbers: 41 bits of milliseconds since {@link #EPOCH_MILLIS},
+ * 10 bits of node id and a 12 bit per-millisecond sequence, rendered as
+ * "ORD-" + 13 Crockford base32 characters.
+ * Numbers from one node are strictly increasing and sort lexicographically in creation order.
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNumberGenerator.class);
+
+    public static final String PREFIX = "ORD-";
+
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last number handed out
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Value("${app.orders.node-id:-1}")
+    private long configuredNodeId;
+
+    private long nodeId;
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId >= 0) {
+            if (configuredNodeId > MAX_NODE_ID) {
+                throw new IllegalStateException("app.orders.node-id must be between 0 and " + MAX_NODE_ID);
+            }
+            nodeId = configuredNodeId;
+        } else {
+            nodeId = deriveNodeId();
+            // Ten bits of a hash: two hosts share an id often enough that their order numbers can collide
+            logger.warn("app.orders.node-id not set; derived node id {} from a 10-bit hash of the host name. "
+                    + "Nodes whose hashes collide can generate duplicate order numbers; set a unique app.orders.node-id "
+                    + "on every instance", nodeId);
+        }
+    }
+
+    public String nextOrderNumber() {
+        return PREFIX + encode(nextId());
+    }
+
+    /**
+     * Returns the creation time embedded in an order number, or empty for numbers
+     * that were not produced by this generator (e.g. the older timestamp/UUID format).
+     */
+    public Optional<Instant> decodeTimestamp(String orderNumber) {
+        if (orderNumber == null || !orderNumber.startsWith(PREFIX)
+                || orderNumber.length() != PREFIX.length() + ENCODED_LENGTH) {
+            return Optional.empty();
+        }
+
+        long id = 0;
+        for (int i = PREFIX.length(); i < orderNumber.length(); i++) {
+            int digit = decodeChar(orderNumber.charAt(i));
+            if (digit < 0) {
+                return Optional.empty();
+            }
+            id = (id << 5) | digit;
+        }
+        return Optional.of(Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS));
+    }
+
+    long nextId() {
+        long state;
+        long next;
+        do {
+            state = lastState.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            // When the sequence overflows or the clock steps back we keep counting from the last
+            // state, borrowing the next millisecond instead of blocking or repeating a number.
+            next = Math.max(now << SEQUENCE_BITS, state + 1);
+        } while (!lastState.compareAndSet(state, next));
+
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    private static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static int decodeChar(char c) {
+        char upper = Character.toUpperCase(c);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == upper) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long deriveNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE_ID;
+        } catch (Exception e) {
+            return ProcessHandle.current().pid() & MAX_NODE_ID;
+        }
+    }
+}
@@ -12,22 +12,30 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
 
+    // Slack between the time encoded in an order number and the persisted created_at
+    private static final Duration ORDER_NUMBER_CLOCK_SKEW = Duration.ofMinutes(5);
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartRepository cartRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final CartService cartService;
-    private final EmailService emailService; // Added EmailService
+    private final OutboxService outboxService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderAnalyticsCounters orderAnalyticsCounters;
+    private final OrderStateMachine orderStateMachine;
 
     public OrderService(OrderRepository orderRepository,
                         OrderItemRepository orderItemRepository,
@@ -35,18 +43,20 @@ public class OrderService {
                         ProductRepository productRepository,
                         UserRepository userRepository,
                         CartService cartService,
-                        EmailService emailService) { // Added EmailService injection
+                        OutboxService outboxService,
+                        OrderNumberGenerator orderNumberGenerator,
+                        OrderAnalyticsCounters orderAnalyticsCounters,
+                        OrderStateMachine orderStateMachine) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.cartRepository = cartRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.cartService = cartService;
-        this.emailService = emailService; // Initialize EmailService
-    }
-
-    public void updateOrderStatus(Long orderId, OrderStatus status) {
-        updateOrderStatus(orderId, new UpdateOrderStatusDto(status));
+        this.outboxService = outboxService;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.orderAnalyticsCounters = orderAnalyticsCounters;
+        this.orderStateMachine = orderStateMachine;
     }
 
     public OrderDto createOrderFromCart(String userEmail, CreateOrderDto createOrderDto) {
@@ -98,18 +108,9 @@ public class OrderService {
 
         order.calculateTotals();
         order = orderRepository.save(order);
+        orderAnalyticsCounters.recordCreated(order.getStatus(), order.getTotalAmount());
 
-        // FIXED: Send order confirmation email
-        try {
-            emailService.sendOrderConfirmationEmail(
-                    user.getEmail(),
-                    order.getOrderNumber(),
-                    order.getTotalAmount().doubleValue()
-            );
-            System.out.println("✅ Order confirmation email sent to: " + user.getEmail());
-        } catch (Exception e) {
-            System.err.println("❌ Failed to send order confirmation email: " + e.getMessage());
-        }
+        publishOrderEvent(order, OutboxEventType.ORDER_CONFIRMED, Map.of("amount", order.getTotalAmount()));
 
         cartService.clearCart(userId);
         return convertToOrderDto(order);
@@ -126,6 +127,23 @@ public class OrderService {
         return convertToOrderDto(order);
     }
 
+    @Transactional(readOnly = true)
+    public OrderDto getOrderByNumber(String orderNumber, String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + userEmail));
+
+        // New-format numbers carry their creation time, so the lookup can be bounded by created_at
+        Order order = orderNumberGenerator.decodeTimestamp(orderNumber)
+                .map(created -> orderRepository.findByOrderNumberAndCreatedAtBetween(orderNumber,
+                        LocalDateTime.ofInstant(created.minus(ORDER_NUMBER_CLOCK_SKEW), ZoneId.systemDefault()),
+                        LocalDateTime.ofInstant(created.plus(ORDER_NUMBER_CLOCK_SKEW), ZoneId.systemDefault())))
+                .orElseGet(() -> orderRepository.findByOrderNumber(orderNumber))
+                .filter(o -> o.getUser().getId().equals(user.getId()))
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        return convertToOrderDto(order);
+    }
+
     @Transactional(readOnly = true)
     public OrderDto getOrderByIdForAdmin(Long orderId) {
         Order order = orderRepository.findByIdWithItems(orderId)
@@ -156,166 +174,22 @@ public class OrderService {
     }
 
     public OrderDto updateOrderStatus(Long orderId, UpdateOrderStatusDto updateDto) {
-        Order order = orderRepository.findByIdWithItems(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        OrderStatus oldStatus = order.getStatus();
-        order.setStatus(updateDto.getStatus());
-
-        switch (updateDto.getStatus()) {
-            case SHIPPED:
-                order.markAsShipped();
-                // FIXED: Send shipping notification email
-                try {
-                    emailService.sendShippingNotificationEmail(
-                            order.getUser().getEmail(),
-                            order.getOrderNumber(),
-                            "TRK" + System.currentTimeMillis() // Generate tracking number
-                    );
-                    System.out.println("✅ Shipping notification email sent to: " + order.getUser().getEmail());
-                } catch (Exception e) {
-                    System.err.println("❌ Failed to send shipping notification email: " + e.getMessage());
-                }
-                break;
-            case DELIVERED:
-                order.markAsDelivered();
-                // FIXED: Send delivery confirmation email
-                try {
-                    emailService.sendDeliveryConfirmationEmail(
-                            order.getUser().getEmail(),
-                            order.getOrderNumber()
-                    );
-                    System.out.println("✅ Delivery confirmation email sent to: " + order.getUser().getEmail());
-                } catch (Exception e) {
-                    System.err.println("❌ Failed to send delivery confirmation email: " + e.getMessage());
-                }
-                break;
-            case CANCELLED:
-                handleOrderCancellation(order);
-                // FIXED: Send order cancellation email
-                try {
-                    emailService.sendOrderCancellationEmail(
-                            order.getUser().getEmail(),
-                            order.getOrderNumber()
-                    );
-                    System.out.println("✅ Order cancellation email sent to: " + order.getUser().getEmail());
-                } catch (Exception e) {
-                    System.err.println("❌ Failed to send order cancellation email: " + e.getMessage());
-                }
-                break;
-            default:
-                break;
-        }
-
-        if (updateDto.getNotes() != null) {
-            order.setNotes(updateDto.getNotes());
-        }
-
-        order = orderRepository.save(order);
-        return convertToOrderDto(order);
+        orderStateMachine.transitionOrder(orderId, updateDto.getStatus(), updateDto.getNotes());
+        return convertToOrderDto(findOrderWithItems(orderId));
     }
 
     public void cancelOrder(Long orderId, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + userEmail));
-
-        Order order = orderRepository.findByIdAndUserId(orderId, user.getId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        if (!order.canBeCancelled()) {
-            throw new RuntimeException("Order cannot be cancelled in current status: " + order.getStatus());
-        }
-
-        handleOrderCancellation(order);
-        order.setStatus(OrderStatus.CANCELLED);
-        orderRepository.save(order);
-
-        // FIXED: Send order cancellation email
-        try {
-            emailService.sendOrderCancellationEmail(
-                    user.getEmail(),
-                    order.getOrderNumber()
-            );
-            System.out.println("✅ Order cancellation email sent to: " + user.getEmail());
-        } catch (Exception e) {
-            System.err.println("❌ Failed to send order cancellation email: " + e.getMessage());
-        }
-    }
-
-    public void updatePaymentStatus(Long orderId, PaymentStatus status) {
-        updatePaymentStatus(orderId, new UpdatePaymentStatusDto(status));
+        orderStateMachine.cancelByCustomer(orderId, userEmail);
     }
 
     public OrderDto updatePaymentStatus(Long orderId, UpdatePaymentStatusDto updateDto) {
-        Order order = orderRepository.findByIdWithItems(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        PaymentStatus oldStatus = order.getPaymentStatus();
-        order.setPaymentStatus(updateDto.getStatus());
-
-        // FIXED: Send payment-related emails
-        if (oldStatus != updateDto.getStatus()) {
-            switch (updateDto.getStatus()) {
-                case COMPLETED:
-                    try {
-                        emailService.sendPaymentSuccessEmail(
-                                order.getUser().getEmail(),
-                                order.getOrderNumber(),
-                                order.getTotalAmount().doubleValue()
-                        );
-                        System.out.println("✅ Payment success email sent to: " + order.getUser().getEmail());
-                    } catch (Exception e) {
-                        System.err.println("❌ Failed to send payment success email: " + e.getMessage());
-                    }
-                    break;
-                case FAILED:
-                    try {
-                        emailService.sendPaymentFailedEmail(
-                                order.getUser().getEmail(),
-                                order.getOrderNumber()
-                        );
-                        System.out.println("✅ Payment failed email sent to: " + order.getUser().getEmail());
-                    } catch (Exception e) {
-                        System.err.println("❌ Failed to send payment failed email: " + e.getMessage());
-                    }
-                    break;
-                default:
-                    break;
-            }
-        }
-
-        if (updateDto.getNotes() != null) {
-            order.setNotes(updateDto.getNotes());
-        }
-
-        order = orderRepository.save(order);
-        return convertToOrderDto(order);
+        orderStateMachine.transitionOrderPayment(orderId, updateDto.getStatus(), updateDto.getNotes());
+        return convertToOrderDto(findOrderWithItems(orderId));
     }
 
     @Transactional(readOnly = true)
     public OrderAnalyticsDto getOrderAnalytics() {
-        Long totalOrders = orderRepository.countTotalOrders();
-        Long pendingOrders = orderRepository.countOrdersByStatus(OrderStatus.PENDING);
-        Long processingOrders = orderRepository.countOrdersByStatus(OrderStatus.PROCESSING);
-        Long shippedOrders = orderRepository.countOrdersByStatus(OrderStatus.SHIPPED);
-        Long deliveredOrders = orderRepository.countOrdersByStatus(OrderStatus.DELIVERED);
-        Long cancelledOrders = orderRepository.countOrdersByStatus(OrderStatus.CANCELLED);
-
-        BigDecimal totalRevenue = orderRepository.getTotalRevenue();
-        BigDecimal averageOrderValue = orderRepository.getAverageOrderValue();
-        Long totalCustomers = orderRepository.countUniqueCustomers();
-
-        return new OrderAnalyticsDto(
-                totalOrders != null ? totalOrders : 0L,
-                pendingOrders != null ? pendingOrders : 0L,
-                processingOrders != null ? processingOrders : 0L,
-                shippedOrders != null ? shippedOrders : 0L,
-                deliveredOrders != null ? deliveredOrders : 0L,
-                cancelledOrders != null ? cancelledOrders : 0L,
-                totalRevenue != null ? totalRevenue : BigDecimal.ZERO,
-                averageOrderValue != null ? averageOrderValue : BigDecimal.ZERO,
-                totalCustomers != null ? totalCustomers : 0L
-        );
+        return orderAnalyticsCounters.getAnalytics();
     }
 
     private void validateCartStock(Cart cart) {
@@ -331,18 +205,20 @@ public class OrderService {
         }
     }
 
-    private void handleOrderCancellation(Order order) {
-        for (OrderItem orderItem : order.getOrderItems()) {
-            Product product = orderItem.getProduct();
-            product.setStock(product.getStock() + orderItem.getQuantity());
-            productRepository.save(product);
-        }
+    private Order findOrderWithItems(Long orderId) {
+        return orderRepository.findByIdWithItems(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+    }
+
+    String generateOrderNumber() {
+        return orderNumberGenerator.nextOrderNumber();
     }
 
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String randomPart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return "ORD-" + timestamp + "-" + randomPart;
+    private void publishOrderEvent(Order order, OutboxEventType eventType, Map<String, Object> details) {
+        Map<String, Object> payload = new HashMap<>(details);
+        payload.put("email", order.getUser().getEmail());
+        payload.put("orderNumber", order.getOrderNumber());
+        outboxService.publish("ORDER", order.getId(), eventType, payload);
     }
 
     private OrderDto convertToOrderDto(Order order) {
@@ -0,0 +1,330 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.entity.OrderStatus;
+import com.harsh.ecommerce.entity.OutboxEventType;
+import com.harsh.ecommerce.entity.PaymentStatus;
+import com.harsh.ecommerce.entity.PaymentTransactionStatus;
+import com.harsh.ecommerce.exception.InvalidOrderStatusException;
+import com.harsh.ecommerce.exception.OrderNotFoundException;
+import com.harsh.ecommerce.exception.PaymentNotFoundException;
+import com.harsh.ecommerce.exception.PaymentProcessingException;
+import com.harsh.ecommerce.repository.OrderRepository;
+import com.harsh.ecommerce.repository.OrderRepository.OrderStatusSnapshot;
+import com.harsh.ecommerce.repository.PaymentRepository;
+import com.harsh.ecommerce.repository.PaymentRepository.PaymentStatusSnapshot;
+import com.harsh.ecommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The only place order, order payment and payment transaction statuses change.
+ * <p>
+ * Allowed moves are listed in the transition tables below. A move reads the current status, checks the
+ * table and writes with {@code UPDATE ... WHERE status = <what was read>}; if another request moved the row
+ * first, the update matches nothing and the move is re-checked against the new status. A late webhook
+ * therefore can never take an order backwards, and no entity is loaded on the way.
+ * <p>
+ * The {@code transition*} methods throw when a move is not allowed; the {@code try*} methods, used for
+ * webhooks and background jobs, skip it and return false.
+ */
+@Service
+@Transactional
+public class OrderStateMachine {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStateMachine.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final Map<OrderStatus, Set<OrderStatus>> ORDER_TRANSITIONS = new EnumMap<>(OrderStatus.class);
+    private static final Map<PaymentStatus, Set<PaymentStatus>> ORDER_PAYMENT_TRANSITIONS = new EnumMap<>(PaymentStatus.class);
+    private static final Map<PaymentTransactionStatus, Set<PaymentTransactionStatus>> PAYMENT_TRANSITIONS =
+            new EnumMap<>(PaymentTransactionStatus.class);
+
+    // Outbox events published when an order or its payment enters a status
+    private static final Map<OrderStatus, OutboxEventType> ORDER_EVENTS = new EnumMap<>(OrderStatus.class);
+    private static final Map<PaymentStatus, OutboxEventType> ORDER_PAYMENT_EVENTS = new EnumMap<>(PaymentStatus.class);
+
+    // Customers may cancel only before the order is confirmed for fulfilment
+    private static final Set<OrderStatus> CUSTOMER_CANCELLABLE = EnumSet.of(OrderStatus.PENDING, OrderStatus.PROCESSING);
+
+    static {
+        ORDER_TRANSITIONS.put(OrderStatus.PENDING, EnumSet.of(OrderStatus.CONFIRMED, OrderStatus.PROCESSING, OrderStatus.CANCELLED));
+        ORDER_TRANSITIONS.put(OrderStatus.CONFIRMED, EnumSet.of(OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.CANCELLED, OrderStatus.REFUNDED));
+        ORDER_TRANSITIONS.put(OrderStatus.PROCESSING, EnumSet.of(OrderStatus.SHIPPED, OrderStatus.CANCELLED, OrderStatus.REFUNDED));
+        ORDER_TRANSITIONS.put(OrderStatus.SHIPPED, EnumSet.of(OrderStatus.DELIVERED, OrderStatus.REFUNDED));
+        ORDER_TRANSITIONS.put(OrderStatus.DELIVERED, EnumSet.of(OrderStatus.REFUNDED));
+        ORDER_TRANSITIONS.put(OrderStatus.CANCELLED, EnumSet.noneOf(OrderStatus.class));
+        ORDER_TRANSITIONS.put(OrderStatus.REFUNDED, EnumSet.noneOf(OrderStatus.class));
+
+        ORDER_PAYMENT_TRANSITIONS.put(PaymentStatus.PENDING, EnumSet.of(PaymentStatus.PROCESSING, PaymentStatus.COMPLETED, PaymentStatus.FAILED, PaymentStatus.CANCELLED));
+        ORDER_PAYMENT_TRANSITIONS.put(PaymentStatus.PROCESSING, EnumSet.of(PaymentStatus.COMPLETED, PaymentStatus.FAILED, PaymentStatus.CANCELLED));
+        ORDER_PAYMENT_TRANSITIONS.put(PaymentStatus.FAILED, EnumSet.of(PaymentStatus.PENDING, PaymentStatus.PROCESSING, PaymentStatus.COMPLETED, PaymentStatus.CANCELLED));
+        ORDER_PAYMENT_TRANSITIONS.put(PaymentStatus.COMPLETED, EnumSet.of(PaymentStatus.REFUNDED));
+        ORDER_PAYMENT_TRANSITIONS.put(PaymentStatus.CANCELLED, EnumSet.noneOf(PaymentStatus.class));
+        ORDER_PAYMENT_TRANSITIONS.put(PaymentStatus.REFUNDED, EnumSet.noneOf(PaymentStatus.class));
+
+        PAYMENT_TRANSITIONS.put(PaymentTransactionStatus.PENDING, EnumSet.of(PaymentTransactionStatus.PROCESSING,
+                PaymentTransactionStatus.SUCCEEDED, PaymentTransactionStatus.FAILED, PaymentTransactionStatus.CANCELED));
+        PAYMENT_TRANSITIONS.put(PaymentTransactionStatus.PROCESSING, EnumSet.of(PaymentTransactionStatus.PENDING,
+                PaymentTransactionStatus.SUCCEEDED, PaymentTransactionStatus.FAILED, PaymentTransactionStatus.CANCELED));
+        // A failed intent can be retried, and Stripe may still report a later success
+        PAYMENT_TRANSITIONS.put(PaymentTransactionStatus.FAILED, EnumSet.of(PaymentTransactionStatus.PENDING,
+                PaymentTransactionStatus.PROCESSING, PaymentTransactionStatus.SUCCEEDED, PaymentTransactionStatus.CANCELED));
+        PAYMENT_TRANSITIONS.put(PaymentTransactionStatus.SUCCEEDED, EnumSet.of(PaymentTransactionStatus.PARTIALLY_REFUNDED,
+                PaymentTransactionStatus.REFUNDED));
+        PAYMENT_TRANSITIONS.put(PaymentTransactionStatus.PARTIALLY_REFUNDED, EnumSet.of(PaymentTransactionStatus.REFUNDED));
+        PAYMENT_TRANSITIONS.put(PaymentTransactionStatus.CANCELED, EnumSet.noneOf(PaymentTransactionStatus.class));
+        PAYMENT_TRANSITIONS.put(PaymentTransactionStatus.REFUNDED, EnumSet.noneOf(PaymentTransactionStatus.class));
+
+        ORDER_EVENTS.put(OrderStatus.SHIPPED, OutboxEventType.ORDER_SHIPPED);
+        ORDER_EVENTS.put(OrderStatus.DELIVERED, OutboxEventType.ORDER_DELIVERED);
+        ORDER_EVENTS.put(OrderStatus.CANCELLED, OutboxEventType.ORDER_CANCELLED);
+
+        ORDER_PAYMENT_EVENTS.put(PaymentStatus.COMPLETED, OutboxEventType.PAYMENT_SUCCEEDED);
+        ORDER_PAYMENT_EVENTS.put(PaymentStatus.FAILED, OutboxEventType.PAYMENT_FAILED);
+    }
+
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final ProductRepository productRepository;
+    private final OutboxService outboxService;
+    private final OrderAnalyticsCounters orderAnalyticsCounters;
+
+    public OrderStateMachine(OrderRepository orderRepository,
+                             PaymentRepository paymentRepository,
+                             ProductRepository productRepository,
+                             OutboxService outboxService,
+                             OrderAnalyticsCounters orderAnalyticsCounters) {
+        this.orderRepository = orderRepository;
+        this.paymentRepository = paymentRepository;
+        this.productRepository = productRepository;
+        this.outboxService = outboxService;
+        this.orderAnalyticsCounters = orderAnalyticsCounters;
+    }
+
+    public static boolean canTransition(OrderStatus from, OrderStatus to) {
+        return ORDER_TRANSITIONS.get(from).contains(to);
+    }
+
+    public static boolean canTransition(PaymentStatus from, PaymentStatus to) {
+        return ORDER_PAYMENT_TRANSITIONS.get(from).contains(to);
+    }
+
+    public static boolean canTransition(PaymentTransactionStatus from, PaymentTransactionStatus to) {
+        return PAYMENT_TRANSITIONS.get(from).contains(to);
+    }
+
+    /**
+     * Moves an order, or throws {@link InvalidOrderStatusException}. Returns false if it already had the status;
+     * notes are still saved then.
+     */
+    public boolean transitionOrder(Long orderId, OrderStatus to, String notes) {
+        return moveOrder(orderId, to, notes, true, order -> { });
+    }
+
+    public boolean tryTransitionOrder(Long orderId, OrderStatus to) {
+        return moveOrder(orderId, to, null, false, order -> { });
+    }
+
+    /**
+     * Cancels an order on behalf of its customer. Someone else's order is reported as not found.
+     */
+    public boolean cancelByCustomer(Long orderId, String userEmail) {
+        return moveOrder(orderId, OrderStatus.CANCELLED, null, true, order -> {
+            if (!order.getEmail().equals(userEmail)) {
+                throw new OrderNotFoundException("Order not found");
+            }
+            if (!CUSTOMER_CANCELLABLE.contains(order.getStatus())) {
+                throw new InvalidOrderStatusException("Order cannot be cancelled in current status: " + order.getStatus());
+            }
+        });
+    }
+
+    public boolean transitionOrderPayment(Long orderId, PaymentStatus to, String notes) {
+        return moveOrderPayment(orderId, to, notes, true);
+    }
+
+    public boolean tryTransitionOrderPayment(Long orderId, PaymentStatus to) {
+        return moveOrderPayment(orderId, to, null, false);
+    }
+
+    /**
+     * Carries a payment outcome over to its order: success confirms it, failure cancels it and restocks.
+     * <p>
+     * A failed intent can still succeed later (the customer retries on Stripe's side), but a cancelled order
+     * stays cancelled and its stock has been released. Such a success is not applied to the order and false
+     * is returned, so the caller can flag the charge for a refund.
+     */
+    public boolean applyPaymentOutcome(Long orderId, PaymentTransactionStatus outcome) {
+        if (outcome == PaymentTransactionStatus.SUCCEEDED) {
+            OrderStatusSnapshot order = orderRepository.findStatusSnapshot(orderId)
+                    .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + orderId));
+            if (order.getStatus() == OrderStatus.CANCELLED) {
+                logger.error("Payment succeeded for cancelled order {}; the charge has to be refunded", order.getOrderNumber());
+                return false;
+            }
+            tryTransitionOrderPayment(orderId, PaymentStatus.COMPLETED);
+            tryTransitionOrder(orderId, OrderStatus.CONFIRMED);
+        } else if (outcome == PaymentTransactionStatus.FAILED) {
+            tryTransitionOrderPayment(orderId, PaymentStatus.FAILED);
+            tryTransitionOrder(orderId, OrderStatus.CANCELLED);
+        }
+        return true;
+    }
+
+    /**
+     * Moves a payment, or throws {@link PaymentNotFoundException} / {@link PaymentProcessingException}.
+     */
+    public PaymentTransition transitionPayment(String stripePaymentIntentId, PaymentTransactionStatus to) {
+        return movePayment(stripePaymentIntentId, null, to, true)
+                .orElseThrow(() -> new PaymentNotFoundException("Payment not found for intent: " + stripePaymentIntentId));
+    }
+
+    /**
+     * Moves a payment if the table allows it and, when {@code expected} is given, only from that status.
+     * Empty if there is no such payment; otherwise {@link PaymentTransition#applied()} tells whether it moved.
+     */
+    public Optional<PaymentTransition> tryTransitionPayment(String stripePaymentIntentId, PaymentTransactionStatus expected,
+                                                            PaymentTransactionStatus to) {
+        return movePayment(stripePaymentIntentId, expected, to, false);
+    }
+
+    private boolean moveOrder(Long orderId, OrderStatus to, String notes, boolean strict,
+                              Consumer<OrderStatusSnapshot> precondition) {
+        for (int attempt = 1; ; attempt++) {
+            OrderStatusSnapshot order = orderRepository.findStatusSnapshot(orderId)
+                    .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + orderId));
+            precondition.accept(order);
+
+            OrderStatus from = order.getStatus();
+            LocalDateTime now = LocalDateTime.now();
+            if (from == to) {
+                if (notes != null) {
+                    orderRepository.compareAndSetStatus(orderId, from, to, now, null, null, notes);
+                }
+                return false;
+            }
+            if (!canTransition(from, to)) {
+                if (strict) {
+                    throw new InvalidOrderStatusException("Order " + order.getOrderNumber() + " cannot move from " + from + " to " + to);
+                }
+                logger.info("Skipping order {} transition {} -> {}: not allowed", orderId, from, to);
+                return false;
+            }
+
+            int updated = orderRepository.compareAndSetStatus(orderId, from, to, now,
+                    to == OrderStatus.SHIPPED ? now : null, to == OrderStatus.DELIVERED ? now : null, notes);
+            if (updated == 1) {
+                onOrderTransition(order, from, to, now);
+                return true;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new InvalidOrderStatusException("Order " + order.getOrderNumber() + " is being updated concurrently, try again");
+            }
+        }
+    }
+
+    private boolean moveOrderPayment(Long orderId, PaymentStatus to, String notes, boolean strict) {
+        for (int attempt = 1; ; attempt++) {
+            OrderStatusSnapshot order = orderRepository.findStatusSnapshot(orderId)
+                    .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + orderId));
+
+            PaymentStatus from = order.getPaymentStatus();
+            LocalDateTime now = LocalDateTime.now();
+            if (from == to) {
+                if (notes != null) {
+                    orderRepository.compareAndSetPaymentStatus(orderId, from, to, now, notes);
+                }
+                return false;
+            }
+            if (!canTransition(from, to)) {
+                if (strict) {
+                    throw new InvalidOrderStatusException("Payment of order " + order.getOrderNumber() + " cannot move from " + from + " to " + to);
+                }
+                logger.info("Skipping order {} payment transition {} -> {}: not allowed", orderId, from, to);
+                return false;
+            }
+
+            if (orderRepository.compareAndSetPaymentStatus(orderId, from, to, now, notes) == 1) {
+                OutboxEventType event = ORDER_PAYMENT_EVENTS.get(to);
+                if (event != null) {
+                    publish(order, event, to == PaymentStatus.COMPLETED ? Map.of("amount", order.getTotalAmount()) : Map.of());
+                }
+                return true;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new InvalidOrderStatusException("Order " + order.getOrderNumber() + " is being updated concurrently, try again");
+            }
+        }
+    }
+
+    private Optional<PaymentTransition> movePayment(String stripePaymentIntentId, PaymentTransactionStatus expected,
+                                                    PaymentTransactionStatus to, boolean strict) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<PaymentStatusSnapshot> snapshot = paymentRepository.findStatusSnapshot(stripePaymentIntentId);
+            if (snapshot.isEmpty()) {
+                return Optional.empty();
+            }
+            PaymentStatusSnapshot payment = snapshot.get();
+            PaymentTransactionStatus from = payment.getStatus();
+            PaymentTransition skipped = new PaymentTransition(payment.getId(), payment.getOrderId(), from, to, false);
+
+            if (from == to || (expected != null && from != expected)) {
+                return Optional.of(skipped);
+            }
+            if (!canTransition(from, to)) {
+                if (strict) {
+                    throw new PaymentProcessingException("Payment " + stripePaymentIntentId + " cannot move from " + from + " to " + to);
+                }
+                logger.info("Skipping payment {} transition {} -> {}: not allowed", stripePaymentIntentId, from, to);
+                return Optional.of(skipped);
+            }
+
+            if (paymentRepository.compareAndSetStatus(payment.getId(), from, to, LocalDateTime.now()) == 1) {
+                return Optional.of(new PaymentTransition(payment.getId(), payment.getOrderId(), from, to, true));
+            }
+            if (expected != null) {
+                // The caller only wanted to move it from the status it saw
+                return Optional.of(skipped);
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new PaymentProcessingException("Payment " + stripePaymentIntentId + " is being updated concurrently, try again");
+            }
+        }
+    }
+
+    private void onOrderTransition(OrderStatusSnapshot order, OrderStatus from, OrderStatus to, LocalDateTime now) {
+        if (to == OrderStatus.CANCELLED) {
+            productRepository.restockOrderItems(order.getId(), now);
+        }
+        OutboxEventType event = ORDER_EVENTS.get(to);
+        if (event != null) {
+            publish(order, event, to == OrderStatus.SHIPPED
+                    ? Map.of("trackingNumber", "TRK" + System.currentTimeMillis()) // Generate tracking number
+                    : Map.of());
+        }
+        orderAnalyticsCounters.recordTransition(from, to, order.getTotalAmount());
+    }
+
+    private void publish(OrderStatusSnapshot order, OutboxEventType eventType, Map<String, Object> details) {
+        Map<String, Object> payload = new HashMap<>(details);
+        payload.put("email", order.getEmail());
+        payload.put("orderNumber", order.getOrderNumber());
+        outboxService.publish("ORDER", order.getId(), eventType, payload);
+    }
+
+    public record PaymentTransition(Long paymentId, Long orderId, PaymentTransactionStatus from,
+                                    PaymentTransactionStatus to, boolean applied) {
+    }
+}
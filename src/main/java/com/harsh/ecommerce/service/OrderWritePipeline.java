@@ -0,0 +1,500 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.dto.CreateOrderDto;
+import com.harsh.ecommerce.dto.OrderDto;
+import com.harsh.ecommerce.dto.OrderItemDto;
+import com.harsh.ecommerce.entity.*;
+import com.harsh.ecommerce.exception.InsufficientStockException;
+import com.harsh.ecommerce.exception.UserNotFoundException;
+import com.harsh.ecommerce.repository.CartRepository;
+import com.harsh.ecommerce.repository.SequenceIdAllocator;
+import com.harsh.ecommerce.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Group-commit pipeline for checkout.
+ * Requests are collected for a short window (or until the batch is full) and written in a single
+ * transaction with JDBC batch inserts for orders/order items and batched stock updates.
+ * A request that fails validation is completed exceptionally without aborting the rest of the batch.
+ * A user's second checkout within one batch is carried over to the next, after the first has cleared the cart.
+ */
+@Service
+public class OrderWritePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderWritePipeline.class);
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (id, order_number, user_id, status, total_amount, total_items, " +
+            "shipping_address, shipping_city, shipping_state, shipping_postal_code, shipping_country, " +
+            "payment_method, payment_status, notes, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ORDER_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, subtotal, " +
+            "product_name, product_description, product_image_url, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final OrderService orderService;
+    private final UserRepository userRepository;
+    private final CartRepository cartRepository;
+    private final OutboxService outboxService;
+    private final OrderAnalyticsCounters orderAnalyticsCounters;
+    private final SequenceIdAllocator idAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.orders.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.orders.group-commit.window-ms:2}")
+    private long windowMs;
+
+    @Value("${app.orders.group-commit.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${app.orders.group-commit.queue-capacity:4096}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingOrder> queue;
+    // Checkouts held back from the last batch; touched only by the writer thread
+    private final List<PendingOrder> deferred = new ArrayList<>();
+    private Thread writerThread;
+    private volatile boolean running;
+
+    public OrderWritePipeline(OrderService orderService,
+                              UserRepository userRepository,
+                              CartRepository cartRepository,
+                              OutboxService outboxService,
+                              OrderAnalyticsCounters orderAnalyticsCounters,
+                              SequenceIdAllocator idAllocator,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.orderService = orderService;
+        this.userRepository = userRepository;
+        this.cartRepository = cartRepository;
+        this.outboxService = outboxService;
+        this.orderAnalyticsCounters = orderAnalyticsCounters;
+        this.idAllocator = idAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "order-group-commit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Order group-commit pipeline started (window={}ms, maxBatch={})", windowMs, maxBatch);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a checkout for the next group commit. When the pipeline is disabled or saturated the
+     * order is created inline through {@link OrderService#createOrderFromCart}.
+     */
+    public CompletableFuture<OrderDto> submit(String userEmail, CreateOrderDto createOrderDto) {
+        PendingOrder pending = new PendingOrder(userEmail, createOrderDto);
+        if (!running || !queue.offer(pending)) {
+            writeIndividually(pending);
+        }
+        return pending.future;
+    }
+
+    private void runWriter() {
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+
+        while (running || !queue.isEmpty() || !deferred.isEmpty()) {
+            try {
+                // Deferred checkouts lead the next batch, ahead of anything newer from the same user
+                batch.addAll(deferred);
+                deferred.clear();
+                if (batch.isEmpty()) {
+                    PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOrder next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        queue.drainTo(batch, maxBatch - batch.size());
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Unexpected error in order group-commit writer", e);
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+                deferred.clear();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<PendingOrder> batch) {
+        List<DraftOrder> written;
+        try {
+            written = transactionTemplate.execute(status -> writeBatch(batch));
+        } catch (Exception e) {
+            // Something outside per-request validation broke the shared transaction;
+            // fall back to one transaction per request so a single bad order cannot fail the rest.
+            logger.warn("Group commit of {} orders failed, retrying individually: {}", batch.size(), e.getMessage());
+            // Deferred checkouts are still pending in the batch and are written individually, in order
+            deferred.clear();
+            batch.stream()
+                    .filter(pending -> !pending.future.isDone())
+                    .forEach(this::writeIndividually);
+            return;
+        }
+
+        logger.debug("Group-committed {} of {} orders, deferred {}", written.size(), batch.size(), deferred.size());
+
+        for (DraftOrder draft : written) {
+            draft.pending.future.complete(draft.toDto());
+        }
+    }
+
+    private void writeIndividually(PendingOrder pending) {
+        try {
+            pending.future.complete(orderService.createOrderFromCart(pending.userEmail, pending.createOrderDto));
+        } catch (Exception e) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private List<DraftOrder> writeBatch(List<PendingOrder> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        List<DraftOrder> drafts = loadDrafts(batch);
+        if (drafts.isEmpty()) {
+            return drafts;
+        }
+
+        Map<Long, Integer> stock = lockStock(drafts);
+        List<DraftOrder> accepted = new ArrayList<>(drafts.size());
+        for (DraftOrder draft : drafts) {
+            if (reserveStock(draft, stock)) {
+                accepted.add(draft);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return accepted;
+        }
+
+        insertOrders(accepted, now);
+        insertOrderItems(accepted, now);
+        updateStock(accepted, now);
+        clearCarts(accepted, now);
+        publishConfirmations(accepted);
+        return accepted;
+    }
+
+    private List<DraftOrder> loadDrafts(List<PendingOrder> batch) {
+        List<DraftOrder> drafts = new ArrayList<>(batch.size());
+        Set<Long> usersInBatch = new HashSet<>();
+
+        for (PendingOrder pending : batch) {
+            try {
+                User user = userRepository.findByEmail(pending.userEmail)
+                        .orElseThrow(() -> new UserNotFoundException("User not found with email: " + pending.userEmail));
+
+                // A second checkout for the same user would see the cart the first one is about to clear,
+                // so it waits for the next batch and then sees the cart as the first checkout left it
+                if (!usersInBatch.add(user.getId())) {
+                    deferred.add(pending);
+                    continue;
+                }
+
+                Cart cart = cartRepository.findByUserIdWithItems(user.getId())
+                        .orElseThrow(() -> new RuntimeException("Cart not found or empty"));
+
+                if (cart.getCartItems().isEmpty()) {
+                    throw new RuntimeException("Cannot create order from empty cart");
+                }
+
+                drafts.add(new DraftOrder(pending, user, cart, orderService.generateOrderNumber()));
+            } catch (Exception e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+        return drafts;
+    }
+
+    private Map<Long, Integer> lockStock(List<DraftOrder> drafts) {
+        SortedSet<Long> productIds = new TreeSet<>();
+        drafts.forEach(draft -> draft.items.forEach(item -> productIds.add(item.productId)));
+
+        Map<Long, Integer> stock = new HashMap<>();
+        namedJdbcTemplate.query(
+                "SELECT id, stock_quantity FROM products WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                new MapSqlParameterSource("ids", productIds),
+                rs -> {
+                    stock.put(rs.getLong("id"), rs.getInt("stock_quantity"));
+                });
+        return stock;
+    }
+
+    private boolean reserveStock(DraftOrder draft, Map<Long, Integer> stock) {
+        for (DraftItem item : draft.items) {
+            int available = stock.getOrDefault(item.productId, 0);
+            if (available < item.quantity) {
+                draft.pending.future.completeExceptionally(new InsufficientStockException(
+                        "Insufficient stock for product: " + item.productName +
+                                ". Available: " + available +
+                                ", Required: " + item.quantity
+                ));
+                return false;
+            }
+        }
+        for (DraftItem item : draft.items) {
+            stock.merge(item.productId, -item.quantity, Integer::sum);
+        }
+        return true;
+    }
+
+    private void insertOrders(List<DraftOrder> orders, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Long> ids = idAllocator.allocate("orders_seq", orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            orders.get(i).id = ids.get(i);
+            orders.get(i).createdAt = now;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                DraftOrder order = orders.get(i);
+                CreateOrderDto dto = order.pending.createOrderDto;
+                ps.setLong(1, order.id);
+                ps.setString(2, order.orderNumber);
+                ps.setLong(3, order.user.getId());
+                ps.setString(4, OrderStatus.PENDING.name());
+                ps.setBigDecimal(5, order.totalAmount);
+                ps.setInt(6, order.totalItems);
+                ps.setString(7, dto.getShippingAddress());
+                ps.setString(8, dto.getShippingCity());
+                ps.setString(9, dto.getShippingState());
+                ps.setString(10, dto.getShippingPostalCode());
+                ps.setString(11, dto.getShippingCountry());
+                ps.setString(12, dto.getPaymentMethod());
+                ps.setString(13, PaymentStatus.PENDING.name());
+                ps.setString(14, dto.getNotes());
+                ps.setTimestamp(15, timestamp);
+                ps.setTimestamp(16, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return orders.size();
+            }
+        });
+    }
+
+    private void insertOrderItems(List<DraftOrder> orders, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<DraftItem> items = new ArrayList<>();
+        orders.forEach(order -> items.addAll(order.items));
+
+        List<Long> ids = idAllocator.allocate("order_items_seq", items.size());
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).id = ids.get(i);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                DraftItem item = items.get(i);
+                ps.setLong(1, item.id);
+                ps.setLong(2, item.order.id);
+                ps.setLong(3, item.productId);
+                ps.setInt(4, item.quantity);
+                ps.setBigDecimal(5, item.unitPrice);
+                ps.setBigDecimal(6, item.subtotal);
+                ps.setString(7, item.productName);
+                ps.setString(8, item.productDescription);
+                ps.setString(9, item.productImageUrl);
+                ps.setTimestamp(10, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        });
+    }
+
+    private void updateStock(List<DraftOrder> orders, LocalDateTime now) {
+        Map<Long, Integer> decrements = new TreeMap<>();
+        orders.forEach(order -> order.items.forEach(item -> decrements.merge(item.productId, item.quantity, Integer::sum)));
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(decrements.size());
+        decrements.forEach((productId, quantity) -> args.add(new Object[]{quantity, timestamp, productId}));
+
+        jdbcTemplate.batchUpdate(
+                "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ?", args);
+    }
+
+    private void clearCarts(List<DraftOrder> orders, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> deleteArgs = new ArrayList<>(orders.size());
+        List<Object[]> resetArgs = new ArrayList<>(orders.size());
+        for (DraftOrder order : orders) {
+            deleteArgs.add(new Object[]{order.cartId});
+            resetArgs.add(new Object[]{timestamp, order.cartId});
+        }
+
+        jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE cart_id = ?", deleteArgs);
+        jdbcTemplate.batchUpdate(
+                "UPDATE carts SET total_amount = 0, total_items = 0, updated_at = ? WHERE id = ?", resetArgs);
+    }
+
+    private void publishConfirmations(List<DraftOrder> orders) {
+        for (DraftOrder order : orders) {
+            outboxService.publish("ORDER", order.id, OutboxEventType.ORDER_CONFIRMED, Map.of(
+                    "email", order.user.getEmail(),
+                    "orderNumber", order.orderNumber,
+                    "amount", order.totalAmount));
+            orderAnalyticsCounters.recordCreated(OrderStatus.PENDING, order.totalAmount);
+        }
+    }
+
+    private static final class PendingOrder {
+        private final String userEmail;
+        private final CreateOrderDto createOrderDto;
+        private final CompletableFuture<OrderDto> future = new CompletableFuture<>();
+
+        private PendingOrder(String userEmail, CreateOrderDto createOrderDto) {
+            this.userEmail = userEmail;
+            this.createOrderDto = createOrderDto;
+        }
+    }
+
+    private static final class DraftOrder {
+        private final PendingOrder pending;
+        private final User user;
+        private final Long cartId;
+        private final String orderNumber;
+        private final List<DraftItem> items = new ArrayList<>();
+        private final BigDecimal totalAmount;
+        private final int totalItems;
+        private Long id;
+        private LocalDateTime createdAt;
+
+        private DraftOrder(PendingOrder pending, User user, Cart cart, String orderNumber) {
+            this.pending = pending;
+            this.user = user;
+            this.cartId = cart.getId();
+            this.orderNumber = orderNumber;
+
+            BigDecimal amount = BigDecimal.ZERO;
+            int count = 0;
+            for (CartItem cartItem : cart.getCartItems()) {
+                DraftItem item = new DraftItem(this, cartItem);
+                items.add(item);
+                amount = amount.add(item.subtotal);
+                count += item.quantity;
+            }
+            this.totalAmount = amount;
+            this.totalItems = count;
+        }
+
+        private OrderDto toDto() {
+            CreateOrderDto request = pending.createOrderDto;
+            OrderDto dto = new OrderDto();
+            dto.setId(id);
+            dto.setOrderNumber(orderNumber);
+            dto.setStatus(OrderStatus.PENDING);
+            dto.setPaymentStatus(PaymentStatus.PENDING);
+            dto.setTotalAmount(totalAmount);
+            dto.setTotalItems(totalItems);
+            dto.setOrderItems(items.stream().map(DraftItem::toDto).toList());
+            dto.setShippingAddress(request.getShippingAddress());
+            dto.setShippingCity(request.getShippingCity());
+            dto.setShippingState(request.getShippingState());
+            dto.setShippingPostalCode(request.getShippingPostalCode());
+            dto.setShippingCountry(request.getShippingCountry());
+            dto.setPaymentMethod(request.getPaymentMethod());
+            dto.setNotes(request.getNotes());
+            dto.setCreatedAt(createdAt);
+            dto.setUpdatedAt(createdAt);
+            return dto;
+        }
+    }
+
+    private static final class DraftItem {
+        private final DraftOrder order;
+        private final Long productId;
+        private final String productName;
+        private final String productDescription;
+        private final String productImageUrl;
+        private final int quantity;
+        private final BigDecimal unitPrice;
+        private final BigDecimal subtotal;
+        private Long id;
+
+        private DraftItem(DraftOrder order, CartItem cartItem) {
+            Product product = cartItem.getProduct();
+            this.order = order;
+            this.productId = product.getId();
+            this.productName = product.getName();
+            this.productDescription = product.getDescription();
+            this.productImageUrl = product.getMainImage();
+            this.quantity = cartItem.getQuantity();
+            this.unitPrice = cartItem.getUnitPrice();
+            this.subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        private OrderItemDto toDto() {
+            return new OrderItemDto(id, productId, productName, productDescription, productImageUrl,
+                    quantity, unitPrice, subtotal);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.harsh.ecommerce.entity.OutboxEventType;
+
+import java.util.Set;
+
+/**
+ * Consumer of outbox events. Implementations must be safe to run more than once for the same
+ * event: delivery is at-least-once, and any exception schedules a retry.
+ */
+public interface OutboxEventHandler {
+
+    Set<OutboxEventType> supportedTypes();
+
+    void handle(OutboxEventType eventType, JsonNode payload) throws Exception;
+}
@@ -0,0 +1,272 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.config.AsyncConfig;
+import com.harsh.ecommerce.entity.OutboxEventType;
+import com.harsh.ecommerce.entity.OutboxStatus;
+import com.harsh.ecommerce.repository.OutboxEventRepository;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Delivers committed outbox events to {@link OutboxEventHandler}s.
+ * Each node claims batches with FOR UPDATE SKIP LOCKED and leases them, so several nodes can relay
+ * concurrently without double delivery; a lease that expires (node died mid-batch) is reclaimed.
+ * Failed events are retried with jittered exponential backoff and marked DEAD after max-attempts.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    static final String CLAIM_SQL =
+            "UPDATE outbox_events SET status = 'PROCESSING', attempts = attempts + 1, locked_until = ? " +
+            "WHERE id IN (SELECT id FROM outbox_events " +
+            "WHERE (status = 'PENDING' AND next_attempt_at <= ?) OR (status = 'PROCESSING' AND locked_until < ?) " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, event_type, payload, attempts";
+
+    static final String MARK_PUBLISHED_SQL =
+            "UPDATE outbox_events SET status = 'PUBLISHED', published_at = ?, locked_until = NULL, last_error = NULL " +
+            "WHERE id = ?";
+
+    static final String MARK_FAILED_SQL =
+            "UPDATE outbox_events SET status = ?, next_attempt_at = ?, locked_until = NULL, last_error = ? WHERE id = ?";
+
+    // Dependency was short-circuited, so the handler never ran: reschedule without spending an attempt
+    static final String DEFER_SQL =
+            "UPDATE outbox_events SET status = 'PENDING', attempts = attempts - 1, next_attempt_at = ?, locked_until = NULL " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<OutboxEventType, List<OutboxEventHandler>> handlers = new EnumMap<>(OutboxEventType.class);
+    private final Semaphore wakeups = new Semaphore(0);
+
+    @Value("${app.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.backoff-initial-ms:5000}")
+    private long backoffInitialMs;
+
+    @Value("${app.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${app.outbox.backoff-jitter:0.5}")
+    private double backoffJitter;
+
+    @Value("${app.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.outbox.retention-days:7}")
+    private long retentionDays;
+
+    private RetryBackoff backoff;
+    private final AsyncTaskExecutor dispatchExecutor;
+    private Thread relayThread;
+    private volatile boolean running;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       OutboxEventRepository outboxEventRepository,
+                       ObjectMapper objectMapper,
+                       List<OutboxEventHandler> eventHandlers,
+                       @Qualifier(AsyncConfig.NOTIFICATIONS) AsyncTaskExecutor dispatchExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dispatchExecutor = dispatchExecutor;
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        for (OutboxEventHandler handler : eventHandlers) {
+            handler.supportedTypes().forEach(type -> handlers.computeIfAbsent(type, t -> new ArrayList<>()).add(handler));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        backoff = new RetryBackoff(backoffInitialMs, backoffMaxMs, backoffJitter);
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        relayThread = new Thread(this::runRelay, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+        logger.info("Outbox relay started (batchSize={})", batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeUp();
+        if (relayThread != null) {
+            relayThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // The notifications executor drains its own queue on shutdown
+    }
+
+    /**
+     * Called after a transaction that wrote outbox rows commits. Other nodes pick the rows up on their next poll.
+     */
+    public void wakeUp() {
+        if (running) {
+            wakeups.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgePublished() {
+        int removed = outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (removed > 0) {
+            logger.debug("Purged {} published outbox events", removed);
+        }
+    }
+
+    private void runRelay() {
+        while (running) {
+            try {
+                int claimed = relayBatch();
+                if (claimed < batchSize) {
+                    wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Outbox relay iteration failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    int relayBatch() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        List<ClaimedEvent> events = jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new ClaimedEvent(
+                        rs.getLong("id"),
+                        OutboxEventType.valueOf(rs.getString("event_type")),
+                        rs.getString("payload"),
+                        rs.getInt("attempts")),
+                Timestamp.valueOf(now.plusSeconds(leaseSeconds)), Timestamp.valueOf(now), Timestamp.valueOf(now), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(events.size());
+        for (ClaimedEvent event : events) {
+            try {
+                futures.add(dispatchExecutor.submit(() -> dispatch(event)));
+            } catch (TaskRejectedException e) {
+                // Executor saturated or shutting down: hand the event back without spending an attempt
+                logger.debug("Outbox event {} ({}) deferred: {}", event.id, event.type, e.getMessage());
+                event.deferUntil = LocalDateTime.now().plusSeconds(1);
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // dispatch() records its own failures
+            }
+        }
+
+        List<Object[]> published = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        List<Object[]> deferred = new ArrayList<>();
+        Timestamp finishedAt = Timestamp.valueOf(LocalDateTime.now());
+        for (ClaimedEvent event : events) {
+            if (event.deferUntil != null) {
+                deferred.add(new Object[]{Timestamp.valueOf(event.deferUntil), event.id});
+            } else if (event.error == null) {
+                published.add(new Object[]{finishedAt, event.id});
+            } else if (event.attempts >= maxAttempts) {
+                logger.error("Outbox event {} ({}) is dead after {} attempts: {}", event.id, event.type, event.attempts, event.error);
+                failed.add(new Object[]{OutboxStatus.DEAD.name(), finishedAt, event.error, event.id});
+            } else {
+                failed.add(new Object[]{OutboxStatus.PENDING.name(),
+                        Timestamp.valueOf(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff.delayMillis(event.attempts)))),
+                        event.error, event.id});
+            }
+        }
+        if (!published.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_PUBLISHED_SQL, published);
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failed);
+        }
+        if (!deferred.isEmpty()) {
+            jdbcTemplate.batchUpdate(DEFER_SQL, deferred);
+        }
+        return events.size();
+    }
+
+    private void dispatch(ClaimedEvent event) {
+        List<OutboxEventHandler> eventHandlers = handlers.getOrDefault(event.type, List.of());
+        if (eventHandlers.isEmpty()) {
+            event.error = "No handler registered for " + event.type;
+            return;
+        }
+        try {
+            JsonNode payload = objectMapper.readTree(event.payload);
+            for (OutboxEventHandler handler : eventHandlers) {
+                handler.handle(event.type, payload);
+            }
+        } catch (CallNotPermittedException e) {
+            logger.debug("Outbox event {} ({}) deferred: {}", event.id, event.type, e.getMessage());
+            Duration retryAfter = e.getRetryAfter().compareTo(Duration.ofSeconds(1)) < 0 ? Duration.ofSeconds(1) : e.getRetryAfter();
+            event.deferUntil = LocalDateTime.now().plus(retryAfter);
+        } catch (Exception e) {
+            logger.warn("Outbox event {} ({}) failed on attempt {}: {}", event.id, event.type, event.attempts, e.getMessage());
+            event.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static final class ClaimedEvent {
+        private final long id;
+        private final OutboxEventType type;
+        private final String payload;
+        private final int attempts;
+        private volatile String error;
+        private volatile LocalDateTime deferUntil;
+
+        private ClaimedEvent(long id, OutboxEventType type, String payload, int attempts) {
+            this.id = id;
+            this.type = type;
+            this.payload = payload;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.repository.SequenceIdAllocator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends payment audit entries.
+ * <p>
+ * {@link #append} queues the entry once the caller's transaction commits; a single writer thread drains
+ * the queue and inserts up to {@code batch-size} rows per JDBC batch, so request threads never pay for the
+ * insert. When the queue is full the caller writes synchronously instead of dropping the entry.
+ * {@link #appendDurable} inserts inside the caller's transaction, so the entry commits or rolls back with
+ * the change it describes; use it for refunds and manual overrides.
+ */
+@Component
+public class PaymentAuditWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentAuditWriter.class);
+
+    private static final String SEQUENCE = "payment_audit_logs_seq";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO payment_audit_logs (id, payment_id, action, old_value, new_value, timestamp) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writtenInline = new AtomicLong();
+
+    private BlockingQueue<Entry> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @Value("${app.payments.audit.async:true}")
+    private boolean async;
+
+    @Value("${app.payments.audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.payments.audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.payments.audit.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    public PaymentAuditWriter(JdbcTemplate jdbcTemplate, SequenceIdAllocator idAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (!async) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "payment-audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Anything still queued is written before the context closes
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            insert(remaining);
+        }
+    }
+
+    public void append(Long paymentId, String action, String oldValue, String newValue) {
+        Entry entry = new Entry(paymentId, action, oldValue, newValue, LocalDateTime.now());
+        if (!async) {
+            insertInline(entry);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(entry);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(entry);
+            }
+        });
+    }
+
+    public void appendDurable(Long paymentId, String action, String oldValue, String newValue) {
+        insertInline(new Entry(paymentId, action, oldValue, newValue, LocalDateTime.now()));
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getWrittenInlineCount() {
+        return writtenInline.get();
+    }
+
+    private void enqueue(Entry entry) {
+        if (!queue.offer(entry)) {
+            logger.warn("Payment audit queue is full ({}); writing {} for payment {} inline", queueCapacity, entry.action, entry.paymentId);
+            insertInline(entry);
+        }
+    }
+
+    private void insertInline(Entry entry) {
+        insert(List.of(entry));
+        writtenInline.incrementAndGet();
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    Entry first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                insert(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (Exception e) {
+                // Keep the batch and try again; audit entries are not dropped
+                logger.error("Failed to write {} payment audit entries: {}", batch.size(), e.getMessage());
+                try {
+                    Thread.sleep(flushIntervalMs * 5);
+                } catch (InterruptedException ie) {
+                    if (!running) {
+                        break;
+                    }
+                }
+            }
+        }
+        // Put back whatever was taken but not written so stop() can flush it
+        for (Entry entry : batch) {
+            if (!queue.offer(entry)) {
+                logger.error("Lost payment audit entry {} for payment {} at shutdown", entry.action, entry.paymentId);
+            }
+        }
+    }
+
+    private void insert(List<Entry> entries) {
+        List<Long> ids = idAllocator.allocate(SEQUENCE, entries.size());
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            args.add(new Object[]{ids.get(i), entry.paymentId, entry.action, entry.oldValue, entry.newValue,
+                    Timestamp.valueOf(entry.timestamp)});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+        written.addAndGet(entries.size());
+    }
+
+    private static final class Entry {
+        private final Long paymentId;
+        private final String action;
+        private final String oldValue;
+        private final String newValue;
+        private final LocalDateTime timestamp;
+
+        private Entry(Long paymentId, String action, String oldValue, String newValue, LocalDateTime timestamp) {
+            this.paymentId = paymentId;
+            this.action = action;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+            this.timestamp = timestamp;
+        }
+    }
+}
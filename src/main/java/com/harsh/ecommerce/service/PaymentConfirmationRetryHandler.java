@@ -0,0 +1,50 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.harsh.ecommerce.entity.PaymentTransactionStatus;
+import com.harsh.ecommerce.entity.RetryTaskType;
+import com.harsh.ecommerce.exception.PaymentGatewayException;
+import com.harsh.ecommerce.exception.PaymentNotFoundException;
+import com.harsh.ecommerce.exception.PaymentProcessingException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Polls Stripe for a payment intent that has not settled yet (retried by the customer, or still
+ * processing / requiring action) and applies the outcome to the payment and its order. Keeps retrying
+ * while Stripe still reports it as pending.
+ */
+@Component
+public class PaymentConfirmationRetryHandler implements RetryTaskHandler {
+
+    private final PaymentGateway paymentGateway;
+    private final PaymentService paymentService;
+
+    public PaymentConfirmationRetryHandler(PaymentGateway paymentGateway, PaymentService paymentService) {
+        this.paymentGateway = paymentGateway;
+        this.paymentService = paymentService;
+    }
+
+    @Override
+    public RetryTaskType taskType() {
+        return RetryTaskType.PAYMENT_CONFIRMATION;
+    }
+
+    @Override
+    public void handle(String paymentIntentId, JsonNode payload) {
+        PaymentGateway.GatewayPaymentIntent intent = paymentGateway.retrievePaymentIntent(paymentIntentId);
+        PaymentTransactionStatus status = PaymentService.toTransactionStatus(intent.status());
+        paymentService.updatePaymentTransactionStatusByIntentId(paymentIntentId, status);
+
+        if (status == PaymentTransactionStatus.PENDING) {
+            throw new PaymentProcessingException("Payment intent " + paymentIntentId + " is still " + intent.status());
+        }
+    }
+
+    @Override
+    public boolean isRetryable(Exception e) {
+        if (e instanceof PaymentGatewayException gatewayException) {
+            return gatewayException.isRetryable();
+        }
+        return !(e instanceof PaymentNotFoundException);
+    }
+}
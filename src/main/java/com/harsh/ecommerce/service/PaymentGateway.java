@@ -0,0 +1,56 @@
+package com.harsh.ecommerce.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Payment provider operations used by {@link PaymentService}. Amounts are in the currency's minor unit.
+ * Implementations throw {@link com.harsh.ecommerce.exception.PaymentGatewayException} on failure.
+ * Selected with {@code app.payments.gateway} ({@code stripe} or {@code stub}).
+ */
+public interface PaymentGateway {
+
+    GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command, String idempotencyKey);
+
+    GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId);
+
+    GatewayRefund createRefund(String paymentIntentId, long amount);
+
+    record CreatePaymentIntentCommand(long amount,
+                                      String currency,
+                                      String receiptEmail,
+                                      Map<String, String> metadata,
+                                      boolean manualConfirmation) {
+
+        /**
+         * SHA-256 over every parameter, with metadata in key order, so the same command hashes the same on
+         * any node.
+         */
+        public String fingerprint() {
+            String canonical = amount + "|" + currency + "|" + receiptEmail + "|" + manualConfirmation + "|"
+                    + (metadata != null ? new TreeMap<>(metadata) : "");
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                        .digest(canonical.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+
+    record GatewayPaymentIntent(String id,
+                                String status,
+                                String clientSecret,
+                                Long amount,
+                                Long amountReceived,
+                                String currency,
+                                Map<String, String> metadata) {
+    }
+
+    record GatewayRefund(String id, String status, Long amount) {
+    }
+}
@@ -0,0 +1,307 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.config.AsyncConfig;
+import com.harsh.ecommerce.dto.ReconciliationStatusDto;
+import com.harsh.ecommerce.entity.JobCheckpoint;
+import com.harsh.ecommerce.entity.PaymentTransactionStatus;
+import com.harsh.ecommerce.exception.PaymentGatewayException;
+import com.harsh.ecommerce.ratelimit.TokenBucket;
+import com.harsh.ecommerce.repository.JobCheckpointRepository;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds payments whose webhook never arrived. Scans PENDING and PROCESSING payments by id, asks the
+ * gateway for each intent's real status on virtual threads (throttled by a token bucket and a concurrency
+ * cap so Stripe's rate limit is never hit), and applies the differences one page per transaction.
+ * <p>
+ * An intent in {@code requires_payment_method} is usually a customer still on the payment form, or one
+ * retrying after a decline, so it is only failed (cancelling and restocking the order) once it is older
+ * than {@code app.payments.reconciliation.abandon-after-hours}.
+ * <p>
+ * The job holds a job_locks lease so only one node runs it, and stores its position in job_checkpoints
+ * after every page so a restarted or interrupted run resumes where it stopped.
+ */
+@Component
+public class PaymentReconciliationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationJob.class);
+
+    static final String JOB_NAME = "payment-reconciliation";
+
+    private static final String PAGE_SQL =
+            "SELECT id, stripe_payment_intent_id, status, created_at FROM payments " +
+            "WHERE id > ? AND status IN ('PENDING', 'PROCESSING') AND stripe_payment_intent_id IS NOT NULL " +
+            "AND created_at BETWEEN ? AND ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentGateway paymentGateway;
+    private final PaymentService paymentService;
+    private final JobLockService jobLockService;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor reportingExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong corrected = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile LocalDateTime lastStartedAt;
+    private volatile LocalDateTime lastFinishedAt;
+    private volatile String lastError;
+
+    private TokenBucket rateLimiter;
+
+    @Value("${app.payments.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.payments.reconciliation.page-size:200}")
+    private int pageSize;
+
+    @Value("${app.payments.reconciliation.rate-per-second:20}")
+    private double ratePerSecond;
+
+    @Value("${app.payments.reconciliation.max-concurrency:10}")
+    private int maxConcurrency;
+
+    // Younger payments are probably still waiting for their webhook
+    @Value("${app.payments.reconciliation.min-age-minutes:15}")
+    private long minAgeMinutes;
+
+    // Matches the 24h expiry of a Stripe Checkout session
+    @Value("${app.payments.reconciliation.abandon-after-hours:24}")
+    private long abandonAfterHours;
+
+    @Value("${app.payments.reconciliation.max-age-days:30}")
+    private long maxAgeDays;
+
+    @Value("${app.payments.reconciliation.lock-lease-seconds:300}")
+    private long lockLeaseSeconds;
+
+    public PaymentReconciliationJob(JdbcTemplate jdbcTemplate,
+                                    PaymentGateway paymentGateway,
+                                    PaymentService paymentService,
+                                    JobLockService jobLockService,
+                                    JobCheckpointRepository jobCheckpointRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Qualifier(AsyncConfig.REPORTING) TaskExecutor reportingExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.paymentGateway = paymentGateway;
+        this.paymentService = paymentService;
+        this.jobLockService = jobLockService;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reportingExecutor = reportingExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        rateLimiter = new TokenBucket(Math.max(1, (long) ratePerSecond), ratePerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.reconciliation.interval-ms:600000}", initialDelay = 60000)
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    /**
+     * Starts a run in the background unless one is already running on this node.
+     */
+    public boolean triggerAsync() {
+        if (running.get()) {
+            return false;
+        }
+        try {
+            reportingExecutor.execute(this::run);
+            return true;
+        } catch (TaskRejectedException e) {
+            // Reporting pool is busy with other jobs
+            return false;
+        }
+    }
+
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        Duration lease = Duration.ofSeconds(lockLeaseSeconds);
+        try {
+            if (!jobLockService.tryAcquire(JOB_NAME, lease)) {
+                logger.debug("Payment reconciliation is running on another node");
+                return;
+            }
+            try {
+                reconcile(lease);
+            } finally {
+                jobLockService.release(JOB_NAME);
+            }
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            logger.error("Payment reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public ReconciliationStatusDto getStatus() {
+        return ReconciliationStatusDto.builder()
+                .running(running.get())
+                .lastStartedAt(lastStartedAt)
+                .lastFinishedAt(lastFinishedAt)
+                .cursor(jobCheckpointRepository.findById(JOB_NAME).map(JobCheckpoint::getCursorId).orElse(null))
+                .checked(checked.get())
+                .corrected(corrected.get())
+                .errors(errors.get())
+                .lastError(lastError)
+                .build();
+    }
+
+    private void reconcile(Duration lease) throws InterruptedException {
+        lastStartedAt = LocalDateTime.now();
+        lastError = null;
+        checked.set(0);
+        corrected.set(0);
+        errors.set(0);
+
+        LocalDateTime newest = LocalDateTime.now().minusMinutes(minAgeMinutes);
+        LocalDateTime oldest = LocalDateTime.now().minusDays(maxAgeDays);
+        long cursor = jobCheckpointRepository.findById(JOB_NAME)
+                .map(JobCheckpoint::getCursorId)
+                .orElse(0L);
+        if (cursor > 0) {
+            logger.info("Resuming payment reconciliation after payment {}", cursor);
+        }
+
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                List<PaymentRow> page = jdbcTemplate.query(PAGE_SQL,
+                        (rs, rowNum) -> new PaymentRow(rs.getLong("id"), rs.getString("stripe_payment_intent_id"),
+                                PaymentTransactionStatus.valueOf(rs.getString("status")),
+                                rs.getTimestamp("created_at").toLocalDateTime()),
+                        cursor, Timestamp.valueOf(oldest), Timestamp.valueOf(newest), pageSize);
+                if (page.isEmpty()) {
+                    saveCursor(null);
+                    break;
+                }
+
+                List<Future<Correction>> futures = new ArrayList<>(page.size());
+                for (PaymentRow row : page) {
+                    futures.add(executor.submit(() -> check(row, inFlight)));
+                }
+                List<Correction> corrections = new ArrayList<>();
+                try {
+                    for (Future<Correction> future : futures) {
+                        Correction correction = future.get();
+                        if (correction != null) {
+                            corrections.add(correction);
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    // The gateway circuit opened: stop here and resume from the last saved page next time
+                    if (e.getCause() instanceof CallNotPermittedException) {
+                        lastError = e.getCause().getMessage();
+                        logger.warn("Payment reconciliation paused: {}", e.getCause().getMessage());
+                        futures.forEach(f -> f.cancel(true));
+                        return;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+
+                long pageCursor = page.get(page.size() - 1).id;
+                applyPage(corrections, pageCursor);
+                cursor = pageCursor;
+
+                if (!jobLockService.renew(JOB_NAME, lease)) {
+                    logger.warn("Lost the payment reconciliation lease after payment {}", cursor);
+                    return;
+                }
+                if (page.size() < pageSize) {
+                    saveCursor(null);
+                    break;
+                }
+            }
+        } finally {
+            lastFinishedAt = LocalDateTime.now();
+        }
+
+        logger.info("Payment reconciliation checked {} payments, corrected {}, {} errors", checked.get(), corrected.get(), errors.get());
+    }
+
+    private Correction check(PaymentRow row, Semaphore inFlight) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            rateLimiter.acquire();
+            String gatewayStatus = paymentGateway.retrievePaymentIntent(row.intentId).status();
+            checked.incrementAndGet();
+            if ("requires_payment_method".equals(gatewayStatus)
+                    && row.createdAt.isAfter(LocalDateTime.now().minusHours(abandonAfterHours))) {
+                return null;
+            }
+            PaymentTransactionStatus actual = PaymentService.toTransactionStatus(gatewayStatus);
+            return actual != row.status ? new Correction(row, actual) : null;
+        } catch (PaymentGatewayException e) {
+            errors.incrementAndGet();
+            logger.warn("Could not reconcile payment {} ({}): {}", row.id, row.intentId, e.getMessage());
+            return null;
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void applyPage(List<Correction> corrections, long pageCursor) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Correction correction : corrections) {
+                if (paymentService.reconcilePaymentStatus(correction.row.intentId, correction.row.status, correction.actual)) {
+                    corrected.incrementAndGet();
+                    logger.info("Reconciled payment {} ({}): {} -> {}", correction.row.id, correction.row.intentId,
+                            correction.row.status, correction.actual);
+                }
+            }
+            saveCursor(pageCursor);
+        });
+    }
+
+    private void saveCursor(Long cursor) {
+        LocalDateTime now = LocalDateTime.now();
+        jobCheckpointRepository.save(JobCheckpoint.builder()
+                .jobName(JOB_NAME)
+                .watermark(now)
+                .cursorId(cursor)
+                .lastRunAt(now)
+                .lastRunRows(corrected.get())
+                .build());
+    }
+
+    private record PaymentRow(long id, String intentId, PaymentTransactionStatus status, LocalDateTime createdAt) {
+    }
+
+    private record Correction(PaymentRow row, PaymentTransactionStatus actual) {
+    }
+}
@@ -3,59 +3,67 @@ package com.harsh.ecommerce.service;
 import com.harsh.ecommerce.dto.*;
 import com.harsh.ecommerce.entity.*;
 import com.harsh.ecommerce.exception.OrderNotFoundException;
+import com.harsh.ecommerce.exception.PaymentGatewayException;
 import com.harsh.ecommerce.exception.PaymentNotFoundException;
 import com.harsh.ecommerce.exception.PaymentProcessingException;
 import com.harsh.ecommerce.exception.UnauthorizedAccessException;
 import com.harsh.ecommerce.repository.PaymentRepository;
 import com.harsh.ecommerce.repository.RefundRepository;
-import com.harsh.ecommerce.repository.PaymentAuditLogRepository;
+import com.harsh.ecommerce.repository.PaymentAuditLogQueryRepository;
 import com.harsh.ecommerce.repository.OrderRepository;
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
 import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
-import com.stripe.model.Refund;
-import com.stripe.param.PaymentIntentCreateParams;
-import com.stripe.param.RefundCreateParams;
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class PaymentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
     private final PaymentRepository paymentRepository;
     private final RefundRepository refundRepository;
-    private final PaymentAuditLogRepository auditLogRepository;
-    private final OrderService orderService;
+    private final PaymentAuditWriter auditWriter;
+    private final PaymentAuditLogQueryRepository auditLogQueryRepository;
     private final OrderRepository orderRepository;
-    private final EmailService emailService;
-
-    @Value("${stripe.secret.key}")
-    private String stripeSecretKey;
+    private final OutboxService outboxService;
+    private final PaymentGateway paymentGateway;
+    private final OrderStateMachine orderStateMachine;
+    private final RetryScheduler retryScheduler;
 
     public PaymentService(PaymentRepository paymentRepository,
                           RefundRepository refundRepository,
-                          PaymentAuditLogRepository auditLogRepository,
-                          OrderService orderService,
+                          PaymentAuditWriter auditWriter,
+                          PaymentAuditLogQueryRepository auditLogQueryRepository,
                           OrderRepository orderRepository,
-                          EmailService emailService) {
+                          OutboxService outboxService,
+                          PaymentGateway paymentGateway,
+                          OrderStateMachine orderStateMachine,
+                          RetryScheduler retryScheduler) {
         this.paymentRepository = paymentRepository;
         this.refundRepository = refundRepository;
-        this.auditLogRepository = auditLogRepository;
-        this.orderService = orderService;
+        this.auditWriter = auditWriter;
+        this.auditLogQueryRepository = auditLogQueryRepository;
         this.orderRepository = orderRepository;
-        this.emailService = emailService;
+        this.outboxService = outboxService;
+        this.paymentGateway = paymentGateway;
+        this.orderStateMachine = orderStateMachine;
+        this.retryScheduler = retryScheduler;
     }
 
     public PaymentIntentResponse createPaymentIntent(PaymentIntentRequest request, Long userId) {
@@ -72,23 +80,21 @@ public class PaymentService {
                 throw new PaymentProcessingException("Payment already exists for this order");
             }
 
-            Stripe.apiKey = stripeSecretKey;
+            PaymentGateway.CreatePaymentIntentCommand command = new PaymentGateway.CreatePaymentIntentCommand(
+                    request.getAmount().multiply(new BigDecimal("100")).longValue(),
+                    request.getCurrency(),
+                    request.getCustomerEmail(),
+                    Map.of("order_id", String.valueOf(request.getOrderId()),
+                            "user_id", String.valueOf(userId)),
+                    true);
 
-            PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                    .setAmount(request.getAmount().multiply(new BigDecimal("100")).longValue())
-                    .setCurrency(request.getCurrency())
-                    .setReceiptEmail(request.getCustomerEmail())
-                    .putMetadata("order_id", String.valueOf(request.getOrderId()))
-                    .putMetadata("user_id", String.valueOf(userId))
-                    .setConfirmationMethod(PaymentIntentCreateParams.ConfirmationMethod.MANUAL)
-                    .addPaymentMethodType("card")
-                    .build();
-
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            // Keyed by order and parameters so a retry after a lost response gets the same intent back from Stripe
+            PaymentGateway.GatewayPaymentIntent paymentIntent = paymentGateway.createPaymentIntent(
+                    command, paymentIntentKey(request.getOrderId(), "checkout", command));
 
             Payment payment = new Payment();
             payment.setOrder(order);
-            payment.setStripePaymentIntentId(paymentIntent.getId());
+            payment.setStripePaymentIntentId(paymentIntent.id());
             payment.setAmount(request.getAmount());
             payment.setCurrency(request.getCurrency());
             payment.setStatus(PaymentTransactionStatus.PENDING);
@@ -99,14 +105,14 @@ public class PaymentService {
             paymentRepository.save(payment);
 
             return PaymentIntentResponse.builder()
-                    .clientSecret(paymentIntent.getClientSecret())
-                    .paymentIntentId(paymentIntent.getId())
+                    .clientSecret(paymentIntent.clientSecret())
+                    .paymentIntentId(paymentIntent.id())
                     .amount(request.getAmount())
                     .currency(request.getCurrency())
                     .build();
 
-        } catch (StripeException e) {
-            throw new PaymentProcessingException("Failed to create payment intent: " + e.getMessage());
+        } catch (PaymentGatewayException e) {
+            throw new PaymentProcessingException("Failed to create payment intent: " + e.getMessage(), e);
         }
     }
 
@@ -116,48 +122,26 @@ public class PaymentService {
 
     public PaymentDto confirmPayment(PaymentConfirmRequest request) {
         try {
-            Stripe.apiKey = stripeSecretKey;
-
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(request.getPaymentIntentId());
+            PaymentGateway.GatewayPaymentIntent paymentIntent = paymentGateway.retrievePaymentIntent(request.getPaymentIntentId());
 
-            System.out.println("🔍 Stripe PaymentIntent Status: " + paymentIntent.getStatus());
-            System.out.println("🔍 Amount Received: " + paymentIntent.getAmountReceived());
+            System.out.println("🔍 Stripe PaymentIntent Status: " + paymentIntent.status());
+            System.out.println("🔍 Amount Received: " + paymentIntent.amountReceived());
 
-            Optional<Payment> optionalPayment = paymentRepository.findByStripePaymentIntentId(request.getPaymentIntentId());
-            if (optionalPayment.isEmpty()) {
-                throw new PaymentNotFoundException("Payment not found for intent: " + request.getPaymentIntentId());
+            PaymentTransactionStatus newStatus = toTransactionStatus(paymentIntent.status());
+            orderStateMachine.tryTransitionPayment(request.getPaymentIntentId(), null, newStatus);
+            if (newStatus == PaymentTransactionStatus.PENDING) {
+                // Still processing or waiting for the customer: keep checking until Stripe settles it
+                retryScheduler.schedule(RetryTaskType.PAYMENT_CONFIRMATION, request.getPaymentIntentId(), Map.of());
             }
-
-            Payment payment = optionalPayment.get();
-
-            PaymentTransactionStatus newStatus;
-            switch (paymentIntent.getStatus()) {
-                case "succeeded":
-                    newStatus = PaymentTransactionStatus.SUCCEEDED;
-                    break;
-                case "requires_payment_method":
-                case "canceled":
-                    newStatus = PaymentTransactionStatus.FAILED;
-                    break;
-                case "processing":
-                case "requires_action":
-                case "requires_confirmation":
-                    newStatus = PaymentTransactionStatus.PENDING;
-                    break;
-                default:
-                    newStatus = PaymentTransactionStatus.PENDING;
-            }
-
-            payment.setStatus(newStatus);
-            payment.setUpdatedAt(LocalDateTime.now());
-            paymentRepository.save(payment);
+            Payment payment = paymentRepository.findByStripePaymentIntentId(request.getPaymentIntentId())
+                    .orElseThrow(() -> new PaymentNotFoundException("Payment not found for intent: " + request.getPaymentIntentId()));
 
             System.out.println("✅ Payment status updated to: " + newStatus);
 
             return convertToDto(payment);
 
-        } catch (StripeException e) {
-            throw new PaymentProcessingException("Failed to confirm payment: " + e.getMessage());
+        } catch (PaymentGatewayException e) {
+            throw new PaymentProcessingException("Failed to confirm payment: " + e.getMessage(), e);
         }
     }
 
@@ -195,22 +179,61 @@ public class PaymentService {
 
     @Transactional(readOnly = true)
     public PaymentAnalyticsDto getPaymentAnalytics(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Payment> payments = paymentRepository.findByCreatedAtBetween(startDate, endDate);
-
-        BigDecimal totalRevenue = payments.stream()
-                .filter(p -> p.getStatus() == PaymentTransactionStatus.SUCCEEDED)
-                .map(Payment::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return getPaymentAnalytics(startDate, endDate, null);
+    }
 
-        long totalTransactions = payments.size();
-        long successfulTransactions = payments.stream()
-                .mapToLong(p -> p.getStatus() == PaymentTransactionStatus.SUCCEEDED ? 1 : 0)
-                .sum();
+    /**
+     * Aggregates in the database: one grouped query returns a row per (bucket,) currency and status, so
+     * the work here is proportional to the number of groups, not the number of payments.
+     */
+    @Transactional(readOnly = true)
+    public PaymentAnalyticsDto getPaymentAnalytics(LocalDateTime startDate, LocalDateTime endDate,
+                                                   AnalyticsGranularity granularity) {
+        List<? extends PaymentRepository.PaymentAggregate> rows = granularity == null
+                ? paymentRepository.aggregateByCurrencyAndStatus(startDate, endDate)
+                : paymentRepository.aggregateByBucketCurrencyAndStatus(granularity.getField(), startDate, endDate);
+
+        Map<String, Long> transactionsByStatus = new TreeMap<>();
+        Map<String, BigDecimal> revenueByCurrency = new TreeMap<>();
+        Map<LocalDateTime, PaymentAnalyticsBucketDto> buckets = new LinkedHashMap<>();
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        long totalTransactions = 0;
+
+        for (PaymentRepository.PaymentAggregate row : rows) {
+            long count = row.getTransactionCount();
+            boolean succeeded = PaymentTransactionStatus.SUCCEEDED.name().equals(row.getStatus());
+            boolean failed = PaymentTransactionStatus.FAILED.name().equals(row.getStatus());
+
+            totalTransactions += count;
+            transactionsByStatus.merge(row.getStatus(), count, Long::sum);
+            if (succeeded) {
+                totalRevenue = totalRevenue.add(row.getTotalAmount());
+                revenueByCurrency.merge(row.getCurrency(), row.getTotalAmount(), BigDecimal::add);
+            }
 
-        long failedTransactions = payments.stream()
-                .mapToLong(p -> p.getStatus() == PaymentTransactionStatus.FAILED ? 1 : 0)
-                .sum();
+            if (row instanceof PaymentRepository.PaymentBucketAggregate bucketRow) {
+                PaymentAnalyticsBucketDto bucket = buckets.computeIfAbsent(bucketRow.getBucket(),
+                        start -> PaymentAnalyticsBucketDto.builder()
+                                .bucketStart(start)
+                                .revenue(BigDecimal.ZERO)
+                                .totalTransactions(0L)
+                                .successfulTransactions(0L)
+                                .failedTransactions(0L)
+                                .revenueByCurrency(new TreeMap<>())
+                                .build());
+                bucket.setTotalTransactions(bucket.getTotalTransactions() + count);
+                if (succeeded) {
+                    bucket.setRevenue(bucket.getRevenue().add(row.getTotalAmount()));
+                    bucket.setSuccessfulTransactions(bucket.getSuccessfulTransactions() + count);
+                    bucket.getRevenueByCurrency().merge(row.getCurrency(), row.getTotalAmount(), BigDecimal::add);
+                } else if (failed) {
+                    bucket.setFailedTransactions(bucket.getFailedTransactions() + count);
+                }
+            }
+        }
 
+        long successfulTransactions = transactionsByStatus.getOrDefault(PaymentTransactionStatus.SUCCEEDED.name(), 0L);
+        long failedTransactions = transactionsByStatus.getOrDefault(PaymentTransactionStatus.FAILED.name(), 0L);
         double successRate = totalTransactions > 0 ? (double) successfulTransactions / totalTransactions * 100 : 0;
 
         return PaymentAnalyticsDto.builder()
@@ -221,6 +244,10 @@ public class PaymentService {
                 .successRate(successRate)
                 .periodStart(startDate)
                 .periodEnd(endDate)
+                .transactionsByStatus(transactionsByStatus)
+                .revenueByCurrency(revenueByCurrency)
+                .granularity(granularity)
+                .buckets(granularity == null ? null : new ArrayList<>(buckets.values()))
                 .build();
     }
 
@@ -243,49 +270,40 @@ public class PaymentService {
     }
 
     public void updatePaymentStatus(String stripePaymentIntentId, PaymentTransactionStatus status) {
-        Optional<Payment> optionalPayment = paymentRepository.findByStripePaymentIntentId(stripePaymentIntentId);
-        if (optionalPayment.isEmpty()) {
-            throw new PaymentNotFoundException("Payment not found for intent: " + stripePaymentIntentId);
+        OrderStateMachine.PaymentTransition transition = orderStateMachine.transitionPayment(stripePaymentIntentId, status);
+        if (!transition.applied()) {
+            return;
         }
 
-        Payment payment = optionalPayment.get();
-        PaymentTransactionStatus oldStatus = payment.getStatus();
-        payment.setStatus(status);
-        payment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
-
-        PaymentAuditLog auditLog = new PaymentAuditLog();
-        auditLog.setPayment(payment);
-        auditLog.setAction("STATUS_UPDATE");
-        auditLog.setOldValue(oldStatus.toString());
-        auditLog.setNewValue(status.toString());
-        auditLog.setTimestamp(LocalDateTime.now());
-        auditLogRepository.save(auditLog);
+        // Manual override by an admin: recorded in the same transaction
+        auditWriter.appendDurable(transition.paymentId(), "STATUS_UPDATE", transition.from().toString(), status.toString());
     }
 
     public void retryFailedPayment(String stripePaymentIntentId) {
-        Payment payment = paymentRepository.findByStripePaymentIntentId(stripePaymentIntentId)
+        // A failed payment cancelled its order, which cannot be reopened
+        Long orderId = paymentRepository.findStatusSnapshot(stripePaymentIntentId)
+                .map(PaymentRepository.PaymentStatusSnapshot::getOrderId)
+                .orElse(null);
+        if (orderId != null && orderRepository.findStatusSnapshot(orderId)
+                .map(order -> order.getStatus() == OrderStatus.CANCELLED)
+                .orElse(false)) {
+            throw new PaymentProcessingException("The order of this payment was cancelled; it cannot be retried");
+        }
+
+        OrderStateMachine.PaymentTransition transition = orderStateMachine
+                .tryTransitionPayment(stripePaymentIntentId, PaymentTransactionStatus.FAILED, PaymentTransactionStatus.PENDING)
                 .orElseThrow(() -> new PaymentNotFoundException("Payment not found for intent: " + stripePaymentIntentId));
 
-        if (payment.getStatus() != PaymentTransactionStatus.FAILED) {
+        if (!transition.applied()) {
             throw new PaymentProcessingException("Only failed payments can be retried");
         }
 
-        payment.setStatus(PaymentTransactionStatus.PENDING);
-        payment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
-
-        PaymentAuditLog auditLog = new PaymentAuditLog();
-        auditLog.setPayment(payment);
-        auditLog.setAction("RETRY_INITIATED");
-        auditLog.setTimestamp(LocalDateTime.now());
-        auditLogRepository.save(auditLog);
+        auditWriter.append(transition.paymentId(), "RETRY_INITIATED", null, null);
+        retryScheduler.schedule(RetryTaskType.PAYMENT_CONFIRMATION, stripePaymentIntentId, Map.of());
     }
 
     public RefundResponse processRefund(RefundRequest request) {
         try {
-            Stripe.apiKey = stripeSecretKey;
-
             Payment payment = paymentRepository.findByStripePaymentIntentId(request.getPaymentIntentId())
                     .orElseThrow(() -> new PaymentNotFoundException("Payment not found for intent: " + request.getPaymentIntentId()));
 
@@ -300,47 +318,42 @@ public class PaymentService {
                         ". Only payments with SUCCEEDED status can be refunded.");
             }
 
-            PaymentIntent stripePaymentIntent = PaymentIntent.retrieve(request.getPaymentIntentId());
+            PaymentGateway.GatewayPaymentIntent stripePaymentIntent = paymentGateway.retrievePaymentIntent(request.getPaymentIntentId());
             System.out.println("🔍 Stripe PaymentIntent details:");
-            System.out.println("   - Stripe Status: " + stripePaymentIntent.getStatus());
-            System.out.println("   - Amount: " + stripePaymentIntent.getAmount());
-            System.out.println("   - Amount Received: " + stripePaymentIntent.getAmountReceived());
+            System.out.println("   - Stripe Status: " + stripePaymentIntent.status());
+            System.out.println("   - Amount: " + stripePaymentIntent.amount());
+            System.out.println("   - Amount Received: " + stripePaymentIntent.amountReceived());
 
-            if (!"succeeded".equals(stripePaymentIntent.getStatus())) {
-                throw new PaymentProcessingException("Stripe PaymentIntent status is '" + stripePaymentIntent.getStatus() +
+            if (!"succeeded".equals(stripePaymentIntent.status())) {
+                throw new PaymentProcessingException("Stripe PaymentIntent status is '" + stripePaymentIntent.status() +
                         "', but must be 'succeeded' to process refund. Please check the payment status in Stripe dashboard.");
             }
 
-            if (stripePaymentIntent.getAmountReceived() == null || stripePaymentIntent.getAmountReceived() == 0) {
+            if (stripePaymentIntent.amountReceived() == null || stripePaymentIntent.amountReceived() == 0) {
                 throw new PaymentProcessingException("PaymentIntent has not been charged yet. Amount received is 0. Cannot process refund without successful charge.");
             }
 
-            BigDecimal maxRefundableAmount = new BigDecimal(stripePaymentIntent.getAmountReceived()).divide(new BigDecimal("100"));
+            BigDecimal maxRefundableAmount = new BigDecimal(stripePaymentIntent.amountReceived()).divide(new BigDecimal("100"));
             if (request.getAmount().compareTo(maxRefundableAmount) > 0) {
                 throw new PaymentProcessingException("Refund amount (" + request.getAmount() +
                         ") cannot exceed the charged amount (" + maxRefundableAmount + ")");
             }
 
-            RefundCreateParams params = RefundCreateParams.builder()
-                    .setPaymentIntent(request.getPaymentIntentId())
-                    .setAmount(request.getAmount().multiply(new BigDecimal("100")).longValue())
-                    .setReason(RefundCreateParams.Reason.REQUESTED_BY_CUSTOMER)
-                    .build();
-
             System.out.println("🔄 Processing refund with Stripe...");
             System.out.println("   - Amount to refund: " + request.getAmount());
             System.out.println("   - Amount in cents: " + request.getAmount().multiply(new BigDecimal("100")).longValue());
 
-            Refund stripeRefund = Refund.create(params);
+            PaymentGateway.GatewayRefund stripeRefund = paymentGateway.createRefund(
+                    request.getPaymentIntentId(), request.getAmount().multiply(new BigDecimal("100")).longValue());
 
             System.out.println("✅ Stripe refund created:");
-            System.out.println("   - Refund ID: " + stripeRefund.getId());
-            System.out.println("   - Status: " + stripeRefund.getStatus());
-            System.out.println("   - Amount: " + stripeRefund.getAmount());
+            System.out.println("   - Refund ID: " + stripeRefund.id());
+            System.out.println("   - Status: " + stripeRefund.status());
+            System.out.println("   - Amount: " + stripeRefund.amount());
 
             com.harsh.ecommerce.entity.Refund refundEntity = new com.harsh.ecommerce.entity.Refund();
             refundEntity.setPayment(payment);
-            refundEntity.setStripeRefundId(stripeRefund.getId());
+            refundEntity.setStripeRefundId(stripeRefund.id());
             refundEntity.setAmount(request.getAmount());
             refundEntity.setReason(request.getReason());
             refundEntity.setStatus(RefundStatus.PENDING);
@@ -348,23 +361,12 @@ public class PaymentService {
 
             com.harsh.ecommerce.entity.Refund savedRefund = refundRepository.save(refundEntity);
 
-            try {
-                emailService.sendRefundConfirmationEmail(
-                        payment.getOrder().getUser().getEmail(),
-                        payment.getOrder().getOrderNumber(),
-                        request.getAmount().doubleValue()
-                );
-                System.out.println("✅ Refund confirmation email sent to: " + payment.getOrder().getUser().getEmail());
-            } catch (Exception e) {
-                System.err.println("❌ Failed to send refund confirmation email: " + e.getMessage());
-            }
+            outboxService.publish("PAYMENT", payment.getId(), OutboxEventType.REFUND_PROCESSED, Map.of(
+                    "email", payment.getOrder().getUser().getEmail(),
+                    "orderNumber", payment.getOrder().getOrderNumber(),
+                    "amount", request.getAmount()));
 
-            PaymentAuditLog auditLog = new PaymentAuditLog();
-            auditLog.setPayment(payment);
-            auditLog.setAction("REFUND_INITIATED");
-            auditLog.setNewValue(request.getAmount().toString());
-            auditLog.setTimestamp(LocalDateTime.now());
-            auditLogRepository.save(auditLog);
+            auditWriter.appendDurable(payment.getId(), "REFUND_INITIATED", null, request.getAmount().toString());
 
             return RefundResponse.builder()
                     .refundId(savedRefund.getId())
@@ -374,11 +376,11 @@ public class PaymentService {
                     .processedAt(savedRefund.getCreatedAt())
                     .build();
 
-        } catch (StripeException e) {
+        } catch (PaymentGatewayException e) {
             System.err.println("❌ Stripe error during refund: " + e.getMessage());
             System.err.println("   - Error Code: " + e.getCode());
             System.err.println("   - Request ID: " + e.getRequestId());
-            throw new PaymentProcessingException("Failed to process refund: " + e.getMessage());
+            throw new PaymentProcessingException("Failed to process refund: " + e.getMessage(), e);
         } catch (Exception e) {
             System.err.println("❌ General error during refund: " + e.getMessage());
             throw e;
@@ -392,147 +394,166 @@ public class PaymentService {
     }
 
     @Transactional(readOnly = true)
-    public Page<PaymentAuditLog> getPaymentAuditLog(Pageable pageable) {
-        return auditLogRepository.findAll(pageable);
+    public CursorPageDto<PaymentAuditLogDto> getPaymentAuditLog(Long paymentId, String action, LocalDateTime start,
+                                                                LocalDateTime end, Long cursor, int size) {
+        // One extra row tells us whether there is a next page without a COUNT query
+        List<PaymentAuditLogDto> rows = auditLogQueryRepository.findPage(paymentId, action, start, end, cursor, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<PaymentAuditLogDto> items = hasMore ? rows.subList(0, size) : rows;
+        return CursorPageDto.<PaymentAuditLogDto>builder()
+                .items(items)
+                .nextCursor(hasMore ? items.get(items.size() - 1).getId() : null)
+                .hasMore(hasMore)
+                .build();
     }
 
-    @Async
-    public void handlePaymentSucceeded(Event event) {
-        PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
-                .getObject()
-                .orElse(null);
-
-        if (paymentIntent != null) {
-            updatePaymentTransactionStatus(paymentIntent.getId(), PaymentTransactionStatus.SUCCEEDED);
-
-            String orderId = paymentIntent.getMetadata().get("order_id");
-            if (orderId != null) {
-                Long id = Long.parseLong(orderId);
-                orderService.updatePaymentStatus(id, PaymentStatus.COMPLETED);
-                orderService.updateOrderStatus(id, OrderStatus.CONFIRMED);
-            }
+    /**
+     * Applies a Stripe webhook event. Called by the webhook inbox worker, one event at a time per
+     * payment intent; an exception rolls the transaction back and the inbox retries the event.
+     */
+    public void processWebhookEvent(Event event) {
+        switch (event.getType()) {
+            case "payment_intent.succeeded":
+                handlePaymentSucceeded(event);
+                break;
+            case "payment_intent.payment_failed":
+                handlePaymentFailed(event);
+                break;
+            default:
+                break;
         }
     }
 
-    @Async
+    public void handlePaymentSucceeded(Event event) {
+        handlePaymentOutcome(event, PaymentTransactionStatus.SUCCEEDED);
+    }
+
     public void handlePaymentFailed(Event event) {
+        handlePaymentOutcome(event, PaymentTransactionStatus.FAILED);
+    }
+
+    private void handlePaymentOutcome(Event event, PaymentTransactionStatus outcome) {
         PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
                 .getObject()
                 .orElse(null);
 
         if (paymentIntent != null) {
-            updatePaymentTransactionStatus(paymentIntent.getId(), PaymentTransactionStatus.FAILED);
+            OrderStateMachine.PaymentTransition transition = orderStateMachine
+                    .tryTransitionPayment(paymentIntent.getId(), null, outcome)
+                    .orElse(null);
+            // A late or replayed event the payment refused (e.g. failed after succeeded) must not touch the order
+            if (transition == null || !transition.applied()) {
+                return;
+            }
 
             String orderId = paymentIntent.getMetadata().get("order_id");
-            if (orderId != null) {
-                Long id = Long.parseLong(orderId);
-                orderService.updatePaymentStatus(id, PaymentStatus.FAILED);
-                orderService.updateOrderStatus(id, OrderStatus.CANCELLED);
+            Long targetOrderId = transition.orderId() != null ? transition.orderId()
+                    : orderId != null ? Long.valueOf(orderId) : null;
+            if (targetOrderId != null) {
+                applyPaymentOutcome(transition.paymentId(), targetOrderId, outcome);
             }
         }
     }
 
     public void syncPaymentStatusWithStripe(String paymentIntentId) {
         try {
-            Stripe.apiKey = stripeSecretKey;
+            PaymentGateway.GatewayPaymentIntent stripePaymentIntent = paymentGateway.retrievePaymentIntent(paymentIntentId);
 
-            Payment payment = paymentRepository.findByStripePaymentIntentId(paymentIntentId)
-                    .orElseThrow(() -> new PaymentNotFoundException("Payment not found for intent: " + paymentIntentId));
+            PaymentTransactionStatus actualStatus = toTransactionStatus(stripePaymentIntent.status());
 
-            PaymentIntent stripePaymentIntent = PaymentIntent.retrieve(paymentIntentId);
-
-            PaymentTransactionStatus actualStatus;
-            switch (stripePaymentIntent.getStatus()) {
-                case "succeeded":
-                    actualStatus = PaymentTransactionStatus.SUCCEEDED;
-                    break;
-                case "requires_payment_method":
-                case "canceled":
-                    actualStatus = PaymentTransactionStatus.FAILED;
-                    break;
-                case "requires_confirmation":
-                case "requires_action":
-                case "processing":
-                case "requires_capture":
-                    actualStatus = PaymentTransactionStatus.PENDING;
-                    break;
-                default:
-                    actualStatus = PaymentTransactionStatus.FAILED;
-            }
+            OrderStateMachine.PaymentTransition transition = orderStateMachine.tryTransitionPayment(paymentIntentId, null, actualStatus)
+                    .orElseThrow(() -> new PaymentNotFoundException("Payment not found for intent: " + paymentIntentId));
 
             System.out.println("🔄 Syncing payment status:");
-            System.out.println("  - Database Status: " + payment.getStatus());
-            System.out.println("  - Stripe Status: " + stripePaymentIntent.getStatus());
+            System.out.println("  - Database Status: " + transition.from());
+            System.out.println("  - Stripe Status: " + stripePaymentIntent.status());
             System.out.println("  - New Database Status: " + actualStatus);
 
-            if (payment.getStatus() != actualStatus) {
-                PaymentTransactionStatus oldStatus = payment.getStatus();
-                payment.setStatus(actualStatus);
-                payment.setUpdatedAt(LocalDateTime.now());
-                paymentRepository.save(payment);
-
-                PaymentAuditLog auditLog = new PaymentAuditLog();
-                auditLog.setPayment(payment);
-                auditLog.setAction("STATUS_SYNC");
-                auditLog.setOldValue(oldStatus.toString());
-                auditLog.setNewValue(actualStatus.toString());
-                auditLog.setTimestamp(LocalDateTime.now());
-                auditLogRepository.save(auditLog);
+            if (transition.applied()) {
+                auditWriter.append(transition.paymentId(), "STATUS_SYNC", transition.from().toString(), actualStatus.toString());
 
                 System.out.println("✅ Payment status synced successfully");
             } else {
                 System.out.println("ℹ️  Payment status already in sync");
             }
 
-        } catch (StripeException e) {
-            throw new PaymentProcessingException("Failed to sync payment status: " + e.getMessage());
+        } catch (PaymentGatewayException e) {
+            throw new PaymentProcessingException("Failed to sync payment status: " + e.getMessage(), e);
         }
     }
 
-    public void updatePaymentTransactionStatusByIntentId(String stripePaymentIntentId, PaymentTransactionStatus status) {
-        Optional<Payment> optionalPayment = paymentRepository.findByStripePaymentIntentId(stripePaymentIntentId);
+    /**
+     * Maps a provider PaymentIntent status to ours.
+     */
+    public static PaymentTransactionStatus toTransactionStatus(String gatewayStatus) {
+        switch (gatewayStatus) {
+            case "succeeded":
+                return PaymentTransactionStatus.SUCCEEDED;
+            case "requires_confirmation":
+            case "requires_action":
+            case "processing":
+            case "requires_capture":
+                return PaymentTransactionStatus.PENDING;
+            case "requires_payment_method":
+            case "canceled":
+            default:
+                return PaymentTransactionStatus.FAILED;
+        }
+    }
 
-        if (optionalPayment.isPresent()) {
-            Payment payment = optionalPayment.get();
-            payment.setStatus(status);
-            payment.setUpdatedAt(LocalDateTime.now());
-            paymentRepository.save(payment);
+    /**
+     * Applies a status found by the reconciliation job, but only if the payment still has the status the job
+     * saw; a webhook that landed in the meantime wins. Updates the order the same way the webhook would.
+     */
+    public boolean reconcilePaymentStatus(String stripePaymentIntentId, PaymentTransactionStatus expectedStatus,
+                                          PaymentTransactionStatus actualStatus) {
+        OrderStateMachine.PaymentTransition transition = orderStateMachine
+                .tryTransitionPayment(stripePaymentIntentId, expectedStatus, actualStatus)
+                .orElse(null);
+        if (transition == null || !transition.applied()) {
+            return false;
+        }
 
-            System.out.println("💾 Updated existing payment status to: " + status + " for intent: " + stripePaymentIntentId);
+        auditWriter.append(transition.paymentId(), "RECONCILED", expectedStatus.toString(), actualStatus.toString());
+        if (transition.orderId() != null) {
+            applyPaymentOutcome(transition.paymentId(), transition.orderId(), actualStatus);
+        }
+        return true;
+    }
 
-            if (status == PaymentTransactionStatus.SUCCEEDED && payment.getOrder() != null) {
-                try {
-                    orderService.updatePaymentStatus(payment.getOrder().getId(), PaymentStatus.COMPLETED);
-                    orderService.updateOrderStatus(payment.getOrder().getId(), OrderStatus.CONFIRMED);
-                    System.out.println("📦 Updated order status to CONFIRMED");
-                } catch (Exception e) {
-                    System.err.println("⚠️  Failed to update order status: " + e.getMessage());
-                }
-            } else if (status == PaymentTransactionStatus.FAILED && payment.getOrder() != null) {
-                try {
-                    orderService.updatePaymentStatus(payment.getOrder().getId(), PaymentStatus.FAILED);
-                    orderService.updateOrderStatus(payment.getOrder().getId(), OrderStatus.CANCELLED);
-                    System.out.println("📦 Updated order status to CANCELLED");
-                } catch (Exception e) {
-                    System.err.println("⚠️  Failed to update order status: " + e.getMessage());
-                }
-            }
-        } else {
-            System.err.println("⚠️  Payment not found for intent ID: " + stripePaymentIntentId);
+    public void updatePaymentTransactionStatusByIntentId(String stripePaymentIntentId, PaymentTransactionStatus status) {
+        OrderStateMachine.PaymentTransition transition = orderStateMachine.tryTransitionPayment(stripePaymentIntentId, null, status)
+                .orElse(null);
+
+        if (transition == null) {
             throw new PaymentNotFoundException("Payment not found for intent: " + stripePaymentIntentId);
         }
+
+        if (!transition.applied()) {
+            logger.debug("Payment for intent {} stays {}; {} not applied", stripePaymentIntentId, transition.from(), status);
+            return;
+        }
+
+        if (transition.orderId() != null) {
+            applyPaymentOutcome(transition.paymentId(), transition.orderId(), status);
+        }
     }
 
-    private void updatePaymentTransactionStatus(String stripePaymentIntentId, PaymentTransactionStatus transactionStatus) {
-        Optional<Payment> optionalPayment = paymentRepository.findByStripePaymentIntentId(stripePaymentIntentId);
-        if (optionalPayment.isPresent()) {
-            Payment payment = optionalPayment.get();
-            payment.setStatus(transactionStatus);
-            payment.setUpdatedAt(LocalDateTime.now());
-            paymentRepository.save(payment);
+    private void applyPaymentOutcome(Long paymentId, Long orderId, PaymentTransactionStatus outcome) {
+        if (!orderStateMachine.applyPaymentOutcome(orderId, outcome)) {
+            // Admins find these in the audit log and refund them
+            auditWriter.append(paymentId, "REFUND_REQUIRED", OrderStatus.CANCELLED.toString(), outcome.toString());
         }
     }
 
+    /**
+     * The two intent-creating paths send different parameters for the same order, and Stripe rejects a key
+     * reused with different parameters, so the key carries the path and a hash of the parameters.
+     */
+    private static String paymentIntentKey(Long orderId, String path, PaymentGateway.CreatePaymentIntentCommand command) {
+        return "order-" + orderId + "-payment-intent-" + path + "-" + command.fingerprint();
+    }
+
     private PaymentDto convertToDto(Payment payment) {
         PaymentDto dto = new PaymentDto();
         dto.setId(payment.getId());
@@ -559,21 +580,15 @@ public class PaymentService {
                 .build();
     }
 
-    public Payment createPaymentIntent(Order order, long amount, String currency, String customerEmail) throws StripeException {
-        Stripe.apiKey = stripeSecretKey;
-
-        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                .setAmount(amount)
-                .setCurrency(currency)
-                .setReceiptEmail(customerEmail)
-                .putMetadata("order_id", String.valueOf(order.getId()))
-                .build();
-
-        PaymentIntent paymentIntent = PaymentIntent.create(params);
+    public Payment createPaymentIntent(Order order, long amount, String currency, String customerEmail) {
+        PaymentGateway.CreatePaymentIntentCommand command = new PaymentGateway.CreatePaymentIntentCommand(
+                amount, currency, customerEmail, Map.of("order_id", String.valueOf(order.getId())), false);
+        PaymentGateway.GatewayPaymentIntent paymentIntent = paymentGateway.createPaymentIntent(
+                command, paymentIntentKey(order.getId(), "order", command));
 
         Payment payment = new Payment();
         payment.setOrder(order);
-        payment.setStripePaymentIntentId(paymentIntent.getId());
+        payment.setStripePaymentIntentId(paymentIntent.id());
         payment.setStatus(PaymentTransactionStatus.PENDING);
         payment.setCreatedAt(LocalDateTime.now());
         paymentRepository.save(payment);
@@ -0,0 +1,96 @@
+package com.harsh.ecommerce.service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stripe transport backed by a shared, pooled Apache HttpClient instead of a new HttpURLConnection per call.
+ * Connect/read timeouts come from the request's {@code RequestOptions}.
+ */
+class PooledStripeHttpClient extends HttpClient {
+
+    private final CloseableHttpClient httpClient;
+    private final int connectionRequestTimeoutMs;
+
+    PooledStripeHttpClient(CloseableHttpClient httpClient, int connectionRequestTimeoutMs) {
+        this.httpClient = httpClient;
+        this.connectionRequestTimeoutMs = connectionRequestTimeoutMs;
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws StripeException {
+        HttpRequestBase httpRequest = buildRequest(request);
+        try (CloseableHttpResponse response = httpClient.execute(httpRequest)) {
+            Map<String, List<String>> headers = new HashMap<>();
+            for (Header header : response.getAllHeaders()) {
+                headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+            }
+            HttpEntity entity = response.getEntity();
+            String body = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "";
+            return new StripeResponse(response.getStatusLine().getStatusCode(), HttpHeaders.of(headers), body);
+        } catch (IOException e) {
+            throw new ApiConnectionException(
+                    "IOException during API request to Stripe (" + request.url() + "): " + e.getMessage(), e);
+        }
+    }
+
+    private HttpRequestBase buildRequest(StripeRequest request) throws ApiConnectionException {
+        HttpRequestBase httpRequest;
+        try {
+            switch (request.method()) {
+                case GET -> httpRequest = new HttpGet(request.url().toURI());
+                case DELETE -> httpRequest = new HttpDelete(request.url().toURI());
+                case POST -> {
+                    HttpPost post = new HttpPost(request.url().toURI());
+                    if (request.content() != null) {
+                        post.setEntity(new ByteArrayEntity(request.content().byteArrayContent(),
+                                ContentType.parse(request.content().contentType())));
+                    }
+                    httpRequest = post;
+                }
+                default -> throw new ApiConnectionException("Unsupported HTTP method " + request.method());
+            }
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Invalid Stripe URL " + request.url(), e);
+        }
+
+        HttpHeaders headers = request.headers()
+                .withAdditionalHeader("User-Agent", buildUserAgentString())
+                .withAdditionalHeader("X-Stripe-Client-User-Agent", buildXStripeClientUserAgentString());
+        headers.map().forEach((name, values) -> values.forEach(value -> httpRequest.addHeader(name, value)));
+
+        RequestConfig.Builder config = RequestConfig.custom().setConnectionRequestTimeout(connectionRequestTimeoutMs);
+        if (request.options().getConnectTimeout() != null) {
+            config.setConnectTimeout(request.options().getConnectTimeout());
+        }
+        if (request.options().getReadTimeout() != null) {
+            config.setSocketTimeout(request.options().getReadTimeout());
+        }
+        httpRequest.setConfig(config.build());
+        return httpRequest;
+    }
+}
@@ -0,0 +1,45 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.exception.PaymentGatewayException;
+import com.harsh.ecommerce.resilience.ResilienceGuard;
+import com.harsh.ecommerce.resilience.ResilienceRegistry;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Predicate;
+
+/**
+ * Wraps whichever provider is configured (Stripe or the stub) in the "stripe" circuit breaker and bulkhead.
+ * Only retryable gateway errors (network, timeouts, 429, 5xx) count as failures; declines and invalid
+ * requests prove the provider is up.
+ */
+@Component
+@Primary
+public class ResilientPaymentGateway implements PaymentGateway {
+
+    private static final Predicate<Throwable> RETRYABLE_FAILURE =
+            e -> !(e instanceof PaymentGatewayException gatewayException) || gatewayException.isRetryable();
+
+    private final PaymentGateway delegate;
+    private final ResilienceGuard guard;
+
+    public ResilientPaymentGateway(PaymentGateway delegate, ResilienceRegistry resilienceRegistry) {
+        this.delegate = delegate;
+        this.guard = resilienceRegistry.guard(ResilienceRegistry.STRIPE, RETRYABLE_FAILURE);
+    }
+
+    @Override
+    public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command, String idempotencyKey) {
+        return guard.execute(() -> delegate.createPaymentIntent(command, idempotencyKey));
+    }
+
+    @Override
+    public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        return guard.execute(() -> delegate.retrievePaymentIntent(paymentIntentId));
+    }
+
+    @Override
+    public GatewayRefund createRefund(String paymentIntentId, long amount) {
+        return guard.execute(() -> delegate.createRefund(paymentIntentId, amount));
+    }
+}
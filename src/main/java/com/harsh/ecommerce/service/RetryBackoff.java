@@ -0,0 +1,29 @@
+package com.harsh.ecommerce.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter: attempt n waits {@code initial * 2^(n-1)}, capped at {@code max}, minus a
+ * random share of up to {@code jitter} of that delay so retries of many failures do not line up.
+ */
+public class RetryBackoff {
+
+    private final long initialMs;
+    private final long maxMs;
+    private final double jitter;
+
+    public RetryBackoff(long initialMs, long maxMs, double jitter) {
+        this.initialMs = initialMs;
+        this.maxMs = maxMs;
+        this.jitter = Math.max(0, Math.min(jitter, 1));
+    }
+
+    /**
+     * @param attempts attempts made so far, starting at 1
+     */
+    public long delayMillis(int attempts) {
+        long delay = Math.min(initialMs << Math.min(Math.max(attempts - 1, 0), 20), maxMs);
+        long spread = (long) (delay * jitter);
+        return spread > 0 ? delay - ThreadLocalRandom.current().nextLong(spread + 1) : delay;
+    }
+}
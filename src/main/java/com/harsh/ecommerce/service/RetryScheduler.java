@@ -0,0 +1,297 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.dto.RetryQueueStatusDto;
+import com.harsh.ecommerce.dto.ScheduledRetryDto;
+import com.harsh.ecommerce.entity.RetryTaskStatus;
+import com.harsh.ecommerce.entity.RetryTaskType;
+import com.harsh.ecommerce.entity.ScheduledRetry;
+import com.harsh.ecommerce.repository.ScheduledRetryRepository;
+import com.harsh.ecommerce.repository.SequenceIdAllocator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable delay queue for work that has to be retried until it succeeds (re-confirming a payment with
+ * Stripe, for example).
+ * <p>
+ * Tasks live in {@code scheduled_retries}. Every poll each node loads the tasks due within the look-ahead
+ * window into an in-memory {@link DelayQueue}, so {@link RetryWorker} wakes up exactly when a task is due
+ * instead of polling for it; the worker then claims the row with a conditional UPDATE, so a task loaded by
+ * several nodes still runs once. Rows left PROCESSING by a node that died are released once their lease ends.
+ */
+@Component
+public class RetryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+
+    private static final String SEQUENCE = "scheduled_retries_seq";
+
+    // Scheduling a task that is already pending is a no-op; a finished or dead one starts over
+    private static final String SCHEDULE_SQL =
+            "INSERT INTO scheduled_retries (id, task_type, task_key, payload, status, attempts, max_attempts, next_attempt_at, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?, ?, ?) " +
+            "ON CONFLICT (task_type, task_key) DO UPDATE SET payload = EXCLUDED.payload, status = 'PENDING', attempts = 0, " +
+            "max_attempts = EXCLUDED.max_attempts, next_attempt_at = EXCLUDED.next_attempt_at, locked_until = NULL, " +
+            "last_error = NULL, updated_at = EXCLUDED.updated_at " +
+            "WHERE scheduled_retries.status IN ('SUCCEEDED', 'DEAD') " +
+            "RETURNING id";
+
+    private static final String LOAD_SQL =
+            "SELECT id, next_attempt_at FROM scheduled_retries WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at LIMIT ?";
+
+    private static final String RELEASE_EXPIRED_SQL =
+            "UPDATE scheduled_retries SET status = 'PENDING', locked_until = NULL WHERE status = 'PROCESSING' AND locked_until < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+    private final ScheduledRetryRepository scheduledRetryRepository;
+    private final ObjectMapper objectMapper;
+
+    private final DelayQueue<DueTask> queue = new DelayQueue<>();
+    private final Set<Long> queuedIds = ConcurrentHashMap.newKeySet();
+
+    private RetryBackoff backoff;
+
+    @Value("${app.retries.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.retries.max-attempts:10}")
+    private int defaultMaxAttempts;
+
+    @Value("${app.retries.backoff-initial-ms:30000}")
+    private long backoffInitialMs;
+
+    @Value("${app.retries.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${app.retries.backoff-jitter:0.5}")
+    private double backoffJitter;
+
+    @Value("${app.retries.lookahead-ms:60000}")
+    private long lookaheadMs;
+
+    @Value("${app.retries.load-batch-size:1000}")
+    private int loadBatchSize;
+
+    @Value("${app.retries.retention-days:7}")
+    private long retentionDays;
+
+    public RetryScheduler(JdbcTemplate jdbcTemplate,
+                          SequenceIdAllocator idAllocator,
+                          ScheduledRetryRepository scheduledRetryRepository,
+                          ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+        this.scheduledRetryRepository = scheduledRetryRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        backoff = new RetryBackoff(backoffInitialMs, backoffMaxMs, backoffJitter);
+    }
+
+    public void schedule(RetryTaskType taskType, String taskKey, Map<String, Object> payload) {
+        schedule(taskType, taskKey, payload, defaultMaxAttempts);
+    }
+
+    /**
+     * Schedules a task to run after the first backoff delay. Joins the caller's transaction, so the task only
+     * exists if the caller commits.
+     */
+    public void schedule(RetryTaskType taskType, String taskKey, Map<String, Object> payload, int maxAttempts) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Retry payload is not serializable: " + e.getMessage(), e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dueAt = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff.delayMillis(1)));
+        Long id = idAllocator.allocate(SEQUENCE, 1).get(0);
+        List<Long> inserted = jdbcTemplate.queryForList(SCHEDULE_SQL, Long.class,
+                id, taskType.name(), taskKey, json, maxAttempts, Timestamp.valueOf(dueAt), Timestamp.valueOf(now), Timestamp.valueOf(now));
+        if (inserted.isEmpty()) {
+            logger.debug("Retry task {} {} is already scheduled", taskType, taskKey);
+            return;
+        }
+
+        logger.info("Scheduled retry task {} {} for {}", taskType, taskKey, dueAt);
+        afterCommit(() -> enqueueIfDueSoon(inserted.get(0), dueAt));
+    }
+
+    /**
+     * Moves tasks due within the look-ahead window into memory and releases expired leases.
+     */
+    @Scheduled(fixedDelayString = "${app.retries.poll-interval-ms:15000}", initialDelay = 5000)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int released = jdbcTemplate.update(RELEASE_EXPIRED_SQL, Timestamp.valueOf(now));
+            if (released > 0) {
+                logger.warn("Released {} retry tasks whose lease expired", released);
+            }
+            jdbcTemplate.query(LOAD_SQL,
+                    (RowCallbackHandler) rs -> enqueue(rs.getLong("id"), rs.getTimestamp("next_attempt_at").toLocalDateTime()),
+                    Timestamp.valueOf(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(lookaheadMs))), loadBatchSize);
+        } catch (Exception e) {
+            logger.error("Loading retry tasks failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.retries.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgeSucceeded() {
+        int removed = scheduledRetryRepository.deleteSucceededBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (removed > 0) {
+            logger.debug("Purged {} finished retry tasks", removed);
+        }
+    }
+
+    /**
+     * Next due task id, or null after the timeout.
+     */
+    Long takeDue(long timeout, TimeUnit unit) throws InterruptedException {
+        DueTask task = queue.poll(timeout, unit);
+        if (task == null) {
+            return null;
+        }
+        queuedIds.remove(task.id);
+        return task.id;
+    }
+
+    RetryBackoff getBackoff() {
+        return backoff;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void enqueueIfDueSoon(long id, LocalDateTime dueAt) {
+        if (enabled && dueAt.isBefore(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(lookaheadMs)))) {
+            enqueue(id, dueAt);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ScheduledRetryDto> getTasksByStatus(RetryTaskStatus status, Pageable pageable) {
+        return scheduledRetryRepository.findByStatusOrderByIdDesc(status, pageable).map(this::convertToDto);
+    }
+
+    @Transactional(readOnly = true)
+    public RetryQueueStatusDto getStatus(int inFlight) {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (RetryTaskStatus status : RetryTaskStatus.values()) {
+            byStatus.put(status.name(), 0L);
+        }
+        for (Object[] row : scheduledRetryRepository.countByStatus()) {
+            byStatus.put(((RetryTaskStatus) row[0]).name(), (Long) row[1]);
+        }
+        return RetryQueueStatusDto.builder()
+                .tasksByStatus(byStatus)
+                .queuedOnThisNode(queue.size())
+                .inFlightOnThisNode(inFlight)
+                .build();
+    }
+
+    @Transactional
+    public boolean requeue(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        if (scheduledRetryRepository.requeue(id, now) == 0) {
+            return false;
+        }
+        afterCommit(() -> enqueue(id, now));
+        return true;
+    }
+
+    @Transactional
+    public int requeueDead() {
+        // Picked up by the next load on whichever node gets there first
+        return scheduledRetryRepository.requeueDead(LocalDateTime.now());
+    }
+
+    private void enqueue(long id, LocalDateTime dueAt) {
+        if (queuedIds.add(id)) {
+            queue.put(new DueTask(id, dueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private ScheduledRetryDto convertToDto(ScheduledRetry task) {
+        return ScheduledRetryDto.builder()
+                .id(task.getId())
+                .taskType(task.getTaskType())
+                .taskKey(task.getTaskKey())
+                .status(task.getStatus())
+                .attempts(task.getAttempts())
+                .maxAttempts(task.getMaxAttempts())
+                .nextAttemptAt(task.getNextAttemptAt())
+                .lastError(task.getLastError())
+                .createdAt(task.getCreatedAt())
+                .updatedAt(task.getUpdatedAt())
+                .build();
+    }
+
+    private static final class DueTask implements Delayed {
+        private final long id;
+        private final long dueAtMillis;
+
+        private DueTask(long id, long dueAtMillis) {
+            this.id = id;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((DueTask) other).dueAtMillis);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.harsh.ecommerce.entity.RetryTaskType;
+
+/**
+ * Runs one kind of {@link RetryScheduler} task. Throwing schedules another attempt; returning normally
+ * finishes the task. Like outbox handlers, implementations must tolerate running more than once.
+ */
+public interface RetryTaskHandler {
+
+    RetryTaskType taskType();
+
+    void handle(String taskKey, JsonNode payload) throws Exception;
+
+    /**
+     * False for errors another attempt cannot fix; the task is dead-lettered immediately.
+     */
+    default boolean isRetryable(Exception e) {
+        return true;
+    }
+}
@@ -0,0 +1,204 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.config.AsyncConfig;
+import com.harsh.ecommerce.entity.RetryTaskStatus;
+import com.harsh.ecommerce.entity.RetryTaskType;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link RetryScheduler} tasks as they come due on the payments executor, at most
+ * {@code app.retries.workers} at a time. A task is claimed with a conditional UPDATE before it runs, then
+ * either finished, rescheduled with jittered exponential backoff, or dead-lettered after its last attempt.
+ */
+@Component
+public class RetryWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryWorker.class);
+
+    private static final String CLAIM_SQL =
+            "UPDATE scheduled_retries SET status = 'PROCESSING', attempts = attempts + 1, locked_until = ?, updated_at = ? " +
+            "WHERE id = ? AND status = 'PENDING' AND next_attempt_at <= ? " +
+            "RETURNING task_type, task_key, payload, attempts, max_attempts";
+
+    private static final String MARK_SUCCEEDED_SQL =
+            "UPDATE scheduled_retries SET status = 'SUCCEEDED', locked_until = NULL, last_error = NULL, updated_at = ? WHERE id = ?";
+
+    private static final String MARK_FAILED_SQL =
+            "UPDATE scheduled_retries SET status = ?, next_attempt_at = ?, locked_until = NULL, last_error = ?, updated_at = ? WHERE id = ?";
+
+    // Dependency was short-circuited, so the handler never ran: reschedule without spending an attempt
+    private static final String DEFER_SQL =
+            "UPDATE scheduled_retries SET status = 'PENDING', attempts = attempts - 1, next_attempt_at = ?, locked_until = NULL, " +
+            "updated_at = ? WHERE id = ?";
+
+    private final RetryScheduler retryScheduler;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor executor;
+    private final Map<RetryTaskType, RetryTaskHandler> handlers = new EnumMap<>(RetryTaskType.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${app.retries.workers:4}")
+    private int workers;
+
+    @Value("${app.retries.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private Semaphore permits;
+    private Thread dispatcherThread;
+    private volatile boolean running;
+
+    public RetryWorker(RetryScheduler retryScheduler,
+                       JdbcTemplate jdbcTemplate,
+                       ObjectMapper objectMapper,
+                       List<RetryTaskHandler> taskHandlers,
+                       @Qualifier(AsyncConfig.PAYMENTS) TaskExecutor executor) {
+        this.retryScheduler = retryScheduler;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        for (RetryTaskHandler handler : taskHandlers) {
+            handlers.put(handler.taskType(), handler);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!retryScheduler.isEnabled()) {
+            return;
+        }
+        permits = new Semaphore(workers);
+        running = true;
+        dispatcherThread = new Thread(this::runDispatcher, "retry-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Tasks already handed over are drained when the payments executor shuts down
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void runDispatcher() {
+        while (running) {
+            try {
+                // Only take a task when a worker is free, so due tasks stay ordered in the delay queue
+                permits.acquire();
+                Long id = retryScheduler.takeDue(1, TimeUnit.SECONDS);
+                if (id == null) {
+                    permits.release();
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            run(id);
+                        } finally {
+                            inFlight.decrementAndGet();
+                            permits.release();
+                        }
+                    });
+                } catch (TaskRejectedException e) {
+                    // Still PENDING in the table; the next load picks it up again
+                    inFlight.decrementAndGet();
+                    permits.release();
+                    logger.warn("Payments executor rejected retry task {}", id);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void run(long id) {
+        ClaimedTask task;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<ClaimedTask> claimed = jdbcTemplate.query(CLAIM_SQL,
+                    (rs, rowNum) -> new ClaimedTask(
+                            RetryTaskType.valueOf(rs.getString("task_type")),
+                            rs.getString("task_key"),
+                            rs.getString("payload"),
+                            rs.getInt("attempts"),
+                            rs.getInt("max_attempts")),
+                    Timestamp.valueOf(now.plusSeconds(leaseSeconds)), Timestamp.valueOf(now), id, Timestamp.valueOf(now));
+            if (claimed.isEmpty()) {
+                // Another node ran it, or it was rescheduled
+                return;
+            }
+            task = claimed.get(0);
+        } catch (Exception e) {
+            logger.error("Claiming retry task {} failed: {}", id, e.getMessage());
+            return;
+        }
+
+        RetryTaskHandler handler = handlers.get(task.type);
+        try {
+            if (handler == null) {
+                throw new IllegalStateException("No handler registered for " + task.type);
+            }
+            handler.handle(task.key, objectMapper.readTree(task.payload));
+            jdbcTemplate.update(MARK_SUCCEEDED_SQL, Timestamp.valueOf(LocalDateTime.now()), id);
+            logger.info("Retry task {} {} succeeded on attempt {}", task.type, task.key, task.attempts);
+        } catch (CallNotPermittedException e) {
+            Duration retryAfter = e.getRetryAfter().compareTo(Duration.ofSeconds(1)) < 0 ? Duration.ofSeconds(1) : e.getRetryAfter();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime dueAt = now.plus(retryAfter);
+            jdbcTemplate.update(DEFER_SQL, Timestamp.valueOf(dueAt), Timestamp.valueOf(now), id);
+            retryScheduler.enqueueIfDueSoon(id, dueAt);
+        } catch (Exception e) {
+            fail(id, task, handler, e);
+        }
+    }
+
+    private void fail(long id, ClaimedTask task, RetryTaskHandler handler, Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        LocalDateTime now = LocalDateTime.now();
+        boolean retryable = handler != null && handler.isRetryable(e);
+        if (!retryable || task.attempts >= task.maxAttempts) {
+            logger.error("Retry task {} {} is dead after {} attempts: {}", task.type, task.key, task.attempts, error);
+            jdbcTemplate.update(MARK_FAILED_SQL, RetryTaskStatus.DEAD.name(), Timestamp.valueOf(now), error, Timestamp.valueOf(now), id);
+            return;
+        }
+
+        LocalDateTime dueAt = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(retryScheduler.getBackoff().delayMillis(task.attempts + 1)));
+        logger.warn("Retry task {} {} failed on attempt {}, next attempt at {}: {}", task.type, task.key, task.attempts, dueAt, error);
+        jdbcTemplate.update(MARK_FAILED_SQL, RetryTaskStatus.PENDING.name(), Timestamp.valueOf(dueAt), error, Timestamp.valueOf(now), id);
+        retryScheduler.enqueueIfDueSoon(id, dueAt);
+    }
+
+    private record ClaimedTask(RetryTaskType type, String key, String payload, int attempts, int maxAttempts) {
+    }
+}
@@ -0,0 +1,226 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.dto.AnalyticsGranularity;
+import com.harsh.ecommerce.dto.SalesRollupDto;
+import com.harsh.ecommerce.dto.SalesRollupStatusDto;
+import com.harsh.ecommerce.entity.JobCheckpoint;
+import com.harsh.ecommerce.entity.SalesRollupDimension;
+import com.harsh.ecommerce.repository.JobCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Maintains hourly and daily sales rollups per product and per category.
+ * <p>
+ * Each run picks up orders whose {@code updated_at} moved past the watermark (minus an overlap, so rows
+ * committed late are not missed) and compares each order's status with {@code order_rollup_state}:
+ * an order that became countable adds its items, one that stopped being countable (cancelled, refunded)
+ * subtracts them, anything else is a no-op. Re-processing the same orders is therefore harmless.
+ * Buckets are keyed by the order's creation time.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    static final String JOB_NAME = "sales-rollup";
+
+    // Statuses whose items count as sold; PENDING orders are not paid yet
+    private static final String COUNTED_STATUSES = "('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')";
+
+    // Only one node refreshes at a time; the lock is released when the transaction ends
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(hashtext('" + JOB_NAME + "'))";
+
+    private static final String COLLECT_CHANGES_SQL =
+            "CREATE TEMPORARY TABLE rollup_changes ON COMMIT DROP AS " +
+            "SELECT o.id AS order_id, o.created_at, o.status IN " + COUNTED_STATUSES + " AS counted, " +
+            "CASE WHEN (o.status IN " + COUNTED_STATUSES + ") = COALESCE(s.counted, FALSE) THEN 0 " +
+            "WHEN o.status IN " + COUNTED_STATUSES + " THEN 1 ELSE -1 END AS sign " +
+            "FROM orders o LEFT JOIN order_rollup_state s ON s.order_id = o.id " +
+            "WHERE o.updated_at > ? AND o.updated_at <= ?";
+
+    private static final String UPSERT_COLUMNS =
+            "INSERT INTO sales_rollups (id, granularity, dimension, dimension_id, bucket_start, units, revenue, order_count, updated_at) ";
+
+    private static final String ON_CONFLICT =
+            "ON CONFLICT (granularity, dimension, dimension_id, bucket_start) DO UPDATE SET " +
+            "units = sales_rollups.units + EXCLUDED.units, " +
+            "revenue = sales_rollups.revenue + EXCLUDED.revenue, " +
+            "order_count = sales_rollups.order_count + EXCLUDED.order_count, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    // date_trunc fields are formatted in from AnalyticsGranularity: a bind parameter would make the SELECT and
+    // GROUP BY expressions differ, which Postgres rejects
+    private static final String APPLY_PRODUCT_SQL = UPSERT_COLUMNS +
+            "SELECT nextval('sales_rollups_seq'), :granularity, 'PRODUCT', oi.product_id, date_trunc('%1$s', c.created_at), " +
+            "SUM(c.sign * oi.quantity), SUM(c.sign * oi.subtotal), SUM(c.sign), :now " +
+            "FROM rollup_changes c JOIN order_items oi ON oi.order_id = c.order_id " +
+            "WHERE c.sign <> 0 GROUP BY oi.product_id, date_trunc('%1$s', c.created_at) " + ON_CONFLICT;
+
+    // Collapse to one row per order and category first so an order with two products in a category counts once
+    private static final String APPLY_CATEGORY_SQL = UPSERT_COLUMNS +
+            "SELECT nextval('sales_rollups_seq'), :granularity, 'CATEGORY', x.category_id, x.bucket_start, " +
+            "SUM(x.sign * x.units), SUM(x.sign * x.revenue), SUM(x.sign), :now FROM (" +
+            "SELECT c.order_id, c.sign, date_trunc('%1$s', c.created_at) AS bucket_start, p.category_id, " +
+            "SUM(oi.quantity) AS units, SUM(oi.subtotal) AS revenue " +
+            "FROM rollup_changes c JOIN order_items oi ON oi.order_id = c.order_id JOIN products p ON p.id = oi.product_id " +
+            "WHERE c.sign <> 0 GROUP BY c.order_id, c.sign, date_trunc('%1$s', c.created_at), p.category_id) x " +
+            "GROUP BY x.category_id, x.bucket_start " + ON_CONFLICT;
+
+    private static final String UPDATE_STATE_SQL =
+            "INSERT INTO order_rollup_state (order_id, counted, updated_at) " +
+            "SELECT order_id, counted, ? FROM rollup_changes WHERE sign <> 0 " +
+            "ON CONFLICT (order_id) DO UPDATE SET counted = EXCLUDED.counted, updated_at = EXCLUDED.updated_at";
+
+    private static final String QUERY_SQL =
+            "SELECT date_trunc('%1$s', r.bucket_start) AS bucket, r.dimension_id, d.name, " +
+            "SUM(r.units) AS units, SUM(r.revenue) AS revenue, SUM(r.order_count) AS order_count " +
+            "FROM sales_rollups r LEFT JOIN %2$s d ON d.id = r.dimension_id " +
+            "WHERE r.granularity = :granularity AND r.dimension = :dimension " +
+            "AND r.bucket_start >= :start AND r.bucket_start < :end %3$s" +
+            "GROUP BY date_trunc('%1$s', r.bucket_start), r.dimension_id, d.name " +
+            "HAVING SUM(r.order_count) <> 0 " +
+            "ORDER BY bucket, revenue DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCheckpointRepository jobCheckpointRepository;
+
+    @Value("${app.analytics.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.analytics.rollup.overlap-seconds:300}")
+    private long overlapSeconds;
+
+    public SalesRollupService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              JobCheckpointRepository jobCheckpointRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobCheckpointRepository = jobCheckpointRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.rollup.refresh-interval-ms:60000}", initialDelay = 30000)
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("Sales rollup refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies every order change since the last run. Returns the number of orders whose contribution
+     * changed, or -1 if another node is refreshing.
+     */
+    public long refresh() {
+        Long applied = transactionTemplate.execute(status -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class))) {
+                return -1L;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime watermark = jobCheckpointRepository.findById(JOB_NAME)
+                    .map(JobCheckpoint::getWatermark)
+                    .orElse(LocalDateTime.of(1970, 1, 1, 0, 0));
+            LocalDateTime from = watermark.minusSeconds(overlapSeconds);
+
+            jdbcTemplate.update(COLLECT_CHANGES_SQL, Timestamp.valueOf(from), Timestamp.valueOf(now));
+            Long changed = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rollup_changes WHERE sign <> 0", Long.class);
+
+            if (changed != null && changed > 0) {
+                for (AnalyticsGranularity granularity : List.of(AnalyticsGranularity.HOUR, AnalyticsGranularity.DAY)) {
+                    MapSqlParameterSource params = new MapSqlParameterSource()
+                            .addValue("granularity", granularity.name())
+                            .addValue("now", Timestamp.valueOf(now));
+                    namedJdbcTemplate.update(String.format(APPLY_PRODUCT_SQL, granularity.getField()), params);
+                    namedJdbcTemplate.update(String.format(APPLY_CATEGORY_SQL, granularity.getField()), params);
+                }
+                jdbcTemplate.update(UPDATE_STATE_SQL, Timestamp.valueOf(now));
+            }
+
+            jobCheckpointRepository.save(JobCheckpoint.builder()
+                    .jobName(JOB_NAME)
+                    .watermark(now)
+                    .lastRunAt(now)
+                    .lastRunRows(changed)
+                    .build());
+            return changed;
+        });
+
+        if (applied != null && applied > 0) {
+            logger.info("Sales rollups updated for {} orders", applied);
+        }
+        return applied != null ? applied : 0L;
+    }
+
+    /**
+     * Drops all rollups and state; the next refresh recomputes them from every order.
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtext('" + JOB_NAME + "'))", Object.class);
+            jdbcTemplate.update("DELETE FROM sales_rollups");
+            jdbcTemplate.update("DELETE FROM order_rollup_state");
+            jobCheckpointRepository.deleteById(JOB_NAME);
+        });
+        refresh();
+    }
+
+    public SalesRollupStatusDto getStatus() {
+        return jobCheckpointRepository.findById(JOB_NAME)
+                .map(checkpoint -> SalesRollupStatusDto.builder()
+                        .watermark(checkpoint.getWatermark())
+                        .lastRunAt(checkpoint.getLastRunAt())
+                        .lastRunOrders(checkpoint.getLastRunRows())
+                        .lagSeconds(Duration.between(checkpoint.getWatermark(), LocalDateTime.now()).toSeconds())
+                        .build())
+                .orElseGet(SalesRollupStatusDto::new);
+    }
+
+    /**
+     * Sales per bucket for products or categories. HOUR is read from the hourly rollup; DAY, WEEK and MONTH
+     * are summed from the daily rollup.
+     */
+    public List<SalesRollupDto> getSales(SalesRollupDimension dimension, AnalyticsGranularity granularity,
+                                         LocalDateTime start, LocalDateTime end, Long dimensionId) {
+        AnalyticsGranularity source = granularity == AnalyticsGranularity.HOUR ? AnalyticsGranularity.HOUR : AnalyticsGranularity.DAY;
+        String table = dimension == SalesRollupDimension.PRODUCT ? "products" : "categories";
+        String sql = String.format(QUERY_SQL, granularity.getField(), table,
+                dimensionId != null ? "AND r.dimension_id = :dimensionId " : "");
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("granularity", source.name())
+                .addValue("dimension", dimension.name())
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end))
+                .addValue("dimensionId", dimensionId);
+
+        return namedJdbcTemplate.query(sql, params, (rs, rowNum) -> SalesRollupDto.builder()
+                .bucketStart(rs.getTimestamp("bucket").toLocalDateTime())
+                .id(rs.getLong("dimension_id"))
+                .name(rs.getString("name"))
+                .units(rs.getLong("units"))
+                .revenue(rs.getBigDecimal("revenue"))
+                .orderCount(rs.getLong("order_count"))
+                .build());
+    }
+}
@@ -0,0 +1,143 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.exception.PaymentGatewayException;
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@ConditionalOnProperty(name = "app.payments.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Value("${stripe.secret.key}")
+    private String stripeSecretKey;
+
+    @Value("${app.payments.stripe.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.payments.stripe.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    @Value("${app.payments.stripe.pool-wait-timeout-ms:1000}")
+    private int poolWaitTimeoutMs;
+
+    @Value("${app.payments.stripe.max-network-retries:2}")
+    private int maxNetworkRetries;
+
+    @Value("${app.payments.stripe.max-connections:50}")
+    private int maxConnections;
+
+    private CloseableHttpClient httpClient;
+    private StripeClient stripeClient;
+
+    @PostConstruct
+    public void init() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        // Every call goes to api.stripe.com, so the whole pool is one route
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .disableAutomaticRetries()
+                .build();
+        stripeClient = new StripeClient(new LiveStripeResponseGetter(new PooledStripeHttpClient(httpClient, poolWaitTimeoutMs)));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+
+    @Override
+    public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command, String idempotencyKey) {
+        PaymentIntentCreateParams.Builder params = PaymentIntentCreateParams.builder()
+                .setAmount(command.amount())
+                .setCurrency(command.currency())
+                .setReceiptEmail(command.receiptEmail())
+                .putAllMetadata(command.metadata());
+        if (command.manualConfirmation()) {
+            params.setConfirmationMethod(PaymentIntentCreateParams.ConfirmationMethod.MANUAL)
+                    .addPaymentMethodType("card");
+        }
+
+        try {
+            return toGatewayIntent(stripeClient.paymentIntents().create(params.build(), requestOptions(idempotencyKey)));
+        } catch (StripeException e) {
+            throw translate("create payment intent", e);
+        }
+    }
+
+    @Override
+    public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        try {
+            return toGatewayIntent(stripeClient.paymentIntents().retrieve(paymentIntentId, requestOptions(null)));
+        } catch (StripeException e) {
+            throw translate("retrieve payment intent", e);
+        }
+    }
+
+    @Override
+    public GatewayRefund createRefund(String paymentIntentId, long amount) {
+        RefundCreateParams params = RefundCreateParams.builder()
+                .setPaymentIntent(paymentIntentId)
+                .setAmount(amount)
+                .setReason(RefundCreateParams.Reason.REQUESTED_BY_CUSTOMER)
+                .build();
+        try {
+            Refund refund = stripeClient.refunds().create(params, requestOptions(null));
+            return new GatewayRefund(refund.getId(), refund.getStatus(), refund.getAmount());
+        } catch (StripeException e) {
+            throw translate("create refund", e);
+        }
+    }
+
+    private RequestOptions requestOptions(String idempotencyKey) {
+        RequestOptions.RequestOptionsBuilder options = RequestOptions.builder()
+                .setApiKey(stripeSecretKey)
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs)
+                .setMaxNetworkRetries(maxNetworkRetries);
+        if (idempotencyKey != null) {
+            options.setIdempotencyKey(idempotencyKey);
+        }
+        return options.build();
+    }
+
+    private GatewayPaymentIntent toGatewayIntent(PaymentIntent intent) {
+        return new GatewayPaymentIntent(intent.getId(), intent.getStatus(), intent.getClientSecret(),
+                intent.getAmount(), intent.getAmountReceived(), intent.getCurrency(), intent.getMetadata());
+    }
+
+    private PaymentGatewayException translate(String operation, StripeException e) {
+        Integer status = e.getStatusCode();
+        boolean retryable = e instanceof ApiConnectionException
+                || e instanceof RateLimitException
+                || (status != null && status >= 500);
+        return new PaymentGatewayException("Stripe failed to " + operation + ": " + e.getMessage(),
+                e.getCode(), e.getRequestId(), retryable, e);
+    }
+}
@@ -0,0 +1,109 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.exception.PaymentGatewayException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-memory payment provider for local development and load tests. No network calls are made.
+ * Latency and failures can be injected to exercise timeouts and retry paths.
+ */
+@Component
+@ConditionalOnProperty(name = "app.payments.gateway", havingValue = "stub")
+public class StubPaymentGateway implements PaymentGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubPaymentGateway.class);
+
+    private final Map<String, GatewayPaymentIntent> intents = new ConcurrentHashMap<>();
+    private final Map<String, String> intentsByIdempotencyKey = new ConcurrentHashMap<>();
+    private final Map<String, Long> refundedAmounts = new ConcurrentHashMap<>();
+
+    @Value("${app.payments.stub.latency-ms:50}")
+    private long latencyMs;
+
+    @Value("${app.payments.stub.latency-jitter-ms:0}")
+    private long latencyJitterMs;
+
+    @Value("${app.payments.stub.failure-rate:0.0}")
+    private double failureRate;
+
+    // Status new intents are created with: "succeeded" lets confirm/refund flows run end to end
+    @Value("${app.payments.stub.initial-status:succeeded}")
+    private String initialStatus;
+
+    public StubPaymentGateway() {
+        logger.warn("Using stub payment gateway; no real payments will be processed");
+    }
+
+    @Override
+    public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command, String idempotencyKey) {
+        simulateCall("create payment intent");
+
+        if (idempotencyKey != null) {
+            String existingId = intentsByIdempotencyKey.get(idempotencyKey);
+            if (existingId != null) {
+                return intents.get(existingId);
+            }
+        }
+
+        String id = "pi_stub_" + UUID.randomUUID().toString().replace("-", "");
+        long received = "succeeded".equals(initialStatus) ? command.amount() : 0L;
+        GatewayPaymentIntent intent = new GatewayPaymentIntent(id, initialStatus, id + "_secret_stub",
+                command.amount(), received, command.currency(), Map.copyOf(command.metadata()));
+        intents.put(id, intent);
+        if (idempotencyKey != null) {
+            String winner = intentsByIdempotencyKey.putIfAbsent(idempotencyKey, id);
+            if (winner != null) {
+                intents.remove(id);
+                return intents.get(winner);
+            }
+        }
+        return intent;
+    }
+
+    @Override
+    public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        simulateCall("retrieve payment intent");
+        GatewayPaymentIntent intent = intents.get(paymentIntentId);
+        if (intent == null) {
+            throw new PaymentGatewayException("No such payment_intent: " + paymentIntentId, "resource_missing", null, false, null);
+        }
+        return intent;
+    }
+
+    @Override
+    public GatewayRefund createRefund(String paymentIntentId, long amount) {
+        simulateCall("create refund");
+        GatewayPaymentIntent intent = retrievePaymentIntent(paymentIntentId);
+        long refunded = refundedAmounts.merge(paymentIntentId, amount, Long::sum);
+        if (intent.amountReceived() == null || refunded > intent.amountReceived()) {
+            refundedAmounts.merge(paymentIntentId, -amount, Long::sum);
+            throw new PaymentGatewayException("Refund amount exceeds the charged amount", "amount_too_large", null, false, null);
+        }
+        return new GatewayRefund("re_stub_" + UUID.randomUUID().toString().replace("-", ""), "succeeded", amount);
+    }
+
+    private void simulateCall(String operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMs + (latencyJitterMs > 0 ? random.nextLong(latencyJitterMs + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PaymentGatewayException("Interrupted during stub " + operation, true);
+            }
+        }
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            throw new PaymentGatewayException("Injected stub failure during " + operation, true);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.harsh.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for users' last-login times.
+ * <p>
+ * Logins only record the time in memory; repeat logins by the same user before the next flush coalesce into
+ * one entry. Every flush interval the buffered times are written with one {@code UPDATE ... FROM (VALUES ...)}
+ * per batch. The update never moves {@code last_login} backwards and leaves {@code updated_at} alone, so it
+ * does not count as a profile change. Reads that depend on last-login call {@link #flush()} first.
+ */
+@Component
+public class UserActivityBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserActivityBuffer.class);
+
+    private static final String UPDATE_PREFIX = "UPDATE users AS u SET last_login = v.ts FROM (VALUES ";
+    private static final String UPDATE_ROW = "(CAST(? AS BIGINT), CAST(? AS TIMESTAMP))";
+    private static final String UPDATE_SUFFIX =
+            ") AS v(id, ts) WHERE u.id = v.id AND (u.last_login IS NULL OR u.last_login < v.ts)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    @Value("${app.users.activity.batch-size:500}")
+    private int batchSize;
+
+    public UserActivityBuffer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void recordLogin(Long userId, LocalDateTime at) {
+        buffer(userId, at);
+        recorded.incrementAndGet();
+    }
+
+    /**
+     * Writes everything buffered so far. Safe to call from any thread; concurrent callers wait for the
+     * flush in progress rather than writing the same entries twice.
+     */
+    @Scheduled(fixedDelayString = "${app.users.activity.flush-interval-ms:5000}")
+    public void flush() {
+        // Lock first: an empty map may only mean another flush has taken the entries and is still writing them
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Map.Entry<Long, LocalDateTime>> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+            // Snapshot the keys so entries put back after a failed write wait for the next flush
+            for (Long userId : List.copyOf(pending.keySet())) {
+                // A login recorded after this removal starts a new entry for the next flush
+                LocalDateTime at = pending.remove(userId);
+                if (at != null) {
+                    batch.add(Map.entry(userId, at));
+                }
+                if (batch.size() >= batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    private void write(List<Map.Entry<Long, LocalDateTime>> batch) {
+        StringBuilder sql = new StringBuilder(UPDATE_PREFIX.length() + UPDATE_SUFFIX.length() + batch.size() * (UPDATE_ROW.length() + 2));
+        sql.append(UPDATE_PREFIX);
+        Object[] args = new Object[batch.size() * 2];
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(UPDATE_ROW);
+            args[i * 2] = batch.get(i).getKey();
+            args[i * 2 + 1] = Timestamp.valueOf(batch.get(i).getValue());
+        }
+        sql.append(UPDATE_SUFFIX);
+
+        try {
+            jdbcTemplate.update(sql.toString(), args);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            // Put the times back (keeping any newer login) so the next flush retries them
+            logger.error("Writing {} last-login times failed: {}", batch.size(), e.getMessage());
+            for (Map.Entry<Long, LocalDateTime> entry : batch) {
+                buffer(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void buffer(Long userId, LocalDateTime at) {
+        pending.merge(userId, at, (previous, next) -> next.isAfter(previous) ? next : previous);
+    }
+}
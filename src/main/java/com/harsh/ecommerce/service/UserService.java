@@ -1,9 +1,11 @@
 package com.harsh.ecommerce.service;
 
+import com.harsh.ecommerce.Security.UserVersionRegistry;
 import com.harsh.ecommerce.dto.PasswordChangeDto;
 import com.harsh.ecommerce.dto.UserProfileUpdateDto;
 import com.harsh.ecommerce.dto.UserRegistrationDto;
 import com.harsh.ecommerce.dto.UserResponseDto;
+import com.harsh.ecommerce.entity.OutboxEventType;
 import com.harsh.ecommerce.entity.Role;
 import com.harsh.ecommerce.entity.User;
 import com.harsh.ecommerce.exception.EmailAlreadyExistsException;
@@ -19,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,7 +35,13 @@ public class UserService {
     private PasswordEncoder passwordEncoder;
 
     @Autowired
-    private EmailService emailService; // Added EmailService
+    private OutboxService outboxService;
+
+    @Autowired
+    private UserVersionRegistry userVersionRegistry;
+
+    @Autowired
+    private UserActivityBuffer userActivityBuffer;
 
     public UserResponseDto createUser(UserRegistrationDto registrationDto) {
         if (userRepository.existsByEmail(registrationDto.getEmail())) {
@@ -49,16 +58,9 @@ public class UserService {
 
         User savedUser = userRepository.save(user);
 
-        // FIXED: Send welcome email for new user registration
-        try {
-            emailService.sendWelcomeEmail(
-                    savedUser.getEmail(),
-                    savedUser.getFirstName() + " " + savedUser.getLastName()
-            );
-            System.out.println("✅ Welcome email sent to: " + savedUser.getEmail());
-        } catch (Exception e) {
-            System.err.println("❌ Failed to send welcome email: " + e.getMessage());
-        }
+        outboxService.publish("USER", savedUser.getId(), OutboxEventType.USER_REGISTERED, Map.of(
+                "email", savedUser.getEmail(),
+                "name", savedUser.getFirstName() + " " + savedUser.getLastName()));
 
         return new UserResponseDto(savedUser);
     }
@@ -111,10 +113,13 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
 
-        if (!user.getEmail().equals(updateDto.getEmail())) {
+        boolean emailChanged = !user.getEmail().equals(updateDto.getEmail());
+        if (emailChanged) {
             if (userRepository.existsByEmail(updateDto.getEmail())) {
                 throw new EmailAlreadyExistsException("Email already exists: " + updateDto.getEmail());
             }
+            // Tokens carry the email as their subject
+            user.revokeTokens();
         }
 
         user.setFirstName(updateDto.getFirstName());
@@ -123,6 +128,9 @@ public class UserService {
         user.setPhone(updateDto.getPhone());
 
         User savedUser = userRepository.save(user);
+        if (emailChanged) {
+            userVersionRegistry.userChanged(savedUser);
+        }
         return new UserResponseDto(savedUser);
     }
 
@@ -139,14 +147,18 @@ public class UserService {
         }
 
         user.setPassword(passwordEncoder.encode(passwordChangeDto.getNewPassword()));
+        user.revokeTokens();
         userRepository.save(user);
+        userVersionRegistry.userChanged(user);
     }
 
     public void deactivateUser(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
         user.setIsActive(false);
+        user.revokeTokens();
         userRepository.save(user);
+        userVersionRegistry.userChanged(user);
     }
 
     public void activateUser(Long id) {
@@ -154,21 +166,22 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
         user.setIsActive(true);
         userRepository.save(user);
+        userVersionRegistry.userChanged(user);
     }
 
     public UserResponseDto updateUserRole(Long id, Role newRole) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
         user.setRole(newRole);
+        user.revokeTokens();
         User savedUser = userRepository.save(user);
+        userVersionRegistry.userChanged(savedUser);
         return new UserResponseDto(savedUser);
     }
 
-    public void updateLastLogin(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
-        user.updateLastLogin();
-        userRepository.save(user);
+    public void updateLastLogin(Long userId) {
+        // Buffered and written in batches; see UserActivityBuffer
+        userActivityBuffer.recordLogin(userId, LocalDateTime.now());
     }
 
     public long getTotalUsers() {
@@ -188,6 +201,8 @@ public class UserService {
     }
 
     public List<UserResponseDto> getInactiveUsers(int daysInactive) {
+        // Buffered logins have to be in the table before it is asked who has not logged in
+        userActivityBuffer.flush();
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysInactive);
         return userRepository.findInactiveUsers(cutoffDate)
                 .stream()
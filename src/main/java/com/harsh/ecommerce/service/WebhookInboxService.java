@@ -0,0 +1,333 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.dto.WebhookBacklogDto;
+import com.harsh.ecommerce.dto.WebhookEventDto;
+import com.harsh.ecommerce.entity.WebhookEvent;
+import com.harsh.ecommerce.entity.WebhookEventStatus;
+import com.harsh.ecommerce.repository.WebhookEventRepository;
+import com.stripe.model.Event;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable inbox for Stripe webhooks.
+ * The webhook endpoint only inserts the raw event (duplicates by Stripe event id are dropped) and returns.
+ * Workers then apply events through {@link PaymentService#processWebhookEvent}: only the oldest unfinished
+ * event of each payment intent is claimable, so events for one intent are applied in order while different
+ * intents run in parallel on partitioned single-thread workers. Failed events are retried with jittered
+ * exponential backoff ({@link RetryBackoff}) and marked DEAD after max-attempts.
+ */
+@Service
+public class WebhookInboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookInboxService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO webhook_events (id, event_id, event_type, payment_intent_id, payload, status, attempts, " +
+            "next_attempt_at, received_at) VALUES (nextval('webhook_events_seq'), ?, ?, ?, ?, 'PENDING', 0, ?, ?) " +
+            "ON CONFLICT (event_id) DO NOTHING";
+
+    static final String CLAIM_SQL =
+            "UPDATE webhook_events SET status = 'PROCESSING', attempts = attempts + 1, locked_until = ? " +
+            "WHERE id IN (SELECT w.id FROM webhook_events w " +
+            "WHERE ((w.status = 'PENDING' AND w.next_attempt_at <= ?) OR (w.status = 'PROCESSING' AND w.locked_until < ?)) " +
+            "AND NOT EXISTS (SELECT 1 FROM webhook_events e WHERE e.payment_intent_id = w.payment_intent_id " +
+            "AND e.id < w.id AND e.status IN ('PENDING', 'PROCESSING')) " +
+            "ORDER BY w.id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, event_id, event_type, payment_intent_id, payload, attempts";
+
+    static final String MARK_PROCESSED_SQL =
+            "UPDATE webhook_events SET status = 'PROCESSED', processed_at = ?, locked_until = NULL, last_error = NULL " +
+            "WHERE id = ?";
+
+    static final String MARK_FAILED_SQL =
+            "UPDATE webhook_events SET status = ?, next_attempt_at = ?, locked_until = NULL, last_error = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    private final ObjectMapper objectMapper;
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${app.webhooks.inbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.webhooks.inbox.workers:4}")
+    private int workerCount;
+
+    @Value("${app.webhooks.inbox.max-in-flight:50}")
+    private int maxInFlight;
+
+    @Value("${app.webhooks.inbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.webhooks.inbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.webhooks.inbox.backoff-initial-ms:2000}")
+    private long backoffInitialMs;
+
+    @Value("${app.webhooks.inbox.backoff-max-ms:600000}")
+    private long backoffMaxMs;
+
+    @Value("${app.webhooks.inbox.backoff-jitter:0.5}")
+    private double backoffJitter;
+
+    @Value("${app.webhooks.inbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    private ExecutorService[] workers;
+    private Thread dispatcherThread;
+    private volatile boolean running;
+    private RetryBackoff backoff;
+
+    public WebhookInboxService(JdbcTemplate jdbcTemplate,
+                               WebhookEventRepository webhookEventRepository,
+                               PaymentService paymentService,
+                               ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentService = paymentService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        backoff = new RetryBackoff(backoffInitialMs, backoffMaxMs, backoffJitter);
+        if (!enabled) {
+            return;
+        }
+        workers = new ExecutorService[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            String name = "webhook-worker-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        running = true;
+        dispatcherThread = new Thread(this::runDispatcher, "webhook-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+        logger.info("Webhook inbox started (workers={}, maxInFlight={})", workerCount, maxInFlight);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeups.release();
+        if (dispatcherThread != null) {
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (workers != null) {
+            for (ExecutorService worker : workers) {
+                worker.shutdown();
+            }
+            for (ExecutorService worker : workers) {
+                worker.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stores a verified Stripe event. Returns false when the event id was already received.
+     */
+    public boolean record(Event event, String payload) {
+        LocalDateTime now = LocalDateTime.now();
+        int inserted = jdbcTemplate.update(INSERT_SQL,
+                event.getId(), event.getType(), extractPaymentIntentId(payload), payload,
+                Timestamp.valueOf(now), Timestamp.valueOf(now));
+        if (inserted > 0) {
+            wakeups.release();
+            return true;
+        }
+        logger.debug("Dropping duplicate webhook event {}", event.getId());
+        return false;
+    }
+
+    /**
+     * Queues a stored event to be applied again. Returns false when there is no such event; an event a worker
+     * is applying right now is refused, so it is never applied twice at once.
+     */
+    @Transactional
+    public boolean replay(String eventId) {
+        if (webhookEventRepository.requeue(eventId, LocalDateTime.now()) > 0) {
+            wakeups.release();
+            return true;
+        }
+        if (webhookEventRepository.existsByEventId(eventId)) {
+            throw new IllegalStateException("Webhook event " + eventId + " is being processed; replay it once it finishes");
+        }
+        return false;
+    }
+
+    @Transactional
+    public int replayDead() {
+        int requeued = webhookEventRepository.requeueDead(LocalDateTime.now());
+        if (requeued > 0) {
+            wakeups.release();
+        }
+        return requeued;
+    }
+
+    @Transactional(readOnly = true)
+    public WebhookBacklogDto getBacklog() {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (WebhookEventStatus status : WebhookEventStatus.values()) {
+            byStatus.put(status.name(), 0L);
+        }
+        for (Object[] row : webhookEventRepository.countByStatus()) {
+            byStatus.put(((WebhookEventStatus) row[0]).name(), (Long) row[1]);
+        }
+
+        LocalDateTime oldest = webhookEventRepository.findOldestUnprocessedReceivedAt();
+        return WebhookBacklogDto.builder()
+                .eventsByStatus(byStatus)
+                .backlogDepth(byStatus.get(WebhookEventStatus.PENDING.name()) + byStatus.get(WebhookEventStatus.PROCESSING.name()))
+                .oldestUnprocessedAgeSeconds(oldest != null ? Duration.between(oldest, LocalDateTime.now()).getSeconds() : 0L)
+                .inFlightOnThisNode(inFlight.get())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<WebhookEventDto> getEventsByStatus(WebhookEventStatus status, Pageable pageable) {
+        return webhookEventRepository.findByStatusOrderByIdDesc(status, pageable).map(this::convertToDto);
+    }
+
+    private void runDispatcher() {
+        while (running) {
+            try {
+                int capacity = maxInFlight - inFlight.get();
+                int claimed = capacity > 0 ? claimAndSubmit(capacity) : 0;
+                if (claimed == 0) {
+                    wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Webhook dispatcher iteration failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    int claimAndSubmit(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ClaimedEvent> events = jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new ClaimedEvent(
+                        rs.getLong("id"),
+                        rs.getString("event_id"),
+                        rs.getString("payment_intent_id"),
+                        rs.getString("payload"),
+                        rs.getInt("attempts")),
+                Timestamp.valueOf(now.plusSeconds(leaseSeconds)), Timestamp.valueOf(now), Timestamp.valueOf(now), limit);
+
+        for (ClaimedEvent event : events) {
+            inFlight.incrementAndGet();
+            workers[partition(event.paymentIntentId, event.eventId, workers.length)].execute(() -> process(event));
+        }
+        return events.size();
+    }
+
+    /**
+     * Worker for an event: all events of one payment intent go to the same single-thread worker, so a retry
+     * or a late claim can never overtake an earlier event of that intent on this node.
+     */
+    static int partition(String paymentIntentId, String eventId, int partitions) {
+        String key = paymentIntentId != null ? paymentIntentId : eventId;
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
+    private void process(ClaimedEvent event) {
+        try {
+            paymentService.processWebhookEvent(Event.GSON.fromJson(event.payload, Event.class));
+            jdbcTemplate.update(MARK_PROCESSED_SQL, Timestamp.valueOf(LocalDateTime.now()), event.id);
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (event.attempts >= maxAttempts) {
+                logger.error("Webhook event {} is dead after {} attempts: {}", event.eventId, event.attempts, error);
+                jdbcTemplate.update(MARK_FAILED_SQL, WebhookEventStatus.DEAD.name(),
+                        Timestamp.valueOf(LocalDateTime.now()), error, event.id);
+            } else {
+                logger.warn("Webhook event {} failed on attempt {}: {}", event.eventId, event.attempts, error);
+                jdbcTemplate.update(MARK_FAILED_SQL, WebhookEventStatus.PENDING.name(),
+                        Timestamp.valueOf(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff.delayMillis(event.attempts)))),
+                        error, event.id);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            // The next event for this intent (if any) is claimable now
+            wakeups.release();
+        }
+    }
+
+    String extractPaymentIntentId(String payload) {
+        try {
+            JsonNode object = objectMapper.readTree(payload).path("data").path("object");
+            if ("payment_intent".equals(object.path("object").asText())) {
+                return object.path("id").asText(null);
+            }
+            return object.path("payment_intent").asText(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private WebhookEventDto convertToDto(WebhookEvent event) {
+        return WebhookEventDto.builder()
+                .eventId(event.getEventId())
+                .eventType(event.getEventType())
+                .paymentIntentId(event.getPaymentIntentId())
+                .status(event.getStatus())
+                .attempts(event.getAttempts())
+                .lastError(event.getLastError())
+                .receivedAt(event.getReceivedAt())
+                .processedAt(event.getProcessedAt())
+                .build();
+    }
+
+    private static final class ClaimedEvent {
+        private final long id;
+        private final String eventId;
+        private final String paymentIntentId;
+        private final String payload;
+        private final int attempts;
+
+        private ClaimedEvent(long id, String eventId, String paymentIntentId, String payload, int attempts) {
+            this.id = id;
+            this.eventId = eventId;
+            this.paymentIntentId = paymentIntentId;
+            this.payload = payload;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+-- Moves write-heavy tables from IDENTITY columns to pooled-lo sequences (allocation size 50).
+-- Run once against an existing database before deploying the sequence-based entities.
+-- New databases get the sequences from Hibernate (ddl-auto=update) and do not need this script.
+
+CREATE SEQUENCE IF NOT EXISTS orders_seq INCREMENT BY 50;
+SELECT setval('orders_seq', COALESCE((SELECT MAX(id) FROM orders), 0) + 1, false);
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS order_items_seq INCREMENT BY 50;
+SELECT setval('order_items_seq', COALESCE((SELECT MAX(id) FROM order_items), 0) + 1, false);
+ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS cart_items_seq INCREMENT BY 50;
+SELECT setval('cart_items_seq', COALESCE((SELECT MAX(id) FROM cart_items), 0) + 1, false);
+ALTER TABLE cart_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS payment_audit_logs_seq INCREMENT BY 50;
+SELECT setval('payment_audit_logs_seq', COALESCE((SELECT MAX(id) FROM payment_audit_logs), 0) + 1, false);
+ALTER TABLE payment_audit_logs ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS wishlist_items_seq INCREMENT BY 50;
+SELECT setval('wishlist_items_seq', COALESCE((SELECT MAX(id) FROM wishlist_items), 0) + 1, false);
+ALTER TABLE wishlist_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS product_reviews_seq INCREMENT BY 50;
+SELECT setval('product_reviews_seq', COALESCE((SELECT MAX(id) FROM product_reviews), 0) + 1, false);
+ALTER TABLE product_reviews ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,114 @@
+package com.harsh.ecommerce.Security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRefreshTokenStoreTest {
+
+	private static final long NOW = 1_000_000L;
+	private static final long IDLE_TTL = 1_000L;
+	private static final long MAX_LIFETIME = 5_000L;
+
+	private InMemoryRefreshTokenStore store;
+
+	@BeforeEach
+	void setUp() {
+		store = new InMemoryRefreshTokenStore(4);
+		store.create(session("family-1", 1L, "hash-0"));
+	}
+
+	@Test
+	void rotatesTheCurrentToken() {
+		RefreshTokenStore.Rotation rotation = store.rotate("family-1", "hash-0", "hash-1", NOW + 500, IDLE_TTL);
+
+		assertEquals(RefreshTokenStore.Outcome.ROTATED, rotation.outcome());
+		assertEquals("hash-1", rotation.session().currentHash());
+		assertEquals(NOW + 500 + IDLE_TTL, rotation.session().expiresAtMillis());
+		assertEquals(RefreshTokenStore.Outcome.ROTATED,
+				store.rotate("family-1", "hash-1", "hash-2", NOW + 600, IDLE_TTL).outcome());
+	}
+
+	@Test
+	void slidingExpiryStopsAtTheAbsoluteLifetime() {
+		RefreshTokenStore.Rotation rotation = null;
+		long now = NOW + 900;
+		for (int i = 0; i < 5; i++, now += 900) {
+			rotation = store.rotate("family-1", "hash-" + i, "hash-" + (i + 1), now, IDLE_TTL);
+			assertEquals(RefreshTokenStore.Outcome.ROTATED, rotation.outcome());
+		}
+		assertEquals(NOW + MAX_LIFETIME, rotation.session().expiresAtMillis());
+	}
+
+	@Test
+	void replayingARotatedTokenRevokesTheFamily() {
+		store.rotate("family-1", "hash-0", "hash-1", NOW + 100, IDLE_TTL);
+
+		RefreshTokenStore.Rotation replay = store.rotate("family-1", "hash-0", "hash-x", NOW + 200, IDLE_TTL);
+
+		assertEquals(RefreshTokenStore.Outcome.REUSED, replay.outcome());
+		assertNull(replay.session());
+		// The legitimate holder's newer token dies with the family
+		assertEquals(RefreshTokenStore.Outcome.NOT_FOUND,
+				store.rotate("family-1", "hash-1", "hash-2", NOW + 300, IDLE_TTL).outcome());
+		assertEquals(0, store.size());
+	}
+
+	@Test
+	void unknownHashLeavesTheFamilyAlone() {
+		assertEquals(RefreshTokenStore.Outcome.NOT_FOUND,
+				store.rotate("family-1", "guessed", "hash-x", NOW + 100, IDLE_TTL).outcome());
+		assertEquals(RefreshTokenStore.Outcome.NOT_FOUND,
+				store.rotate("no-such-family", "hash-0", "hash-x", NOW + 100, IDLE_TTL).outcome());
+
+		assertEquals(RefreshTokenStore.Outcome.ROTATED,
+				store.rotate("family-1", "hash-0", "hash-1", NOW + 100, IDLE_TTL).outcome());
+	}
+
+	@Test
+	void expiredFamilyIsRefusedAndDropped() {
+		RefreshTokenStore.Rotation rotation = store.rotate("family-1", "hash-0", "hash-1", NOW + IDLE_TTL, IDLE_TTL);
+
+		assertEquals(RefreshTokenStore.Outcome.EXPIRED, rotation.outcome());
+		assertEquals(0, store.size());
+	}
+
+	@Test
+	void purgesExpiredFamilies() {
+		store.create(session("family-2", 2L, "hash-0"));
+		store.rotate("family-2", "hash-0", "hash-1", NOW + 900, IDLE_TTL);
+
+		assertEquals(1, store.purgeExpired(NOW + IDLE_TTL));
+		assertEquals(1, store.size());
+		assertEquals(0, store.revokeUser(1L));
+	}
+
+	@Test
+	void revokingAFamilyRequiresOneOfItsTokens() {
+		store.rotate("family-1", "hash-0", "hash-1", NOW + 100, IDLE_TTL);
+
+		assertFalse(store.revokeFamily("family-1", "guessed"));
+		assertEquals(1, store.size());
+		assertTrue(store.revokeFamily("family-1", "hash-0"));
+		assertEquals(0, store.size());
+	}
+
+	@Test
+	void revokesEveryFamilyOfAUser() {
+		store.create(session("family-2", 1L, "hash-0"));
+		store.create(session("family-3", 2L, "hash-0"));
+
+		assertEquals(2, store.revokeUser(1L));
+		assertEquals(1, store.size());
+		assertEquals(0, store.revokeUser(1L));
+	}
+
+	private static RefreshSession session(String familyId, Long userId, String hash) {
+		return new RefreshSession(familyId, userId, "user" + userId + "@example.com", "CUSTOMER", 0, hash,
+				NOW + IDLE_TTL, NOW + MAX_LIFETIME);
+	}
+}
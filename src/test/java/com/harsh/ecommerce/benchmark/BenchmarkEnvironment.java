@@ -0,0 +1,116 @@
+package com.harsh.ecommerce.benchmark;
+
+import com.harsh.ecommerce.EcommerceApiSpringbootApplication;
+import com.harsh.ecommerce.entity.Category;
+import com.harsh.ecommerce.entity.Product;
+import com.harsh.ecommerce.entity.Role;
+import com.harsh.ecommerce.entity.User;
+import com.harsh.ecommerce.repository.CategoryRepository;
+import com.harsh.ecommerce.repository.ProductRepository;
+import com.harsh.ecommerce.repository.UserRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A throwaway Postgres (Testcontainers, so Docker must be running) with the application booted against it,
+ * for benchmarks that need the real schema and transaction costs. Payments use the stub gateway; mail,
+ * Redis and the background jobs are switched off so they do not compete with the code being measured.
+ */
+public final class BenchmarkEnvironment implements AutoCloseable {
+
+	private static final String POSTGRES_IMAGE = "postgres:16-alpine";
+
+	private final PostgreSQLContainer<?> postgres;
+	private final ConfigurableApplicationContext context;
+
+	private BenchmarkEnvironment(PostgreSQLContainer<?> postgres, ConfigurableApplicationContext context) {
+		this.postgres = postgres;
+		this.context = context;
+	}
+
+	/**
+	 * @param overrides application properties for this run, applied over the benchmark defaults
+	 */
+	public static BenchmarkEnvironment start(Map<String, Object> overrides) {
+		PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(POSTGRES_IMAGE);
+		postgres.start();
+
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("spring.datasource.url", postgres.getJdbcUrl());
+		properties.put("spring.datasource.username", postgres.getUsername());
+		properties.put("spring.datasource.password", postgres.getPassword());
+		properties.put("spring.datasource.hikari.maximum-pool-size", 20);
+		properties.put("spring.jpa.hibernate.ddl-auto", "update");
+		properties.put("spring.jpa.show-sql", false);
+		properties.put("spring.jpa.properties.hibernate.jdbc.batch_size", 50);
+		properties.put("spring.jpa.properties.hibernate.order_inserts", true);
+		properties.put("spring.jpa.properties.hibernate.order_updates", true);
+		properties.put("logging.level.root", "WARN");
+		properties.put("logging.level.com.harsh.ecommerce", "WARN");
+
+		properties.put("app.jwt.secret", "benchmark-secret-benchmark-secret-benchmark-secret-0123456789");
+		properties.put("app.jwt.expiration", 3600000);
+		properties.put("stripe.secret.key", "sk_test_benchmark");
+		properties.put("stripe.publishable.key", "pk_test_benchmark");
+		properties.put("stripe.webhook.secret", "whsec_benchmark");
+		properties.put("cloudinary.cloud-name", "benchmark");
+		properties.put("cloudinary.api-key", "benchmark");
+		properties.put("cloudinary.api-secret", "benchmark");
+		properties.put("spring.mail.host", "localhost");
+		properties.put("spring.mail.port", 2525);
+		properties.put("spring.mail.username", "benchmark");
+		properties.put("spring.mail.password", "benchmark");
+
+		properties.put("app.orders.node-id", 1);
+		properties.put("app.payments.gateway", "stub");
+		properties.put("app.payments.audit.async", false);
+		properties.put("app.mail.dispatch.enabled", false);
+		properties.put("app.outbox.enabled", false);
+		properties.put("app.webhooks.inbox.enabled", false);
+		properties.put("app.payments.reconciliation.enabled", false);
+		properties.put("app.retries.enabled", false);
+		properties.put("app.analytics.rollup.enabled", false);
+		properties.put("app.ratelimit.enabled", false);
+		properties.putAll(overrides);
+
+		try {
+			ConfigurableApplicationContext context = new SpringApplicationBuilder(EcommerceApiSpringbootApplication.class)
+					.web(WebApplicationType.NONE)
+					.properties(properties)
+					.run();
+			return new BenchmarkEnvironment(postgres, context);
+		} catch (RuntimeException e) {
+			postgres.stop();
+			throw e;
+		}
+	}
+
+	public <T> T getBean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	public User createUser(String email) {
+		// The hash is never checked; benchmarks call services directly rather than logging in
+		return getBean(UserRepository.class).save(new User("Bench", "User", email, "{noop}unused", Role.USER));
+	}
+
+	public Product createProduct(String name, BigDecimal price, int stock) {
+		Category category = getBean(CategoryRepository.class).save(new Category(name + " category", null));
+		return getBean(ProductRepository.class).save(new Product(name, name, price, stock, category));
+	}
+
+	@Override
+	public void close() {
+		try {
+			context.close();
+		} finally {
+			postgres.stop();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.harsh.ecommerce.benchmark;
+
+import com.harsh.ecommerce.Security.JwtUtil;
+import com.harsh.ecommerce.Security.JwtVerifier;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of checking an access token:
+ * <ul>
+ *     <li>{@code coldParse}: a new key and parser for every token, as the filter used to do</li>
+ *     <li>{@code sharedParser}: {@link JwtVerifier} with its cache disabled, so only the parser is reused</li>
+ *     <li>{@code cachedVerify}: {@link JwtVerifier} answering a repeated token from its verified-token cache</li>
+ * </ul>
+ * Needs no database:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=JwtVerifierBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtVerifierBenchmark {
+
+	private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+	private String token;
+	private JwtVerifier sharedParser;
+	private JwtVerifier cachedVerifier;
+
+	@Setup(Level.Trial)
+	public void start() {
+		SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes());
+		token = Jwts.builder()
+				.setClaims(Map.of("userId", 42L, "role", "CUSTOMER", JwtUtil.VERSION_CLAIM, 0L))
+				.setSubject("bench@example.com")
+				.setIssuedAt(new Date())
+				.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+				.signWith(key, SignatureAlgorithm.HS256)
+				.compact();
+		sharedParser = verifier(0);
+		cachedVerifier = verifier(10000);
+	}
+
+	@Benchmark
+	public Claims coldParse() {
+		return Jwts.parserBuilder()
+				.setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+				.build()
+				.parseClaimsJws(token)
+				.getBody();
+	}
+
+	@Benchmark
+	public JwtVerifier.VerifiedToken sharedParser() {
+		return sharedParser.verify(token);
+	}
+
+	@Benchmark
+	public JwtVerifier.VerifiedToken cachedVerify() {
+		return cachedVerifier.verify(token);
+	}
+
+	private static JwtVerifier verifier(int cacheSize) {
+		JwtVerifier verifier = new JwtVerifier();
+		ReflectionTestUtils.setField(verifier, "jwtSecret", SECRET);
+		ReflectionTestUtils.setField(verifier, "cacheSize", cacheSize);
+		verifier.init();
+		return verifier;
+	}
+}
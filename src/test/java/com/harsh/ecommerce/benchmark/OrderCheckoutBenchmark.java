@@ -0,0 +1,103 @@
+package com.harsh.ecommerce.benchmark;
+
+import com.harsh.ecommerce.dto.AddToCartDto;
+import com.harsh.ecommerce.dto.CreateOrderDto;
+import com.harsh.ecommerce.dto.OrderDto;
+import com.harsh.ecommerce.entity.Product;
+import com.harsh.ecommerce.entity.User;
+import com.harsh.ecommerce.service.CartService;
+import com.harsh.ecommerce.service.OrderWritePipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checkout throughput with one transaction per order against the group-commit pipeline, under concurrent
+ * checkouts. Each operation puts two products in the thread's cart and checks out, so both variants pay
+ * the same cart cost and differ only in how the order is written.
+ * <p>
+ * Needs Docker for the Postgres container:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=OrderCheckoutBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(32)
+public class OrderCheckoutBenchmark {
+
+	private static final int PRODUCTS = 16;
+
+	@Param({"false", "true"})
+	public boolean groupCommit;
+
+	private BenchmarkEnvironment environment;
+	private CartService cartService;
+	private OrderWritePipeline pipeline;
+	private final List<Long> productIds = new ArrayList<>();
+	private final AtomicInteger users = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void start() {
+		environment = BenchmarkEnvironment.start(Map.of(
+				"app.orders.group-commit.enabled", groupCommit,
+				"app.orders.group-commit.window-ms", 2,
+				"app.orders.group-commit.max-batch", 64));
+		cartService = environment.getBean(CartService.class);
+		pipeline = environment.getBean(OrderWritePipeline.class);
+		for (int i = 0; i < PRODUCTS; i++) {
+			Product product = environment.createProduct("bench-product-" + i, new BigDecimal("19.99"), Integer.MAX_VALUE / 2);
+			productIds.add(product.getId());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		environment.close();
+	}
+
+	@State(Scope.Thread)
+	public static class Shopper {
+		User user;
+		Long firstProduct;
+		Long secondProduct;
+		CreateOrderDto checkout;
+
+		@Setup(Level.Trial)
+		public void register(OrderCheckoutBenchmark benchmark) {
+			int index = benchmark.users.getAndIncrement();
+			user = benchmark.environment.createUser("bench-" + index + "@example.com");
+			firstProduct = benchmark.productIds.get(index % PRODUCTS);
+			secondProduct = benchmark.productIds.get((index + 1) % PRODUCTS);
+			checkout = new CreateOrderDto("1 Bench Street", "Bench City", "BC", "00000", "US", "CARD", null);
+		}
+	}
+
+	@Benchmark
+	public OrderDto checkout(Shopper shopper) {
+		cartService.addToCart(shopper.user.getId(), new AddToCartDto(shopper.firstProduct, 1));
+		cartService.addToCart(shopper.user.getId(), new AddToCartDto(shopper.secondProduct, 2));
+		// With the pipeline disabled submit() writes the order inline, one transaction per checkout
+		return pipeline.submit(shopper.user.getEmail(), shopper.checkout).join();
+	}
+}
@@ -0,0 +1,154 @@
+package com.harsh.ecommerce.benchmark;
+
+import com.harsh.ecommerce.dto.AddToCartDto;
+import com.harsh.ecommerce.dto.CreateOrderDto;
+import com.harsh.ecommerce.dto.OrderDto;
+import com.harsh.ecommerce.entity.Order;
+import com.harsh.ecommerce.entity.Payment;
+import com.harsh.ecommerce.entity.PaymentAuditLog;
+import com.harsh.ecommerce.entity.PaymentMethodType;
+import com.harsh.ecommerce.entity.PaymentTransactionStatus;
+import com.harsh.ecommerce.entity.User;
+import com.harsh.ecommerce.repository.OrderRepository;
+import com.harsh.ecommerce.repository.PaymentAuditLogRepository;
+import com.harsh.ecommerce.repository.PaymentRepository;
+import com.harsh.ecommerce.service.CartService;
+import com.harsh.ecommerce.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Insert cost of the JPA write paths on pooled-lo sequence ids: creating a 20-item order through
+ * {@link OrderService#createOrderFromCart}, and persisting audit entries with {@code saveAll}.
+ * <p>
+ * {@code batchSize = 1} sends one statement per row, the round-trip count IDENTITY ids forced on us before;
+ * {@code 50} is the configured JDBC batch size. For a like-for-like IDENTITY baseline, run the same class
+ * against a checkout from before the sequence migration.
+ * <p>
+ * Needs Docker for the Postgres container:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PersistenceBatchingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class PersistenceBatchingBenchmark {
+
+	private static final int ITEMS_PER_ORDER = 20;
+	private static final int AUDIT_ENTRIES = 500;
+
+	@Param({"1", "50"})
+	public int batchSize;
+
+	private BenchmarkEnvironment environment;
+	private CartService cartService;
+	private OrderService orderService;
+	private PaymentAuditLogRepository auditLogRepository;
+	private TransactionTemplate transactionTemplate;
+	private Payment payment;
+	private final List<Long> productIds = new ArrayList<>();
+	private final AtomicInteger users = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void start() {
+		environment = BenchmarkEnvironment.start(Map.of("spring.jpa.properties.hibernate.jdbc.batch_size", batchSize));
+		cartService = environment.getBean(CartService.class);
+		orderService = environment.getBean(OrderService.class);
+		auditLogRepository = environment.getBean(PaymentAuditLogRepository.class);
+		transactionTemplate = new TransactionTemplate(environment.getBean(PlatformTransactionManager.class));
+		for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+			productIds.add(environment.createProduct("bench-product-" + i, new BigDecimal("9.99"), Integer.MAX_VALUE / 2).getId());
+		}
+		payment = createPayment();
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		environment.close();
+	}
+
+	@State(Scope.Thread)
+	public static class Shopper {
+		User user;
+		CreateOrderDto checkout;
+
+		@Setup(Level.Trial)
+		public void register(PersistenceBatchingBenchmark benchmark) {
+			user = benchmark.environment.createUser("bench-" + benchmark.users.getAndIncrement() + "@example.com");
+			checkout = new CreateOrderDto("1 Bench Street", "Bench City", "BC", "00000", "US", "CARD", null);
+		}
+
+		// Not timed: only the order write is measured
+		@Setup(Level.Invocation)
+		public void fillCart(PersistenceBatchingBenchmark benchmark) {
+			benchmark.fillCart(user);
+		}
+	}
+
+	@Benchmark
+	public OrderDto createOrder(Shopper shopper) {
+		return orderService.createOrderFromCart(shopper.user.getEmail(), shopper.checkout);
+	}
+
+	@Benchmark
+	public List<PaymentAuditLog> auditInserts() {
+		return transactionTemplate.execute(status -> {
+			List<PaymentAuditLog> entries = new ArrayList<>(AUDIT_ENTRIES);
+			for (int i = 0; i < AUDIT_ENTRIES; i++) {
+				entries.add(PaymentAuditLog.builder()
+						.payment(payment)
+						.action("BENCHMARK")
+						.oldValue("PENDING")
+						.newValue("SUCCEEDED")
+						.build());
+			}
+			return auditLogRepository.saveAll(entries);
+		});
+	}
+
+	private void fillCart(User user) {
+		for (Long productId : productIds) {
+			cartService.addToCart(user.getId(), new AddToCartDto(productId, 1));
+		}
+	}
+
+	private Payment createPayment() {
+		User user = environment.createUser("bench-payer@example.com");
+		fillCart(user);
+		OrderDto orderDto = orderService.createOrderFromCart(user.getEmail(),
+				new CreateOrderDto("1 Bench Street", "Bench City", "BC", "00000", "US", "CARD", null));
+		Order order = environment.getBean(OrderRepository.class).findById(orderDto.getId()).orElseThrow();
+
+		Payment newPayment = new Payment();
+		newPayment.setOrder(order);
+		newPayment.setAmount(order.getTotalAmount());
+		newPayment.setCurrency("usd");
+		newPayment.setPaymentMethod(PaymentMethodType.CARD);
+		newPayment.setStatus(PaymentTransactionStatus.SUCCEEDED);
+		return environment.getBean(PaymentRepository.class).save(newPayment);
+	}
+}
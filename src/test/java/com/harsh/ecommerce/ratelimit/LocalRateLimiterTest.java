@@ -0,0 +1,68 @@
+package com.harsh.ecommerce.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRateLimiterTest {
+
+	private static final RateLimitPolicy LOGIN =
+			new RateLimitPolicy("login", "/api/auth/login", Set.of("POST"), 2, 10, RateLimitKeyType.IP);
+
+	@Test
+	void deniesOnceTheBurstIsSpentAndSaysWhenToRetry() {
+		LocalRateLimiter limiter = new LocalRateLimiter(4, 100);
+
+		RateLimitDecision first = limiter.tryAcquire(LOGIN, "10.0.0.1");
+		assertTrue(first.allowed());
+		assertEquals(2, first.limit());
+		assertEquals(1, first.remaining());
+		assertEquals(0, first.retryAfterMillis());
+		assertTrue(limiter.tryAcquire(LOGIN, "10.0.0.1").allowed());
+
+		RateLimitDecision denied = limiter.tryAcquire(LOGIN, "10.0.0.1");
+
+		assertFalse(denied.allowed());
+		assertEquals(0, denied.remaining());
+		assertTrue(denied.retryAfterMillis() > 0 && denied.retryAfterMillis() <= 101, "retry after " + denied.retryAfterMillis());
+	}
+
+	@Test
+	void allowsAgainAfterRefill() throws InterruptedException {
+		LocalRateLimiter limiter = new LocalRateLimiter(4, 100);
+		limiter.tryAcquire(LOGIN, "10.0.0.1");
+		limiter.tryAcquire(LOGIN, "10.0.0.1");
+		RateLimitDecision denied = limiter.tryAcquire(LOGIN, "10.0.0.1");
+		assertFalse(denied.allowed());
+
+		Thread.sleep(denied.retryAfterMillis() + 20);
+
+		assertTrue(limiter.tryAcquire(LOGIN, "10.0.0.1").allowed());
+	}
+
+	@Test
+	void keysAndPoliciesHaveSeparateBuckets() {
+		LocalRateLimiter limiter = new LocalRateLimiter(4, 100);
+		RateLimitPolicy register = new RateLimitPolicy("register", "/api/auth/register", Set.of("POST"), 1, 1, RateLimitKeyType.IP);
+		limiter.tryAcquire(LOGIN, "10.0.0.1");
+		limiter.tryAcquire(LOGIN, "10.0.0.1");
+
+		assertTrue(limiter.tryAcquire(LOGIN, "10.0.0.2").allowed());
+		assertTrue(limiter.tryAcquire(register, "10.0.0.1").allowed());
+	}
+
+	@Test
+	void evictsTheLeastRecentlySeenKeysWhenFull() {
+		LocalRateLimiter limiter = new LocalRateLimiter(2, 10);
+
+		for (int i = 0; i < 1_000; i++) {
+			limiter.tryAcquire(LOGIN, "10.0." + (i / 256) + '.' + (i % 256));
+		}
+
+		assertTrue(limiter.size() <= 10, "size " + limiter.size());
+	}
+}
@@ -0,0 +1,55 @@
+package com.harsh.ecommerce.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+	@Test
+	void allowsABurstUpToCapacity() {
+		TokenBucket bucket = new TokenBucket(3, 1);
+
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+		assertEquals(0, bucket.getAvailableTokens());
+	}
+
+	@Test
+	void refillsOverTime() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(1, 20);
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+
+		Thread.sleep(80);
+
+		assertTrue(bucket.tryAcquire());
+	}
+
+	@Test
+	void neverRefillsPastCapacity() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(2, 1_000);
+
+		Thread.sleep(20);
+
+		assertEquals(2, bucket.getAvailableTokens());
+		assertFalse(bucket.tryAcquire(3));
+	}
+
+	@Test
+	void reportsTheWaitForTheNextToken() {
+		TokenBucket bucket = new TokenBucket(1, 10);
+		assertEquals(0, bucket.nanosUntilAvailable(1));
+		assertTrue(bucket.tryAcquire());
+
+		long waitMillis = TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilAvailable(1));
+
+		assertTrue(waitMillis > 0 && waitMillis <= 100, "wait " + waitMillis);
+	}
+}
@@ -0,0 +1,97 @@
+package com.harsh.ecommerce.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+	private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+	private final CircuitBreaker breaker = new CircuitBreaker(4, 4, 50f, 100f, OPEN_DURATION, 2);
+
+	@Test
+	void staysClosedUntilTheMinimumNumberOfCalls() {
+		breaker.onResult(true, false);
+		breaker.onResult(true, false);
+		breaker.onResult(true, false);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquirePermission());
+	}
+
+	@Test
+	void opensWhenTheFailureRateReachesTheThreshold() {
+		recordFailures(2, 2);
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquirePermission());
+		assertTrue(breaker.getRemainingOpenDuration().compareTo(Duration.ZERO) > 0);
+	}
+
+	@Test
+	void opensOnSlowCalls() {
+		CircuitBreaker slowBreaker = new CircuitBreaker(4, 4, 100f, 50f, OPEN_DURATION, 2);
+		slowBreaker.onResult(false, true);
+		slowBreaker.onResult(false, true);
+		slowBreaker.onResult(false, false);
+		slowBreaker.onResult(false, false);
+
+		assertEquals(CircuitBreaker.State.OPEN, slowBreaker.getState());
+	}
+
+	@Test
+	void closesAfterHealthyTrialCalls() throws InterruptedException {
+		recordFailures(2, 2);
+		Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquirePermission());
+		assertTrue(breaker.tryAcquirePermission());
+		assertFalse(breaker.tryAcquirePermission());
+
+		breaker.onResult(false, false);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		breaker.onResult(false, false);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertEquals(0, breaker.getBufferedCalls());
+	}
+
+	@Test
+	void reopensWhenATrialCallFails() throws InterruptedException {
+		recordFailures(2, 2);
+		Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.onResult(true, false);
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquirePermission());
+	}
+
+	@Test
+	void releasedTrialPermitCanBeReused() throws InterruptedException {
+		recordFailures(2, 2);
+		Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+		assertTrue(breaker.tryAcquirePermission());
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.releasePermission();
+
+		assertTrue(breaker.tryAcquirePermission());
+	}
+
+	private void recordFailures(int failures, int successes) {
+		for (int i = 0; i < failures; i++) {
+			breaker.onResult(true, false);
+		}
+		for (int i = 0; i < successes; i++) {
+			breaker.onResult(false, false);
+		}
+	}
+}
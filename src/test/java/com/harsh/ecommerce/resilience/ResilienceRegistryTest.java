@@ -0,0 +1,42 @@
+package com.harsh.ecommerce.resilience;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResilienceRegistryTest {
+
+	private static final Predicate<Throwable> RUNTIME_ONLY = e -> e instanceof RuntimeException;
+
+	private final ResilienceRegistry registry = new ResilienceRegistry(new MockEnvironment());
+
+	@Test
+	void sharesOneGuardPerName() {
+		ResilienceGuard guard = registry.guard(ResilienceRegistry.SMTP);
+
+		assertSame(guard, registry.guard(ResilienceRegistry.SMTP));
+		assertSame(guard, registry.guard(ResilienceRegistry.SMTP));
+		assertEquals(1, registry.getStatus().size());
+	}
+
+	@Test
+	void sharesAGuardRegisteredWithTheSamePredicate() {
+		ResilienceGuard guard = registry.guard(ResilienceRegistry.STRIPE, RUNTIME_ONLY);
+
+		assertSame(guard, registry.guard(ResilienceRegistry.STRIPE, RUNTIME_ONLY));
+	}
+
+	@Test
+	void rejectsASecondRegistrationWithADifferentPredicate() {
+		registry.guard(ResilienceRegistry.STRIPE, RUNTIME_ONLY);
+
+		assertThrows(IllegalStateException.class, () -> registry.guard(ResilienceRegistry.STRIPE));
+		assertThrows(IllegalStateException.class,
+				() -> registry.guard(ResilienceRegistry.STRIPE, e -> e instanceof IllegalStateException));
+	}
+}
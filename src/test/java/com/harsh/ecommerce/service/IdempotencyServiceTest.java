@@ -0,0 +1,204 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.entity.IdempotencyRecord;
+import com.harsh.ecommerce.entity.IdempotencyStatus;
+import com.harsh.ecommerce.exception.IdempotencyConflictException;
+import com.harsh.ecommerce.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+	private static final String SCOPE = "orders:create:user@example.com";
+	private static final String KEY = "key-1";
+	private static final Map<String, String> REQUEST = Map.of("shippingCity", "Pune");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final AtomicInteger runs = new AtomicInteger();
+
+	private IdempotencyRecordRepository repository;
+	private IdempotencyService service;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(IdempotencyRecordRepository.class);
+		service = new IdempotencyService(repository, objectMapper, mock(PlatformTransactionManager.class));
+		ReflectionTestUtils.setField(service, "ttlHours", 24L);
+		ReflectionTestUtils.setField(service, "cacheTtlSeconds", 600L);
+		ReflectionTestUtils.setField(service, "waitTimeoutMs", 300L);
+		ReflectionTestUtils.setField(service, "inProgressLeaseSeconds", 120L);
+	}
+
+	@Test
+	void runsTheActionOnceAndReplaysFromMemory() {
+		assertEquals("created", execute(REQUEST));
+		assertEquals("created", execute(REQUEST));
+
+		assertEquals(1, runs.get());
+		verify(repository).complete(eq(SCOPE), eq(KEY), eq(IdempotencyStatus.COMPLETED), eq("\"created\""), any());
+	}
+
+	@Test
+	void rejectsAKeyReusedWithADifferentRequest() {
+		execute(REQUEST);
+
+		assertThrows(IdempotencyConflictException.class, () -> execute(Map.of("shippingCity", "Delhi")));
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void rejectsKeysLongerThanTheColumn() {
+		String key = "k".repeat(256);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> service.execute(SCOPE, key, REQUEST, String.class, this::createOrder));
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	void servesTheResponseCompletedOnAnotherNode() {
+		claimedElsewhere();
+		when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY))
+				.thenReturn(Optional.of(record(IdempotencyStatus.COMPLETED, LocalDateTime.now().plusHours(1), "\"remote\"")));
+
+		assertEquals("remote", execute(REQUEST));
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	void takesOverAClaimWhoseLeaseExpired() {
+		claimedElsewhere();
+		when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY))
+				.thenReturn(Optional.of(record(IdempotencyStatus.IN_PROGRESS, LocalDateTime.now().minusSeconds(1), null)));
+		when(repository.takeOverExpired(eq(SCOPE), eq(KEY), anyString(), any(), any())).thenReturn(1);
+
+		assertEquals("created", execute(REQUEST));
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void waitsOutALiveClaimThenGivesUp() {
+		claimedElsewhere();
+		when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY))
+				.thenReturn(Optional.of(record(IdempotencyStatus.IN_PROGRESS, LocalDateTime.now().plusSeconds(60), null)));
+
+		assertThrows(IdempotencyConflictException.class, () -> execute(REQUEST));
+		assertEquals(0, runs.get());
+		verify(repository, never()).takeOverExpired(any(), any(), any(), any(), any());
+	}
+
+	@Test
+	void losingTheTakeOverRaceKeepsWaiting() {
+		claimedElsewhere();
+		when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY))
+				.thenReturn(Optional.of(record(IdempotencyStatus.IN_PROGRESS, LocalDateTime.now().minusSeconds(1), null)))
+				.thenReturn(Optional.of(record(IdempotencyStatus.COMPLETED, LocalDateTime.now().plusHours(1), "\"winner\"")));
+		when(repository.takeOverExpired(eq(SCOPE), eq(KEY), anyString(), any(), any())).thenReturn(0);
+
+		assertEquals("winner", execute(REQUEST));
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	void givesUpWhenTheKeyKeepsBeingReleased() {
+		claimedElsewhere();
+		when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY)).thenReturn(Optional.empty());
+
+		assertThrows(IdempotencyConflictException.class, () -> execute(REQUEST));
+		verify(repository, times(3)).saveAndFlush(any());
+	}
+
+	@Test
+	void otherConstraintViolationsPropagate() {
+		when(repository.saveAndFlush(any())).thenThrow(violation("23502"));
+
+		assertThrows(DataIntegrityViolationException.class, () -> execute(REQUEST));
+		verify(repository, never()).findByScopeAndIdempotencyKey(any(), any());
+	}
+
+	@Test
+	void failedActionReleasesTheKey() {
+		assertThrows(IllegalStateException.class, () -> service.execute(SCOPE, KEY, REQUEST, String.class, () -> {
+			throw new IllegalStateException("payment declined");
+		}));
+		verify(repository).deleteByScopeAndKey(SCOPE, KEY);
+
+		assertEquals("created", execute(REQUEST));
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void longScopesAreHashedToFitTheColumn() {
+		String scope = "orders:create:" + "a".repeat(200) + "@example.com";
+		service.execute(scope, KEY, REQUEST, String.class, this::createOrder);
+
+		ArgumentCaptor<IdempotencyRecord> claimed = ArgumentCaptor.forClass(IdempotencyRecord.class);
+		verify(repository).saveAndFlush(claimed.capture());
+		String stored = claimed.getValue().getScope();
+		assertEquals(150, stored.length());
+		assertTrue(stored.startsWith("orders:create:aaa"));
+		assertTrue(stored.contains("#"));
+	}
+
+	private String execute(Object request) {
+		return service.execute(SCOPE, KEY, request, String.class, this::createOrder);
+	}
+
+	private String createOrder() {
+		runs.incrementAndGet();
+		return "created";
+	}
+
+	private void claimedElsewhere() {
+		when(repository.saveAndFlush(any())).thenThrow(violation("23505"));
+	}
+
+	private IdempotencyRecord record(IdempotencyStatus status, LocalDateTime expiresAt, String responseBody) {
+		return IdempotencyRecord.builder()
+				.scope(SCOPE)
+				.idempotencyKey(KEY)
+				.fingerprint(fingerprint(REQUEST))
+				.status(status)
+				.responseBody(responseBody)
+				.createdAt(LocalDateTime.now())
+				.expiresAt(expiresAt)
+				.build();
+	}
+
+	private String fingerprint(Object request) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static DataIntegrityViolationException violation(String sqlState) {
+		return new DataIntegrityViolationException("constraint", new SQLException("constraint", sqlState));
+	}
+}
@@ -0,0 +1,147 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.dto.MailDispatchStatusDto;
+import com.harsh.ecommerce.resilience.ResilienceRegistry;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailDispatcherTest {
+
+	private GreenMail smtp;
+	private MailDispatcher dispatcher;
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		if (dispatcher != null) {
+			dispatcher.stop();
+		}
+		if (smtp != null) {
+			smtp.stop();
+		}
+	}
+
+	@Test
+	void sendsABatchOverOneConnection() throws Exception {
+		int port = startSmtp(freePort());
+		dispatcher = dispatcher(port, 1000, 1000);
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			futures.add(dispatcher.submit(message("customer" + i + "@example.com")));
+		}
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+		MailDispatchStatusDto status = dispatcher.getStatus();
+		assertEquals(20, status.getSent());
+		assertEquals(1, status.getConnectionsOpened());
+		assertEquals(20, smtp.getReceivedMessages().length);
+	}
+
+	@Test
+	void retriesAfterATransientFailure() throws Exception {
+		// Nothing listens on the port yet, so the first attempt cannot connect
+		int port = freePort();
+		dispatcher = dispatcher(port, 1000, 1000);
+
+		CompletableFuture<Void> future = dispatcher.submit(message("customer@example.com"));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (dispatcher.getStatus().getRetried() == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		startSmtp(port);
+		future.get(10, TimeUnit.SECONDS);
+
+		MailDispatchStatusDto status = dispatcher.getStatus();
+		assertTrue(status.getRetried() >= 1);
+		assertEquals(1, status.getSent());
+		assertEquals(0, status.getFailed());
+		assertEquals(1, smtp.getReceivedMessages().length);
+	}
+
+	@Test
+	void throttlesABusyDomainWithoutHoldingUpOthers() throws Exception {
+		int port = startSmtp(freePort());
+		// Two messages at once, then one every 200 ms
+		dispatcher = dispatcher(port, 5, 2);
+
+		long started = System.nanoTime();
+		List<CompletableFuture<Long>> slow = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			slow.add(dispatcher.submit(message("customer" + i + "@slow.example")).thenApply(done -> System.nanoTime()));
+		}
+		CompletableFuture<Long> fast = dispatcher.submit(message("customer@fast.example")).thenApply(done -> System.nanoTime());
+
+		long fastDone = fast.get(10, TimeUnit.SECONDS);
+		long lastSlowDone = 0;
+		for (CompletableFuture<Long> future : slow) {
+			lastSlowDone = Math.max(lastSlowDone, future.get(10, TimeUnit.SECONDS));
+		}
+
+		assertTrue(dispatcher.getStatus().getThrottled() > 0);
+		assertTrue(fastDone < lastSlowDone, "fast.example waited behind slow.example");
+		// Three messages over the burst at 5/s take at least 600 ms; allow for timer slack
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(lastSlowDone - started) >= 400);
+		assertEquals(6, smtp.getReceivedMessages().length);
+	}
+
+	private MailDispatcher dispatcher(int port, double perDomainRate, int perDomainBurst) {
+		JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+		mailSender.setHost("localhost");
+		mailSender.setPort(port);
+		mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+		mailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+
+		MailDispatcher mailDispatcher = new MailDispatcher(mailSender, new ResilienceRegistry(new MockEnvironment()));
+		ReflectionTestUtils.setField(mailDispatcher, "enabled", true);
+		ReflectionTestUtils.setField(mailDispatcher, "workerCount", 1);
+		ReflectionTestUtils.setField(mailDispatcher, "queueCapacity", 100);
+		ReflectionTestUtils.setField(mailDispatcher, "batchSize", 50);
+		ReflectionTestUtils.setField(mailDispatcher, "messagesPerConnection", 100);
+		ReflectionTestUtils.setField(mailDispatcher, "idleTimeoutMs", 30000L);
+		ReflectionTestUtils.setField(mailDispatcher, "sendTimeoutMs", 10000L);
+		ReflectionTestUtils.setField(mailDispatcher, "maxAttempts", 20);
+		ReflectionTestUtils.setField(mailDispatcher, "backoffInitialMs", 200L);
+		ReflectionTestUtils.setField(mailDispatcher, "backoffMaxMs", 500L);
+		ReflectionTestUtils.setField(mailDispatcher, "perDomainRatePerSecond", perDomainRate);
+		ReflectionTestUtils.setField(mailDispatcher, "perDomainBurst", perDomainBurst);
+		mailDispatcher.start();
+		return mailDispatcher;
+	}
+
+	private int startSmtp(int port) {
+		smtp = new GreenMail(new ServerSetup(port, "localhost", ServerSetup.PROTOCOL_SMTP));
+		smtp.start();
+		return port;
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	private static SimpleMailMessage message(String to) {
+		SimpleMailMessage message = new SimpleMailMessage();
+		message.setFrom("shop@example.com");
+		message.setTo(to);
+		message.setSubject("Your order");
+		message.setText("Thanks for your order.");
+		return message;
+	}
+}
@@ -0,0 +1,68 @@
+package com.harsh.ecommerce.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+	private static final long NODE_ID = 7;
+
+	private OrderNumberGenerator generator;
+
+	@BeforeEach
+	void setUp() {
+		generator = new OrderNumberGenerator();
+		ReflectionTestUtils.setField(generator, "configuredNodeId", NODE_ID);
+		generator.init();
+	}
+
+	@Test
+	void numbersAreUniqueAndIncreasingWithinAMillisecond() {
+		// Far more than one millisecond's worth of the 12-bit sequence, so several must share a millisecond
+		int count = 20_000;
+		Set<String> seen = new HashSet<>();
+		String previous = null;
+		for (int i = 0; i < count; i++) {
+			String orderNumber = generator.nextOrderNumber();
+			assertTrue(seen.add(orderNumber), "duplicate " + orderNumber);
+			if (previous != null) {
+				assertTrue(orderNumber.compareTo(previous) > 0, orderNumber + " does not sort after " + previous);
+			}
+			previous = orderNumber;
+		}
+	}
+
+	@Test
+	void sequenceOverflowBorrowsTheNextMillisecond() {
+		long futureMillis = System.currentTimeMillis() - OrderNumberGenerator.EPOCH_MILLIS + 60_000;
+		AtomicLong lastState = (AtomicLong) ReflectionTestUtils.getField(generator, "lastState");
+		lastState.set((futureMillis << 12) | 4095);
+
+		long id = generator.nextId();
+
+		assertEquals(futureMillis + 1, id >>> 22);
+		assertEquals(NODE_ID, (id >>> 12) & 1023);
+		assertEquals(0, id & 4095);
+	}
+
+	@Test
+	void decodesTheCreationTime() {
+		long before = System.currentTimeMillis();
+		String orderNumber = generator.nextOrderNumber();
+		long after = System.currentTimeMillis();
+
+		Instant created = generator.decodeTimestamp(orderNumber).orElseThrow();
+
+		assertTrue(created.toEpochMilli() >= before && created.toEpochMilli() <= after + 1);
+		assertTrue(generator.decodeTimestamp("ORD-1700000000000-ABCDEF").isEmpty());
+	}
+}
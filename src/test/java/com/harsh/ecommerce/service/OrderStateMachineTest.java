@@ -0,0 +1,190 @@
+package com.harsh.ecommerce.service;
+
+import com.harsh.ecommerce.entity.OrderStatus;
+import com.harsh.ecommerce.entity.OutboxEventType;
+import com.harsh.ecommerce.entity.PaymentStatus;
+import com.harsh.ecommerce.entity.PaymentTransactionStatus;
+import com.harsh.ecommerce.repository.OrderRepository;
+import com.harsh.ecommerce.repository.OrderRepository.OrderStatusSnapshot;
+import com.harsh.ecommerce.repository.PaymentRepository;
+import com.harsh.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderStateMachineTest {
+
+	private static final Long ORDER_ID = 42L;
+
+	private final OrderRepository orderRepository = mock(OrderRepository.class);
+	private final ProductRepository productRepository = mock(ProductRepository.class);
+	private final OutboxService outboxService = mock(OutboxService.class);
+	private final OrderStateMachine stateMachine = new OrderStateMachine(orderRepository, mock(PaymentRepository.class),
+			productRepository, outboxService, mock(OrderAnalyticsCounters.class));
+
+	@Test
+	void succeededPaymentCannotBeFailedByALateWebhook() {
+		assertFalse(OrderStateMachine.canTransition(PaymentTransactionStatus.SUCCEEDED, PaymentTransactionStatus.FAILED));
+		assertFalse(OrderStateMachine.canTransition(PaymentTransactionStatus.SUCCEEDED, PaymentTransactionStatus.PENDING));
+		assertTrue(OrderStateMachine.canTransition(PaymentTransactionStatus.SUCCEEDED, PaymentTransactionStatus.REFUNDED));
+		assertTrue(OrderStateMachine.canTransition(PaymentTransactionStatus.SUCCEEDED, PaymentTransactionStatus.PARTIALLY_REFUNDED));
+	}
+
+	@Test
+	void failedPaymentCanBeRetried() {
+		assertTrue(OrderStateMachine.canTransition(PaymentTransactionStatus.FAILED, PaymentTransactionStatus.SUCCEEDED));
+		assertTrue(OrderStateMachine.canTransition(PaymentStatus.FAILED, PaymentStatus.COMPLETED));
+		assertFalse(OrderStateMachine.canTransition(PaymentStatus.COMPLETED, PaymentStatus.FAILED));
+	}
+
+	@Test
+	void orderMovesForwardOnly() {
+		assertTrue(OrderStateMachine.canTransition(OrderStatus.PENDING, OrderStatus.CONFIRMED));
+		assertTrue(OrderStateMachine.canTransition(OrderStatus.SHIPPED, OrderStatus.DELIVERED));
+		assertFalse(OrderStateMachine.canTransition(OrderStatus.SHIPPED, OrderStatus.CANCELLED));
+		assertFalse(OrderStateMachine.canTransition(OrderStatus.DELIVERED, OrderStatus.PENDING));
+		assertFalse(OrderStateMachine.canTransition(OrderStatus.CONFIRMED, OrderStatus.PENDING));
+	}
+
+	@Test
+	void terminalStatesHaveNoExits() {
+		for (OrderStatus to : OrderStatus.values()) {
+			assertFalse(OrderStateMachine.canTransition(OrderStatus.CANCELLED, to));
+			assertFalse(OrderStateMachine.canTransition(OrderStatus.REFUNDED, to));
+		}
+		for (PaymentStatus to : PaymentStatus.values()) {
+			assertFalse(OrderStateMachine.canTransition(PaymentStatus.CANCELLED, to));
+			assertFalse(OrderStateMachine.canTransition(PaymentStatus.REFUNDED, to));
+		}
+		for (PaymentTransactionStatus to : PaymentTransactionStatus.values()) {
+			assertFalse(OrderStateMachine.canTransition(PaymentTransactionStatus.CANCELED, to));
+			assertFalse(OrderStateMachine.canTransition(PaymentTransactionStatus.REFUNDED, to));
+		}
+	}
+
+	@Test
+	void everyStatusHasATransitionTableEntry() {
+		// A missing entry would surface as a NullPointerException on the first transition out of that status
+		for (OrderStatus from : OrderStatus.values()) {
+			for (OrderStatus to : OrderStatus.values()) {
+				OrderStateMachine.canTransition(from, to);
+			}
+		}
+		for (PaymentStatus from : PaymentStatus.values()) {
+			for (PaymentStatus to : PaymentStatus.values()) {
+				OrderStateMachine.canTransition(from, to);
+			}
+		}
+		for (PaymentTransactionStatus from : PaymentTransactionStatus.values()) {
+			for (PaymentTransactionStatus to : PaymentTransactionStatus.values()) {
+				OrderStateMachine.canTransition(from, to);
+			}
+		}
+	}
+
+	@Test
+	void failedPaymentCancelsAndRestocksTheOrder() {
+		when(orderRepository.findStatusSnapshot(ORDER_ID))
+				.thenReturn(Optional.of(order(OrderStatus.PENDING, PaymentStatus.PENDING)));
+		when(orderRepository.compareAndSetPaymentStatus(eq(ORDER_ID), any(), any(), any(), any())).thenReturn(1);
+		when(orderRepository.compareAndSetStatus(eq(ORDER_ID), any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+		assertTrue(stateMachine.applyPaymentOutcome(ORDER_ID, PaymentTransactionStatus.FAILED));
+
+		verify(orderRepository).compareAndSetPaymentStatus(eq(ORDER_ID), eq(PaymentStatus.PENDING), eq(PaymentStatus.FAILED), any(), any());
+		verify(orderRepository).compareAndSetStatus(eq(ORDER_ID), eq(OrderStatus.PENDING), eq(OrderStatus.CANCELLED), any(), any(), any(), any());
+		verify(productRepository).restockOrderItems(eq(ORDER_ID), any());
+		verify(outboxService).publish(eq("ORDER"), eq(ORDER_ID), eq(OutboxEventType.ORDER_CANCELLED), anyMap());
+	}
+
+	@Test
+	void concurrentlyMovedOrderIsRecheckedBeforeCancelling() {
+		// A confirmation lands between the read and the compare-and-set
+		when(orderRepository.findStatusSnapshot(ORDER_ID))
+				.thenReturn(Optional.of(order(OrderStatus.PENDING, PaymentStatus.FAILED)))
+				.thenReturn(Optional.of(order(OrderStatus.PENDING, PaymentStatus.FAILED)))
+				.thenReturn(Optional.of(order(OrderStatus.PROCESSING, PaymentStatus.FAILED)));
+		when(orderRepository.compareAndSetStatus(eq(ORDER_ID), eq(OrderStatus.PENDING), any(), any(), any(), any(), any())).thenReturn(0);
+		when(orderRepository.compareAndSetStatus(eq(ORDER_ID), eq(OrderStatus.PROCESSING), any(), any(), any(), any(), any())).thenReturn(1);
+
+		stateMachine.applyPaymentOutcome(ORDER_ID, PaymentTransactionStatus.FAILED);
+
+		verify(orderRepository, times(2)).compareAndSetStatus(eq(ORDER_ID), any(), eq(OrderStatus.CANCELLED), any(), any(), any(), any());
+		verify(productRepository, times(1)).restockOrderItems(eq(ORDER_ID), any());
+	}
+
+	@Test
+	void successOnACancelledOrderIsNotApplied() {
+		when(orderRepository.findStatusSnapshot(ORDER_ID))
+				.thenReturn(Optional.of(order(OrderStatus.CANCELLED, PaymentStatus.FAILED)));
+
+		assertFalse(stateMachine.applyPaymentOutcome(ORDER_ID, PaymentTransactionStatus.SUCCEEDED));
+
+		verify(orderRepository, never()).compareAndSetPaymentStatus(anyLong(), any(), any(), any(), any());
+		verify(orderRepository, never()).compareAndSetStatus(anyLong(), any(), any(), any(), any(), any(), any());
+		verify(outboxService, never()).publish(any(), any(), any(), anyMap());
+	}
+
+	@Test
+	void successConfirmsAPendingOrder() {
+		when(orderRepository.findStatusSnapshot(ORDER_ID))
+				.thenReturn(Optional.of(order(OrderStatus.PENDING, PaymentStatus.PENDING)));
+		when(orderRepository.compareAndSetPaymentStatus(eq(ORDER_ID), any(), any(), any(), any())).thenReturn(1);
+		when(orderRepository.compareAndSetStatus(eq(ORDER_ID), any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+		assertTrue(stateMachine.applyPaymentOutcome(ORDER_ID, PaymentTransactionStatus.SUCCEEDED));
+
+		verify(orderRepository).compareAndSetPaymentStatus(eq(ORDER_ID), eq(PaymentStatus.PENDING), eq(PaymentStatus.COMPLETED), any(), any());
+		verify(orderRepository).compareAndSetStatus(eq(ORDER_ID), eq(OrderStatus.PENDING), eq(OrderStatus.CONFIRMED), any(), any(), any(), any());
+		verify(productRepository, never()).restockOrderItems(anyLong(), any());
+	}
+
+	private static OrderStatusSnapshot order(OrderStatus status, PaymentStatus paymentStatus) {
+		return new Snapshot(status, paymentStatus);
+	}
+
+	private record Snapshot(OrderStatus status, PaymentStatus paymentStatus) implements OrderStatusSnapshot {
+		@Override
+		public Long getId() {
+			return ORDER_ID;
+		}
+
+		@Override
+		public OrderStatus getStatus() {
+			return status;
+		}
+
+		@Override
+		public PaymentStatus getPaymentStatus() {
+			return paymentStatus;
+		}
+
+		@Override
+		public String getOrderNumber() {
+			return "ORD-42";
+		}
+
+		@Override
+		public BigDecimal getTotalAmount() {
+			return new BigDecimal("19.99");
+		}
+
+		@Override
+		public String getEmail() {
+			return "user@example.com";
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.entity.OutboxEventType;
+import com.harsh.ecommerce.entity.OutboxStatus;
+import com.harsh.ecommerce.repository.OutboxEventRepository;
+import com.harsh.ecommerce.resilience.CallNotPermittedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+	private static final int MAX_ATTEMPTS = 3;
+	private static final long LEASE_SECONDS = 300;
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final List<Object[]> claimedRows = new ArrayList<>();
+	private final RecordingHandler handler = new RecordingHandler();
+
+	@BeforeEach
+	void setUp() {
+		when(jdbcTemplate.query(eq(OutboxRelay.CLAIM_SQL), any(RowMapper.class), any(), any(), any(), any()))
+				.thenAnswer(invocation -> {
+					RowMapper<?> mapper = invocation.getArgument(1);
+					List<Object> events = new ArrayList<>();
+					for (Object[] row : claimedRows) {
+						ResultSet rs = mock(ResultSet.class);
+						when(rs.getLong("id")).thenReturn((Long) row[0]);
+						when(rs.getString("event_type")).thenReturn(((OutboxEventType) row[1]).name());
+						when(rs.getString("payload")).thenReturn("{\"email\":\"user@example.com\"}");
+						when(rs.getInt("attempts")).thenReturn((Integer) row[2]);
+						events.add(mapper.mapRow(rs, events.size()));
+					}
+					return events;
+				});
+	}
+
+	@Test
+	void claimsABatchUnderALease() throws InterruptedException {
+		LocalDateTime before = LocalDateTime.now();
+		relay(new ConcurrentTaskExecutor(Runnable::run)).relayBatch();
+
+		ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+		verify(jdbcTemplate).query(eq(OutboxRelay.CLAIM_SQL), any(RowMapper.class), args.capture(), args.capture(),
+				args.capture(), args.capture());
+		LocalDateTime lockedUntil = ((Timestamp) args.getAllValues().get(0)).toLocalDateTime();
+		assertFalse(lockedUntil.isBefore(before.plusSeconds(LEASE_SECONDS)));
+		assertEquals(100, args.getAllValues().get(3));
+		// Other nodes skip rows this one has locked instead of waiting on them
+		assertTrue(OutboxRelay.CLAIM_SQL.contains("FOR UPDATE SKIP LOCKED"));
+		assertTrue(OutboxRelay.CLAIM_SQL.contains("status = 'PROCESSING' AND locked_until < ?"));
+	}
+
+	@Test
+	void marksDeliveredEventsPublished() throws InterruptedException {
+		claimedRows.add(new Object[]{1L, OutboxEventType.ORDER_CONFIRMED, 1});
+
+		assertEquals(1, relay(new ConcurrentTaskExecutor(Runnable::run)).relayBatch());
+
+		assertEquals(List.of(OutboxEventType.ORDER_CONFIRMED), handler.handled);
+		assertEquals(List.of(1L), ids(OutboxRelay.MARK_PUBLISHED_SQL, 1));
+	}
+
+	@Test
+	void failedEventIsRescheduledWithBackoff() throws InterruptedException {
+		handler.failure = new IllegalStateException("smtp down");
+		claimedRows.add(new Object[]{1L, OutboxEventType.ORDER_CONFIRMED, 1});
+		LocalDateTime before = LocalDateTime.now();
+
+		relay(new ConcurrentTaskExecutor(Runnable::run)).relayBatch();
+
+		Object[] row = rows(OutboxRelay.MARK_FAILED_SQL).get(0);
+		assertEquals(OutboxStatus.PENDING.name(), row[0]);
+		assertFalse(((Timestamp) row[1]).toLocalDateTime().isBefore(before.plusSeconds(1)));
+		assertEquals("IllegalStateException: smtp down", row[2]);
+		assertEquals(1L, row[3]);
+	}
+
+	@Test
+	void eventIsDeadAfterMaxAttempts() throws InterruptedException {
+		handler.failure = new IllegalStateException("smtp down");
+		claimedRows.add(new Object[]{1L, OutboxEventType.ORDER_CONFIRMED, MAX_ATTEMPTS - 1});
+		claimedRows.add(new Object[]{2L, OutboxEventType.ORDER_CONFIRMED, MAX_ATTEMPTS});
+
+		relay(new ConcurrentTaskExecutor(Runnable::run)).relayBatch();
+
+		List<Object[]> failed = rows(OutboxRelay.MARK_FAILED_SQL);
+		assertEquals(OutboxStatus.PENDING.name(), failed.get(0)[0]);
+		assertEquals(OutboxStatus.DEAD.name(), failed.get(1)[0]);
+		assertEquals(2L, failed.get(1)[3]);
+	}
+
+	@Test
+	void eventWithoutAHandlerFails() throws InterruptedException {
+		claimedRows.add(new Object[]{1L, OutboxEventType.USER_REGISTERED, 1});
+
+		relay(new ConcurrentTaskExecutor(Runnable::run)).relayBatch();
+
+		assertEquals("No handler registered for USER_REGISTERED", rows(OutboxRelay.MARK_FAILED_SQL).get(0)[2]);
+	}
+
+	@Test
+	void shortCircuitedDependencyDefersWithoutSpendingAnAttempt() throws InterruptedException {
+		handler.failure = new CallNotPermittedException("smtp", "circuit open", Duration.ofSeconds(30));
+		claimedRows.add(new Object[]{1L, OutboxEventType.ORDER_CONFIRMED, MAX_ATTEMPTS});
+		LocalDateTime before = LocalDateTime.now();
+
+		relay(new ConcurrentTaskExecutor(Runnable::run)).relayBatch();
+
+		Object[] row = rows(OutboxRelay.DEFER_SQL).get(0);
+		assertFalse(((Timestamp) row[0]).toLocalDateTime().isBefore(before.plusSeconds(30)));
+		assertEquals(1L, row[1]);
+		// Even at max attempts a deferral is not a failure, and the claim's increment is given back
+		verify(jdbcTemplate, never()).batchUpdate(eq(OutboxRelay.MARK_FAILED_SQL), anyList());
+		assertTrue(OutboxRelay.DEFER_SQL.contains("attempts = attempts - 1"));
+	}
+
+	@Test
+	void rejectedDispatchIsDeferred() throws InterruptedException {
+		AsyncTaskExecutor saturated = mock(AsyncTaskExecutor.class);
+		when(saturated.submit(any(Runnable.class))).thenThrow(new TaskRejectedException("queue full"));
+		claimedRows.add(new Object[]{1L, OutboxEventType.ORDER_CONFIRMED, 1});
+		LocalDateTime before = LocalDateTime.now();
+
+		relay(saturated).relayBatch();
+
+		Object[] row = rows(OutboxRelay.DEFER_SQL).get(0);
+		assertFalse(((Timestamp) row[0]).toLocalDateTime().isBefore(before.plusSeconds(1)));
+		assertEquals(1L, row[1]);
+		assertTrue(handler.handled.isEmpty());
+	}
+
+	private OutboxRelay relay(AsyncTaskExecutor executor) {
+		OutboxRelay relay = new OutboxRelay(jdbcTemplate, mock(OutboxEventRepository.class), new ObjectMapper(),
+				List.of(handler), executor);
+		ReflectionTestUtils.setField(relay, "enabled", false);
+		ReflectionTestUtils.setField(relay, "batchSize", 100);
+		ReflectionTestUtils.setField(relay, "maxAttempts", MAX_ATTEMPTS);
+		ReflectionTestUtils.setField(relay, "backoffInitialMs", 5000L);
+		ReflectionTestUtils.setField(relay, "backoffMaxMs", 60000L);
+		ReflectionTestUtils.setField(relay, "backoffJitter", 0.5);
+		ReflectionTestUtils.setField(relay, "leaseSeconds", LEASE_SECONDS);
+		relay.start();
+		return relay;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object[]> rows(String sql) {
+		ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(eq(sql), captor.capture());
+		return captor.getValue();
+	}
+
+	private List<Long> ids(String sql, int idColumn) {
+		return rows(sql).stream().map(row -> (Long) row[idColumn]).toList();
+	}
+
+	private static final class RecordingHandler implements OutboxEventHandler {
+		private final List<OutboxEventType> handled = new ArrayList<>();
+		private Exception failure;
+
+		@Override
+		public Set<OutboxEventType> supportedTypes() {
+			return Set.of(OutboxEventType.ORDER_CONFIRMED);
+		}
+
+		@Override
+		public void handle(OutboxEventType eventType, JsonNode payload) throws Exception {
+			if (failure != null) {
+				throw failure;
+			}
+			handled.add(eventType);
+		}
+	}
+}
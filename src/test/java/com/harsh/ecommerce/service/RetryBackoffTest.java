@@ -0,0 +1,50 @@
+package com.harsh.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBackoffTest {
+
+	@Test
+	void doublesEachAttemptUpToTheCap() {
+		RetryBackoff backoff = new RetryBackoff(100, 1_000, 0);
+
+		assertEquals(100, backoff.delayMillis(1));
+		assertEquals(200, backoff.delayMillis(2));
+		assertEquals(400, backoff.delayMillis(3));
+		assertEquals(800, backoff.delayMillis(4));
+		assertEquals(1_000, backoff.delayMillis(5));
+		assertEquals(1_000, backoff.delayMillis(1_000));
+	}
+
+	@Test
+	void treatsAttemptsBelowOneAsTheFirst() {
+		RetryBackoff backoff = new RetryBackoff(100, 1_000, 0);
+
+		assertEquals(100, backoff.delayMillis(0));
+	}
+
+	@Test
+	void jitterOnlyShortensTheDelay() {
+		RetryBackoff backoff = new RetryBackoff(100, 1_000, 0.5);
+
+		for (int i = 0; i < 1_000; i++) {
+			long first = backoff.delayMillis(1);
+			assertTrue(first >= 50 && first <= 100, "delay " + first);
+			long capped = backoff.delayMillis(10);
+			assertTrue(capped >= 500 && capped <= 1_000, "delay " + capped);
+		}
+	}
+
+	@Test
+	void clampsJitterToTheDelay() {
+		RetryBackoff backoff = new RetryBackoff(100, 1_000, 5);
+
+		for (int i = 0; i < 1_000; i++) {
+			long delay = backoff.delayMillis(3);
+			assertTrue(delay >= 0 && delay <= 400, "delay " + delay);
+		}
+	}
+}
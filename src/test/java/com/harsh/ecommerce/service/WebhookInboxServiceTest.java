@@ -0,0 +1,188 @@
+package com.harsh.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.harsh.ecommerce.entity.WebhookEventStatus;
+import com.harsh.ecommerce.repository.WebhookEventRepository;
+import com.stripe.model.Event;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookInboxServiceTest {
+
+	private static final int WORKERS = 4;
+	private static final int MAX_ATTEMPTS = 3;
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final WebhookEventRepository repository = mock(WebhookEventRepository.class);
+	private final PaymentService paymentService = mock(PaymentService.class);
+	private final List<Object[]> claimedRows = new ArrayList<>();
+	private final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+	private WebhookInboxService inbox;
+	private ExecutorService[] workers;
+
+	@BeforeEach
+	void setUp() {
+		inbox = new WebhookInboxService(jdbcTemplate, repository, paymentService, new ObjectMapper());
+		ReflectionTestUtils.setField(inbox, "maxAttempts", MAX_ATTEMPTS);
+		ReflectionTestUtils.setField(inbox, "backoffInitialMs", 2000L);
+		ReflectionTestUtils.setField(inbox, "backoffMaxMs", 600000L);
+		ReflectionTestUtils.setField(inbox, "leaseSeconds", 120L);
+		ReflectionTestUtils.setField(inbox, "backoffJitter", 0.5);
+		ReflectionTestUtils.setField(inbox, "enabled", false);
+		inbox.start();
+		workers = new ExecutorService[WORKERS];
+		for (int i = 0; i < WORKERS; i++) {
+			workers[i] = Executors.newSingleThreadExecutor();
+		}
+		ReflectionTestUtils.setField(inbox, "workers", workers);
+
+		when(jdbcTemplate.query(eq(WebhookInboxService.CLAIM_SQL), any(RowMapper.class), any(), any(), any(), any()))
+				.thenAnswer(invocation -> {
+					RowMapper<?> mapper = invocation.getArgument(1);
+					List<Object> events = new ArrayList<>();
+					for (Object[] row : claimedRows) {
+						ResultSet rs = mock(ResultSet.class);
+						when(rs.getLong("id")).thenReturn((Long) row[0]);
+						when(rs.getString("event_id")).thenReturn((String) row[1]);
+						when(rs.getString("payment_intent_id")).thenReturn((String) row[2]);
+						when(rs.getString("payload")).thenReturn(payload((String) row[1], (String) row[2]));
+						when(rs.getInt("attempts")).thenReturn((Integer) row[3]);
+						events.add(mapper.mapRow(rs, events.size()));
+					}
+					return events;
+				});
+		doAnswer(invocation -> {
+			Event event = invocation.getArgument(0);
+			applied.add(event.getId() + "@" + Thread.currentThread().getName());
+			return null;
+		}).when(paymentService).processWebhookEvent(any(Event.class));
+	}
+
+	@Test
+	void eventsOfOneIntentShareAWorker() {
+		for (int i = 0; i < 100; i++) {
+			String intent = "pi_" + i;
+			int partition = WebhookInboxService.partition(intent, "evt_a" + i, WORKERS);
+			assertEquals(partition, WebhookInboxService.partition(intent, "evt_b" + i, WORKERS));
+			assertTrue(partition >= 0 && partition < WORKERS);
+		}
+		// Events without an intent are spread by their own id
+		assertEquals(WebhookInboxService.partition("evt_1", "ignored", WORKERS),
+				WebhookInboxService.partition(null, "evt_1", WORKERS));
+	}
+
+	@Test
+	void appliesEventsOfOneIntentInClaimOrder() throws InterruptedException {
+		for (int i = 0; i < 20; i++) {
+			claimedRows.add(new Object[]{(long) i, "evt_" + i, "pi_" + (i % 3), 1});
+		}
+
+		assertEquals(20, inbox.claimAndSubmit(50));
+		drainWorkers();
+
+		assertEquals(20, applied.size());
+		for (int intent = 0; intent < 3; intent++) {
+			List<String> threads = new ArrayList<>();
+			int previous = -1;
+			for (String entry : applied) {
+				int eventIndex = Integer.parseInt(entry.substring(4, entry.indexOf('@')));
+				if (eventIndex % 3 == intent) {
+					assertTrue(eventIndex > previous, "pi_" + intent + " applied out of order: " + applied);
+					previous = eventIndex;
+					threads.add(entry.substring(entry.indexOf('@') + 1));
+				}
+			}
+			assertEquals(1, threads.stream().distinct().count());
+		}
+	}
+
+	@Test
+	void marksAppliedEventsProcessed() throws InterruptedException {
+		claimedRows.add(new Object[]{7L, "evt_7", "pi_1", 1});
+
+		inbox.claimAndSubmit(50);
+		drainWorkers();
+
+		verify(jdbcTemplate).update(eq(WebhookInboxService.MARK_PROCESSED_SQL), any(Timestamp.class), eq(7L));
+	}
+
+	@Test
+	void failedEventIsRetriedLaterThenDead() throws Exception {
+		doThrow(new IllegalStateException("db down")).when(paymentService).processWebhookEvent(any(Event.class));
+		claimedRows.add(new Object[]{1L, "evt_1", "pi_1", 1});
+		claimedRows.add(new Object[]{2L, "evt_2", "pi_2", MAX_ATTEMPTS});
+		LocalDateTime before = LocalDateTime.now();
+
+		inbox.claimAndSubmit(50);
+		drainWorkers();
+
+		verify(jdbcTemplate).update(eq(WebhookInboxService.MARK_FAILED_SQL), eq(WebhookEventStatus.PENDING.name()),
+				argThat((Timestamp at) -> !at.toLocalDateTime().isBefore(before.plusSeconds(1))),
+				eq("IllegalStateException: db down"), eq(1L));
+		verify(jdbcTemplate).update(eq(WebhookInboxService.MARK_FAILED_SQL), eq(WebhookEventStatus.DEAD.name()),
+				any(Timestamp.class), anyString(), eq(2L));
+	}
+
+	@Test
+	void extractsTheIntentFromIntentAndChargeEvents() {
+		assertEquals("pi_1", inbox.extractPaymentIntentId(payload("evt_1", "pi_1")));
+		assertEquals("pi_2", inbox.extractPaymentIntentId(
+				"{\"data\":{\"object\":{\"id\":\"ch_1\",\"object\":\"charge\",\"payment_intent\":\"pi_2\"}}}"));
+		assertNull(inbox.extractPaymentIntentId("{\"data\":{\"object\":{\"id\":\"cus_1\",\"object\":\"customer\"}}}"));
+		assertNull(inbox.extractPaymentIntentId("not json"));
+	}
+
+	@Test
+	void replayRefusesAnEventUnderALiveLease() {
+		when(repository.requeue(eq("evt_busy"), any())).thenReturn(0);
+		when(repository.existsByEventId("evt_busy")).thenReturn(true);
+		when(repository.requeue(eq("evt_done"), any())).thenReturn(1);
+
+		assertThrows(IllegalStateException.class, () -> inbox.replay("evt_busy"));
+		assertTrue(inbox.replay("evt_done"));
+		assertFalse(inbox.replay("evt_missing"));
+	}
+
+	private void drainWorkers() throws InterruptedException {
+		for (ExecutorService worker : workers) {
+			worker.shutdown();
+		}
+		for (ExecutorService worker : workers) {
+			assertTrue(worker.awaitTermination(10, TimeUnit.SECONDS));
+		}
+	}
+
+	private static String payload(String eventId, String paymentIntentId) {
+		return "{\"id\":\"" + eventId + "\",\"object\":\"event\",\"type\":\"payment_intent.succeeded\"," +
+				"\"data\":{\"object\":{\"id\":\"" + paymentIntentId + "\",\"object\":\"payment_intent\"}}}";
+	}
+}